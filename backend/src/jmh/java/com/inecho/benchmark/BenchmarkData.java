@@ -0,0 +1,104 @@
+package com.inecho.benchmark;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inecho.config.CacheConfig;
+import com.inecho.model.JournalEntry;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalStatsRepository;
+import com.inecho.repository.memory.InMemoryJournalTombstoneRepository;
+import com.inecho.service.JournalEntryService;
+import com.inecho.service.JournalMetrics;
+import com.inecho.service.JournalStatsService;
+import com.inecho.service.JournalSyncService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Shared fixtures for the benchmarks: realistic journal entries and a {@link JournalEntryService} wired
+ * the way the application wires it, but over the in-memory store so MongoDB isn't part of the measurement.
+ */
+final class BenchmarkData {
+
+    static final int USERS = 10;
+    static final int ENTRIES_PER_USER = 500;
+
+    private static final String BODY = "Woke up early and went for a long walk by the river before work. "
+            + "The meeting I was dreading went better than expected, and I managed to finish the draft. "
+            + "Still feeling a bit anxious about next week, but writing it down helps. ";
+
+    private BenchmarkData() {
+    }
+
+    // The builder's defaults (Java time support, ISO dates instead of timestamps) plus the spring.jackson.*
+    // settings of application.properties, which only Boot's auto-configured builder would apply
+    static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .indentOutput(false)
+                .build();
+    }
+
+    static JournalEntry entry(String userId, int n) {
+        JournalEntry entry = new JournalEntry();
+        entry.setTitle("Entry " + n);
+        entry.setBody(BODY.repeat(3));
+        entry.setDate(LocalDateTime.of(2024, 1, 1, 8, 0).plusHours(n));
+        entry.setTags(List.of("gratitude", n % 2 == 0 ? "work" : "family"));
+        entry.setUserId(userId);
+        return entry;
+    }
+
+    static String userId(int user) {
+        return "user-" + user;
+    }
+
+    // A service over a freshly populated in-memory repository; returns the ids of the stored entries
+    static JournalEntryService service(List<String> ids) {
+        JournalEntryRepository repository = new InMemoryJournalEntryRepository();
+        for (int user = 0; user < USERS; user++) {
+            for (int n = 0; n < ENTRIES_PER_USER; n++) {
+                ids.add(repository.save(entry(userId(user), n)).getId());
+            }
+        }
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CacheConfig.JOURNAL_ENTRIES);
+        cacheManager.setCacheSpecification("maximumSize=10000,expireAfterWrite=10m");
+
+        JournalEntryService service = new JournalEntryService();
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(service, "metrics", new JournalMetrics(new SimpleMeterRegistry()));
+
+        JournalStatsService stats = new JournalStatsService();
+        ReflectionTestUtils.setField(stats, "repository", new InMemoryJournalStatsRepository());
+        ReflectionTestUtils.setField(stats, "journalEntryRepository", repository);
+        ReflectionTestUtils.setField(service, "journalStatsService", stats);
+
+        JournalSyncService sync = new JournalSyncService();
+        ReflectionTestUtils.setField(sync, "journalEntryRepository", repository);
+        ReflectionTestUtils.setField(sync, "tombstoneRepository", new InMemoryJournalTombstoneRepository());
+        ReflectionTestUtils.setField(sync, "settleWindow", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "journalSyncService", sync);
+        return service;
+    }
+
+    static List<JournalEntry> page(int size) {
+        List<JournalEntry> entries = new ArrayList<>(size);
+        for (int n = 0; n < size; n++) {
+            JournalEntry entry = entry(userId(0), n);
+            entry.setId(Integer.toHexString(n));
+            entry.setVersion(0L);
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,113 @@
+package com.inecho.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inecho.controller.JournalEntryController;
+
+/**
+ * Request dispatch through JournalEntryController with MockMvc: argument binding, the service call
+ * and JSON encoding, without a servlet container or network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JournalEntryControllerBenchmark {
+
+    private MockMvc mockMvc;
+    private List<String> ids;
+    private byte[] newEntry;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = BenchmarkData.objectMapper();
+        ids = new ArrayList<>();
+
+        JournalEntryController controller = new JournalEntryController();
+        ReflectionTestUtils.setField(controller, "journalEntryService", BenchmarkData.service(ids));
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+
+        newEntry = objectMapper.writeValueAsBytes(BenchmarkData.entry(BenchmarkData.userId(1), 0));
+
+        // Fail fast rather than benchmark error responses
+        mockMvc.perform(get("/api/journal/{id}", ids.get(0))).andExpect(status().isOk());
+        mockMvc.perform(post("/api/journal").contentType(MediaType.APPLICATION_JSON).content(newEntry))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/journal").param("limit", "20").param("userId", BenchmarkData.userId(0)))
+                .andExpect(status().isOk());
+    }
+
+    @Benchmark
+    public MvcResult getById() throws Exception {
+        return mockMvc.perform(get("/api/journal/{id}", randomId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getPage() throws Exception {
+        return mockMvc.perform(get("/api/journal")
+                .param("userId", BenchmarkData.userId(0))
+                .param("limit", "20"))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getSummaryPage() throws Exception {
+        return mockMvc.perform(get("/api/journal")
+                .param("userId", BenchmarkData.userId(0))
+                .param("limit", "20")
+                .param("view", "summary"))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult create() throws Exception {
+        return mockMvc.perform(post("/api/journal")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(newEntry))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult patchTitle() throws Exception {
+        return mockMvc.perform(patch("/api/journal/{id}", randomId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Edited title\"}"))
+                .andReturn();
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
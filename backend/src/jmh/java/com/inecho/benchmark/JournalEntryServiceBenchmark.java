@@ -0,0 +1,84 @@
+package com.inecho.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.inecho.model.CursorPage;
+import com.inecho.model.JournalEntry;
+import com.inecho.service.JournalEntryService;
+
+/**
+ * JournalEntryService over an in-memory repository: cached lookups, keyset paging and writes.
+ * The data is rebuilt before every iteration so the create benchmark doesn't grow it without bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JournalEntryServiceBenchmark {
+
+    private JournalEntryService service;
+    private List<String> ids;
+    private String secondPageCursor;
+    private JournalEntry changes;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ids = new ArrayList<>();
+        service = BenchmarkData.service(ids);
+        secondPageCursor = service.getJournalEntriesPage(BenchmarkData.userId(0), null, null, 20).getNext();
+
+        changes = new JournalEntry();
+        changes.setTitle("Edited title");
+    }
+
+    @Benchmark
+    public JournalEntry getById() {
+        return service.getJournalEntryById(randomId()).orElseThrow();
+    }
+
+    @Benchmark
+    public CursorPage<JournalEntry> firstPage() {
+        return service.getJournalEntriesPage(BenchmarkData.userId(0), null, null, 20);
+    }
+
+    @Benchmark
+    public CursorPage<JournalEntry> nextPage() {
+        return service.getJournalEntriesPage(BenchmarkData.userId(0), null, secondPageCursor, 20);
+    }
+
+    @Benchmark
+    public CursorPage<JournalEntry> taggedPage() {
+        return service.getJournalEntriesPage(BenchmarkData.userId(0), "work", null, 20);
+    }
+
+    @Benchmark
+    public JournalEntry create() {
+        return service.createJournalEntry(BenchmarkData.entry(BenchmarkData.userId(1), 0));
+    }
+
+    @Benchmark
+    public JournalEntry patch() {
+        return service.patchJournalEntry(randomId(), changes).orElseThrow();
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,58 @@
+package com.inecho.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inecho.model.JournalEntry;
+
+/**
+ * Jackson serialization and deserialization of journal entries, including the formatted date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JournalJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private JournalEntry entry;
+    private List<JournalEntry> page;
+    private byte[] entryJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = BenchmarkData.objectMapper();
+        page = BenchmarkData.page(20);
+        entry = page.get(0);
+        entryJson = objectMapper.writeValueAsBytes(entry);
+    }
+
+    @Benchmark
+    public byte[] serializeEntry() throws Exception {
+        return objectMapper.writeValueAsBytes(entry);
+    }
+
+    @Benchmark
+    public JournalEntry deserializeEntry() throws Exception {
+        return objectMapper.readValue(entryJson, JournalEntry.class);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
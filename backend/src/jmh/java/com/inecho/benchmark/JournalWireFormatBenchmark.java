@@ -0,0 +1,92 @@
+package com.inecho.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inecho.model.JournalEntry;
+
+/**
+ * Encoding and decoding a listing of journal entries as JSON and as CBOR. {@link #main} prints the payload
+ * sizes, raw and gzipped as the server sends them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JournalWireFormatBenchmark {
+
+    private static final TypeReference<List<JournalEntry>> ENTRIES = new TypeReference<>() { };
+
+    @Param({ "json", "cbor" })
+    private String format;
+
+    @Param({ "20", "100" })
+    private int size;
+
+    private ObjectMapper mapper;
+    private List<JournalEntry> page;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = mapper(format);
+        page = BenchmarkData.page(size);
+        encoded = mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] encodePage() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<JournalEntry> decodePage() throws Exception {
+        return mapper.readValue(encoded, ENTRIES);
+    }
+
+    // Payload sizes of the benchmarked listings, which JMH has no place for
+    public static void main(String[] args) throws Exception {
+        for (String format : List.of("json", "cbor")) {
+            for (int size : List.of(20, 100)) {
+                byte[] payload = mapper(format).writeValueAsBytes(BenchmarkData.page(size));
+                System.out.printf("%s, %d entries: %d bytes, %d gzipped%n", format, size, payload.length,
+                        gzipped(payload));
+            }
+        }
+    }
+
+    private static ObjectMapper mapper(String format) {
+        Jackson2ObjectMapperBuilder builder = format.equals("cbor")
+                ? Jackson2ObjectMapperBuilder.cbor()
+                : Jackson2ObjectMapperBuilder.json();
+        return builder.build();
+    }
+
+    private static int gzipped(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.size();
+    }
+}
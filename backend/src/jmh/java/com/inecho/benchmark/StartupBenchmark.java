@@ -0,0 +1,140 @@
+package com.inecho.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time from launching the packaged backend until it answers its first HTTP request, as a plain JVM
+ * ({@code jar}), as a JVM with the Spring AOT initializers and the class data sharing archive of the
+ * 'cds' Maven profile ({@code cds}), and as the native image of the 'native' profile ({@code native}).
+ * Build the artifacts first, with the same Spring profiles as measured, e.g.
+ * {@code mvn -Pcds package -DskipTests -Daot.profiles=memory}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+
+    @Param({ "jar", "cds", "native" })
+    private String mode;
+
+    @Param({ "memory" })
+    private String profiles;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(100))
+            .build();
+
+    private List<String> command;
+    private Process process;
+
+    @Setup
+    public void setUp() throws IOException {
+        command = new ArrayList<>();
+        switch (mode) {
+            case "jar" -> command.addAll(List.of(java(), "-jar", jar().toString()));
+            case "cds" -> command.addAll(List.of(java(),
+                    "-XX:SharedArchiveFile=" + existing(TARGET.resolve("inecho.jsa")),
+                    "-Dspring.aot.enabled=true", "-jar", jar().toString()));
+            case "native" -> command.add(existing(TARGET.resolve("inecho")).toString());
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        command.add("--spring.profiles.active=" + profiles);
+    }
+
+    @Benchmark
+    public int firstResponse() throws Exception {
+        int port = freePort();
+        List<String> launch = new ArrayList<>(command);
+        launch.add("--server.port=" + port);
+        process = new ProcessBuilder(launch)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/info"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The backend exited with " + process.exitValue() + ": " + launch);
+            }
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException notListeningYet) {
+                Thread.sleep(5);
+            }
+        }
+        throw new IllegalStateException("The backend didn't answer within a minute: " + launch);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            process = null;
+        }
+    }
+
+    private static String java() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    // The application jar: the one the 'cds' profile builds next to its libraries, else the executable one
+    private static Path jar() throws IOException {
+        try (Stream<Path> files = Files.list(TARGET)) {
+            return files.filter(file -> file.getFileName().toString().matches("inecho-.*(?<!-exec|-plain)\\.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + TARGET.toAbsolutePath()
+                            + "; run mvn package first"));
+        }
+    }
+
+    private static Path existing(Path file) {
+        if (!Files.exists(file)) {
+            throw new IllegalStateException(file.toAbsolutePath() + " doesn't exist; build it with the matching "
+                    + "Maven profile first");
+        }
+        return file;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
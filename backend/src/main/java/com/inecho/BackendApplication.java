@@ -2,12 +2,18 @@ package com.inecho;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import com.inecho.config.InechoRuntimeHints;
+
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Info;
 import io.swagger.v3.oas.annotations.info.Contact;
 import io.swagger.v3.oas.annotations.info.License;
 
 @SpringBootApplication
+@ImportRuntimeHints(InechoRuntimeHints.class)
 @OpenAPIDefinition(
     info = @Info(
         title = "Mental Health App API",
@@ -19,6 +25,10 @@ import io.swagger.v3.oas.annotations.info.License;
 )
 public class BackendApplication {
     public static void main(String[] args) {
-        SpringApplication.run(BackendApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(BackendApplication.class, args);
+        // Training runs for the CDS archive (see the 'cds' Maven profile) stop once started
+        if (context.getEnvironment().getProperty("inecho.startup.exit-when-ready", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 } 
\ No newline at end of file
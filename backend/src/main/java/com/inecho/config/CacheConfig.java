@@ -0,0 +1,40 @@
+package com.inecho.config;
+
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// Cache sizes and expiry are set through spring.cache.* in application.properties
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Journal entries by ID
+    public static final String JOURNAL_ENTRIES = "journalEntries";
+
+    // User profiles by ID
+    public static final String USER_PROFILES = "userProfiles";
+
+    // Profile ID by email; checked against the loaded profile on every read, so a stale mapping is harmless
+    public static final String USER_PROFILE_IDS_BY_EMAIL = "userProfileIdsByEmail";
+
+    // The cached value of the key, loaded on a miss. The load holds the key, so an eviction by a write made
+    // meanwhile waits for it rather than being overwritten by what it read. Missing values aren't cached.
+    public static <T> Optional<T> readThrough(Cache cache, Object key, Supplier<Optional<T>> loader) {
+        try {
+            return Optional.of(cache.get(key, () -> loader.get().orElseThrow()));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof NoSuchElementException) {
+                return Optional.empty();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
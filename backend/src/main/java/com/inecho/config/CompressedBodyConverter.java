@@ -0,0 +1,102 @@
+package com.inecho.config;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+import com.inecho.model.CompressedBody;
+import com.inecho.model.Words;
+
+/**
+ * Stores journal entry bodies of at least {@code threshold} bytes zlib-compressed (deflate), as
+ * {@code {deflated: <binary>, terms: "<distinct words>"}}. The terms are what the text index searches in
+ * place of the compressed text, so word searches keep finding long entries. They cost much of the saving:
+ * deflate alone takes English prose to 35-45% of its size, but the pair only to about 80% at 2-4 KB and
+ * 60-75% from 8 KB, stop words left out, so only long bodies are worth it. Phrase searches don't match
+ * inside compressed bodies. Shorter bodies, and bodies that wouldn't get smaller, stay plain
+ * strings, as do documents written before compression; reads accept both. A compressed body is read as a
+ * {@link CompressedBody} and only inflated when the entry's body is asked for; listings that don't need it
+ * should still read summaries, which don't load it at all.
+ */
+public class CompressedBodyConverter implements MongoValueConverter<Object, Object> {
+
+    public static final String DEFLATED = "deflated";
+    public static final String TERMS = "terms";
+
+    // The most frequent of the words MongoDB's English text index doesn't index, so leaving them out of the
+    // terms changes no search result
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "about", "after", "again", "all", "am", "an", "and", "any", "are", "as", "at", "be", "been",
+            "before", "but", "by", "could", "did", "do", "does", "for", "from", "had", "has", "have", "he",
+            "her", "him", "his", "how", "i", "if", "in", "into", "is", "it", "its", "me", "more", "my", "no",
+            "not", "of", "on", "or", "our", "out", "over", "she", "so", "some", "than", "that", "the", "their",
+            "them", "then", "there", "they", "this", "to", "too", "up", "very", "was", "we", "were", "what",
+            "when", "which", "who", "with", "would", "you", "your");
+
+    private final int threshold;
+
+    public CompressedBodyConverter(int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Object write(Object value, MongoConversionContext context) {
+        if (value instanceof CompressedBody compressed) {
+            // Read compressed and not changed since
+            return compressed.stored();
+        }
+        String body = (String) value;
+        byte[] text = body.getBytes(StandardCharsets.UTF_8);
+        if (text.length < threshold) {
+            return body;
+        }
+        byte[] deflated = deflate(text);
+        String terms = terms(body);
+        if (deflated.length + terms.getBytes(StandardCharsets.UTF_8).length >= text.length) {
+            return body;
+        }
+        return new Document(DEFLATED, new Binary(deflated)).append(TERMS, terms);
+    }
+
+    @Override
+    public Object read(Object value, MongoConversionContext context) {
+        if (value instanceof Document compressed) {
+            return new CompressedBody(compressed, compressed.get(DEFLATED, Binary.class).getData());
+        }
+        return value;
+    }
+
+    // Every distinct word of the body but stop words, lowercased, in order of first use
+    static String terms(String body) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : Words.of(body)) {
+            if (!STOP_WORDS.contains(word)) {
+                words.add(word);
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    private static byte[] deflate(byte[] text) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(text);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(text.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.inecho.config;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import com.inecho.controller.UserProfileController;
+import com.inecho.model.CascadeDeletion;
+import com.inecho.model.CursorPage;
+import com.inecho.model.ImportResult;
+import com.inecho.model.JournalChange;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.JournalStats;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncPage;
+import com.inecho.model.UserProfile;
+
+/**
+ * Reflection the native image needs beyond what Spring AOT finds on its own: Spring Data reads and writes
+ * the mapped documents and projections through their fields and constructors, and Jackson binds bodies
+ * that controllers declare as {@code ResponseEntity<?>} or {@code Object}, which AOT can't see through.
+ */
+public class InechoRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final List<Class<?>> MONGO_TYPES = List.of(
+            JournalEntry.class, JournalEntrySummary.class, JournalTombstone.class, JournalStats.class,
+            UserProfile.class);
+
+    static final List<Class<?>> JSON_TYPES = List.of(
+            JournalEntry.class, JournalEntrySummary.class, JournalTombstone.class, JournalStats.class,
+            UserProfile.class, CursorPage.class, SyncPage.class, ImportResult.class, CascadeDeletion.class,
+            JournalChange.class, UserProfileController.ApiErrorResponse.class,
+            UserProfileController.ApiSuccessResponse.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : MONGO_TYPES) {
+            hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                JSON_TYPES.toArray(Type[]::new));
+    }
+}
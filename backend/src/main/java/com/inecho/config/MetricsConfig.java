@@ -0,0 +1,43 @@
+package com.inecho.config;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Instrumentation on top of Boot's defaults; percentiles and histograms are configured in application.properties
+@Configuration
+public class MetricsConfig {
+
+    // Adds the Mongo document counts next to Boot's per-command latency timer
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoDocumentMetrics(MeterRegistry registry) {
+        return builder -> builder.addCommandListener(new MongoDocumentMetrics(registry));
+    }
+
+    // Tags http.server.requests with the controller method that handled the request, e.g.
+    // handler=JournalEntryController.searchJournalEntries, so each endpoint gets its own latency percentiles
+    @Bean
+    @Profile("!reactive")
+    public ServerRequestObservationConvention handlerTaggingConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+                String name = handler instanceof HandlerMethod method
+                        ? method.getBeanType().getSimpleName() + "." + method.getMethod().getName()
+                        : "none";
+                return super.getLowCardinalityKeyValues(context).and(KeyValue.of("handler", name));
+            }
+        };
+    }
+}
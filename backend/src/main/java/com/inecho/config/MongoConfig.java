@@ -1,14 +1,22 @@
 package com.inecho.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
+import com.inecho.model.JournalEntry;
+
 @Configuration
+@Profile("!memory")  // The 'memory' profile replaces MongoDB with the in-memory store
 @EnableMongoAuditing
 public class MongoConfig {
 
@@ -17,6 +25,23 @@ public class MongoConfig {
         return new MongoTransactionManager(dbFactory);
     }
 
+    // Used by the blocking and the reactive template alike
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(
+            @Value("${inecho.compression.body-threshold:8KB}") DataSize bodyThreshold) {
+        CompressedBodyConverter bodyConverter = new CompressedBodyConverter((int) bodyThreshold.toBytes());
+        return MongoCustomConversions.create(adapter -> adapter.configurePropertyConversions(
+                registrar -> registrar.registerConverter(JournalEntry.class, "body", bodyConverter)));
+    }
+
+    @Bean
+    public MongoIndexBootstrapper mongoIndexBootstrapper(MongoTemplate mongoTemplate,
+            @Value("${inecho.indexes.replace-text-index:false}") boolean replaceTextIndex) {
+        // Compressed bodies are searched through their terms
+        return new MongoIndexBootstrapper(mongoTemplate, replaceTextIndex)
+                .withTextField(JournalEntry.class, "body." + CompressedBodyConverter.TERMS);
+    }
+
     @Bean
     public ValidatingMongoEventListener validatingMongoEventListener(
             LocalValidatorFactoryBean factory) {
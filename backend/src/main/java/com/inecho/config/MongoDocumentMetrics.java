@@ -0,0 +1,86 @@
+package com.inecho.config;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records how many documents each MongoDB command returned or wrote, per command and collection.
+ * Latency per command and collection is already recorded by Boot's mongodb.driver.commands timer;
+ * together they show which queries are slow because they return too much.
+ */
+public class MongoDocumentMetrics implements CommandListener {
+
+    private static final Set<String> READS = Set.of("find", "getMore", "aggregate");
+
+    private static final Set<String> WRITES = Set.of("insert", "update", "delete", "findAndModify");
+
+    private final MeterRegistry registry;
+
+    // Collection of each command in flight; the reply doesn't name it
+    private final Map<Integer, String> collections = new ConcurrentHashMap<>();
+
+    public MongoDocumentMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String command = event.getCommandName();
+        if (READS.contains(command) || WRITES.contains(command)) {
+            BsonValue target = event.getCommand().get("getMore".equals(command) ? "collection" : command);
+            collections.put(event.getRequestId(), target != null && target.isString() ? target.asString().getValue() : "unknown");
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String collection = collections.remove(event.getRequestId());
+        if (collection == null) {
+            return;
+        }
+        String command = event.getCommandName();
+        BsonDocument reply = event.getResponse();
+        if (READS.contains(command)) {
+            summary("inecho.mongodb.documents.returned", command, collection).record(returned(reply));
+        } else if ("findAndModify".equals(command)) {
+            BsonValue value = reply.get("value");
+            summary("inecho.mongodb.documents.written", command, collection).record(value != null && value.isDocument() ? 1 : 0);
+        } else if (reply.containsKey("n")) {
+            summary("inecho.mongodb.documents.written", command, collection).record(reply.getNumber("n").intValue());
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        collections.remove(event.getRequestId());
+    }
+
+    private static int returned(BsonDocument reply) {
+        BsonDocument cursor = reply.getDocument("cursor", null);
+        if (cursor == null) {
+            return 0;
+        }
+        BsonArray batch = cursor.containsKey("firstBatch") ? cursor.getArray("firstBatch") : cursor.getArray("nextBatch", null);
+        return batch != null ? batch.size() : 0;
+    }
+
+    private DistributionSummary summary(String name, String command, String collection) {
+        return DistributionSummary.builder(name)
+                .tag("command", command)
+                .tag("collection", collection)
+                .register(registry);
+    }
+}
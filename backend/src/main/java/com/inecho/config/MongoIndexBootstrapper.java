@@ -0,0 +1,115 @@
+package com.inecho.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition.TextIndexedFieldSpec;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+
+/**
+ * Creates the indexes declared on the mapped documents ({@code @Indexed}, {@code @CompoundIndex},
+ * {@code @TextIndexed}) once at startup, before the application takes traffic. Index creation is
+ * idempotent, so existing indexes with the same definition are left untouched. A collection has at most
+ * one text index, so one whose fields changed has to be dropped and built again. Searches fail until that
+ * is done, and every instance starting at once would try it, so it is only done when replacing the text
+ * index is asked for, e.g. by a one-off run of a single instance during a deployment.
+ */
+public class MongoIndexBootstrapper implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexBootstrapper.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    // Text index fields no annotation can declare, such as paths inside converted values
+    private final Map<Class<?>, List<TextIndexedFieldSpec>> textFields = new HashMap<>();
+
+    private final boolean replaceTextIndex;
+
+    public MongoIndexBootstrapper(MongoTemplate mongoTemplate, boolean replaceTextIndex) {
+        this.mongoTemplate = mongoTemplate;
+        this.replaceTextIndex = replaceTextIndex;
+    }
+
+    // Also include the given path in the text index of the type
+    public MongoIndexBootstrapper withTextField(Class<?> type, String path) {
+        textFields.computeIfAbsent(type, key -> new ArrayList<>()).add(new TextIndexedFieldSpec(path));
+        return this;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureIndexes();
+    }
+
+    public void ensureIndexes() {
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+                mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            for (IndexDefinition definition : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                if (definition instanceof TextIndexDefinition text && textFields.containsKey(entity.getType())) {
+                    text.addFieldSpecs(textFields.get(entity.getType()));
+                }
+                try {
+                    String name = ensureIndex(indexOps, definition);
+                    log.debug("Ensured index {} on {}", name, entity.getCollection());
+                } catch (DataAccessResourceFailureException e) {
+                    // Database unreachable: every further attempt would wait out the same timeout
+                    log.error("Skipping index creation, MongoDB is unreachable: {}", e.getMessage());
+                    return;
+                } catch (DataAccessException e) {
+                    // Keep starting; queries still work, only slower, and the log names the offending index
+                    log.error("Could not create index {} on {}: {}",
+                            definition.getIndexKeys().toJson(), entity.getCollection(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String ensureIndex(IndexOperations indexOps, IndexDefinition definition) {
+        try {
+            return indexOps.ensureIndex(definition);
+        } catch (DataAccessException e) {
+            if (e instanceof DataAccessResourceFailureException || !(definition instanceof TextIndexDefinition)) {
+                throw e;
+            }
+            IndexInfo existing = indexOps.getIndexInfo().stream()
+                    .filter(index -> index.getIndexFields().stream().anyMatch(IndexField::isText))
+                    .findFirst()
+                    .orElseThrow(() -> e);
+            if (!replaceTextIndex) {
+                log.error("Text index {} differs from {}; start one instance with "
+                        + "inecho.indexes.replace-text-index=true to replace it",
+                        existing.getName(), definition.getIndexKeys().toJson());
+                throw e;
+            }
+            // Searches go without the text index until it is built again
+            log.warn("Replacing text index {} with {}", existing.getName(), definition.getIndexKeys().toJson());
+            indexOps.dropIndex(existing.getName());
+            return indexOps.ensureIndex(definition);
+        }
+    }
+}
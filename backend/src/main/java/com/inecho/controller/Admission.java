@@ -0,0 +1,25 @@
+package com.inecho.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.inecho.service.AdmissionControl;
+
+/**
+ * How the requests of a handler method are admitted by {@link AdmissionControl}. Handlers without it
+ * are {@link AdmissionControl.Cost#CHEAP CHEAP}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Admission {
+
+    AdmissionControl.Cost value();
+
+    // Request parameters that bound the work, e.g. a user filter or a page size: requests with any of
+    // them are CHEAP
+    String[] cheapWith() default {};
+}
@@ -0,0 +1,95 @@
+package com.inecho.controller;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.inecho.service.AdmissionControl;
+import com.inecho.service.AdmissionControl.Cost;
+import com.inecho.service.AdmissionControl.Rejection;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Admits API requests through AdmissionControl, costed by the @Admission of the handler method. The bulkhead
+// slot is held until the response is complete, for streamed bodies until the writer thread returns.
+@Component
+@Profile("!reactive")
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    // The Slot of an admitted request
+    private static final String ADMITTED = AdmissionInterceptor.class.getName() + ".admitted";
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method) || request.getAttribute(ADMITTED) != null) {
+            // Not a controller, or the dispatch completing a request admitted before
+            return true;
+        }
+        Cost cost = costOf(method, parameter -> request.getParameter(parameter) != null);
+        Rejection rejection = admissionControl.admit(request.getRemoteAddr(), request.getParameter("userId"), cost);
+        if (rejection != null) {
+            response.setStatus(rejection.status().value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(rejection.retryAfterSeconds()));
+            return false;
+        }
+        Slot slot = new Slot(cost);
+        request.setAttribute(ADMITTED, slot);
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ADMITTED, new CallableProcessingInterceptor() {
+
+            @Override
+            public <T> void postProcess(NativeWebRequest webRequest, Callable<T> task, Object concurrentResult) {
+                slot.release();
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(ADMITTED) instanceof Slot slot) {
+            slot.release();
+        }
+    }
+
+    // The cost of a request to the handler, given which request parameters it has
+    static Cost costOf(HandlerMethod method, Predicate<String> hasParameter) {
+        Admission admission = method.getMethodAnnotation(Admission.class);
+        if (admission == null || Arrays.stream(admission.cheapWith()).anyMatch(hasParameter)) {
+            return Cost.CHEAP;
+        }
+        return admission.value();
+    }
+
+    // The bulkhead slot of an admitted request, released by whichever of the two completions comes first
+    private final class Slot {
+
+        private final Cost cost;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Slot(Cost cost) {
+            this.cost = cost;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                admissionControl.release(cost);
+            }
+        }
+    }
+}
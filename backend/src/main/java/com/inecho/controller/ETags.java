@@ -0,0 +1,57 @@
+package com.inecho.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import com.inecho.model.CursorPage;
+import com.inecho.model.Versioned;
+
+// ETags for journal responses, computed from document versions rather than from the serialized body, so a
+// matching If-None-Match is answered with 304 before anything is written. They are weak because the same
+// version is sent gzipped or not, and Tomcat doesn't compress responses that carry a strong ETag;
+// If-None-Match uses the weak comparison, so nothing is lost.
+final class ETags {
+
+    // Clients may keep responses but must revalidate them before use
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ETags() {
+    }
+
+    // 200 with an ETag; when it matches the request's If-None-Match, Spring answers 304 without writing the body
+    static <T> ResponseEntity<T> revalidated(T body, String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(REVALIDATE);
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        return response.body(body);
+    }
+
+    // The entry's version; null for documents written before versioning, which get no ETag
+    static String of(Versioned item) {
+        return item.getVersion() != null ? "W/\"" + item.getVersion() + "\"" : null;
+    }
+
+    // Digest of the ids and versions of the listed items, in order
+    static String of(List<? extends Versioned> items) {
+        return digest(items, null);
+    }
+
+    // Digest of a page's items and its next cursor
+    static String of(CursorPage<? extends Versioned> page) {
+        return digest(page.getItems(), page.getNext());
+    }
+
+    private static String digest(List<? extends Versioned> items, String next) {
+        StringBuilder key = new StringBuilder(items.size() * 32);
+        for (Versioned item : items) {
+            key.append(item.getId()).append(':').append(item.getVersion()).append(';');
+        }
+        key.append(next);
+        return "W/\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -1,24 +1,54 @@
 package com.inecho.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.inecho.model.CursorPage;
+import com.inecho.model.ImportResult;
+import com.inecho.model.JournalChange;
 import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.JournalStats;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncPage;
+import com.inecho.model.Versioned;
+import com.inecho.service.AdmissionControl.Cost;
+import com.inecho.service.CapacityExceededException;
+import com.inecho.service.JournalChangeHub;
 import com.inecho.service.JournalEntryService;
+import com.inecho.service.JournalImportService;
+import com.inecho.service.JournalStatsService;
+import com.inecho.service.JournalSyncService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -29,21 +59,76 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/journal")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 @Tag(name = "Journal Entries", description = "Journal Entry Management API")
 public class JournalEntryController {
 
+    // Listing views: the full entries, or summaries without the body for list screens
+    static final String FULL_VIEW = "full";
+    static final String SUMMARY_VIEW = "summary";
+
     @Autowired
     private JournalEntryService journalEntryService;
 
-    @Operation(summary = "Get all journal entries", description = "Returns a list of all journal entries")
-    @ApiResponse(responseCode = "200", description = "List of journal entries retrieved successfully")
+    @Autowired
+    private JournalImportService journalImportService;
+
+    @Autowired
+    private JournalStatsService journalStatsService;
+
+    @Autowired
+    private JournalSyncService journalSyncService;
+
+    @Autowired
+    private JournalChangeHub journalChangeHub;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${inecho.export.rate:4MB}")
+    private DataSize exportRate;
+
+    @Operation(summary = "Get all journal entries",
+               description = "Returns a list of all journal entries. When cursor or limit is given, returns one page "
+                       + "ordered newest first together with the cursor of the next page. With view=summary only "
+                       + "the id, title, date, tags, userId and version of each entry are read and returned")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "List of journal entries retrieved successfully"),
+        @ApiResponse(responseCode = "304", description = "Listing unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor, limit or view, or a fields list")
+    })
+    @Admission(value = Cost.EXPENSIVE, cheapWith = { "userId", "cursor", "limit" })
     @GetMapping
-    public ResponseEntity<List<JournalEntry>> getAllJournalEntries(
+    public ResponseEntity<?> getAllJournalEntries(
             @Parameter(description = "Filter by user ID") @RequestParam(required = false) String userId,
-            @Parameter(description = "Filter by tag") @RequestParam(required = false) String tag) {
+            @Parameter(description = "Filter by tag") @RequestParam(required = false) String tag,
+            @Parameter(description = "Cursor returned as 'next' by the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (default 20, max 100)") @RequestParam(required = false) Integer limit,
+            @Parameter(description = "'full' (default) or 'summary' to leave out the body") @RequestParam(required = false) String view,
+            @Parameter(description = "Not supported; use view=summary") @RequestParam(required = false) String fields) {
         
+        if (!isListingView(view, fields)) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean summary = SUMMARY_VIEW.equals(view);
+
+        if (cursor != null || limit != null) {
+            try {
+                CursorPage<? extends Versioned> page = summary
+                        ? journalEntryService.getJournalEntrySummariesPage(userId, tag, cursor, limit)
+                        : journalEntryService.getJournalEntriesPage(userId, tag, cursor, limit);
+                return ETags.revalidated(page, ETags.of(page));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (summary) {
+            List<JournalEntrySummary> summaries = journalEntryService.getJournalEntrySummaries(userId, tag);
+            return ETags.revalidated(summaries, ETags.of(summaries));
+        }
+
         List<JournalEntry> entries;
         
         if (userId != null && tag != null) {
@@ -56,14 +141,142 @@ public class JournalEntryController {
             entries = journalEntryService.getAllJournalEntries();
         }
         
-        return ResponseEntity.ok(entries);
+        return ETags.revalidated(entries, ETags.of(entries));
     }
 
-    @Operation(summary = "Get a journal entry by ID", description = "Returns a journal entry based on its ID")
+    // Only the fixed views are offered; a fields list is refused rather than ignored, so clients don't take
+    // full entries for a projection
+    static boolean isListingView(String view, String fields) {
+        return fields == null && (view == null || FULL_VIEW.equals(view) || SUMMARY_VIEW.equals(view));
+    }
+
+    @Operation(summary = "Stream journal entries",
+               description = "Streams the same listing as newline-delimited JSON straight from the database cursor. "
+                       + "Selected with 'Accept: application/x-ndjson'")
+    @ApiResponse(responseCode = "200", description = "Journal entries streamed, one JSON object per line",
+                 content = @Content(mediaType = NdjsonResponseBody.MEDIA_TYPE_VALUE,
+                 schema = @Schema(implementation = JournalEntry.class)))
+    @Admission(Cost.EXPENSIVE)
+    @GetMapping(produces = NdjsonResponseBody.MEDIA_TYPE_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamJournalEntries(
+            @Parameter(description = "Filter by user ID") @RequestParam(required = false) String userId,
+            @Parameter(description = "Filter by tag") @RequestParam(required = false) String tag) {
+        
+        return ResponseEntity.ok()
+                .contentType(NdjsonResponseBody.MEDIA_TYPE)
+                .body(new NdjsonResponseBody(() -> journalEntryService.streamJournalEntries(userId, tag), objectMapper));
+    }
+
+    @Operation(summary = "Export a user's journal",
+               description = "Downloads all of the user's entries, newest first, one JSON object per line, as a "
+                       + "gzip-compressed file (format=jsonl) or a ZIP archive holding journal.jsonl (format=zip). "
+                       + "Streamed from the database cursor at a limited rate. To resume an interrupted download, "
+                       + "request it again with after set to the id of the last entry received; the gzip file "
+                       + "can be decompressed up to where it was cut off")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export streamed",
+                     content = { @Content(mediaType = "application/gzip"), @Content(mediaType = "application/zip") }),
+        @ApiResponse(responseCode = "400", description = "Unknown format, or no entry of the user with the id in after")
+    })
+    @Admission(Cost.EXPORT)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportJournal(
+            @Parameter(description = "User whose journal to export", required = true) @RequestParam String userId,
+            @Parameter(description = "'jsonl' (default) or 'zip'") @RequestParam(defaultValue = "jsonl") String format,
+            @Parameter(description = "Id of the last entry already received, to resume after it") @RequestParam(required = false) String after) {
+        
+        JournalExport.Format exportFormat = JournalExport.Format.of(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        PageCursor position;
+        try {
+            position = after != null ? journalEntryService.exportPositionAfter(userId, after) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(exportFormat.fileName).build().toString())
+                .body(new JournalExportResponseBody(
+                        () -> journalEntryService.streamJournalExport(userId, position),
+                        () -> new JournalExport(exportFormat, objectMapper, exportRate.toBytes())));
+    }
+
+    @Operation(summary = "Get journal statistics",
+               description = "Returns a user's entry count, tag frequencies, entries per day and per ISO week, "
+                       + "and current and longest daily streaks. Maintained as entries change, so this reads one "
+                       + "small document instead of the whole journal")
+    @ApiResponse(responseCode = "200", description = "Statistics of the user's journal",
+                 content = @Content(mediaType = "application/json",
+                 schema = @Schema(implementation = JournalStats.class)))
+    @Admission(Cost.EXPENSIVE)
+    @GetMapping("/stats")
+    public ResponseEntity<JournalStats> getJournalStats(
+            @Parameter(description = "User ID", required = true) @RequestParam String userId) {
+        
+        return ResponseEntity.ok(journalStatsService.getJournalStats(userId));
+    }
+
+    @Operation(summary = "Sync a user's journal",
+               description = "Returns the entries created or updated and the ids of entries deleted since the "
+                       + "change token, oldest change first. Start without a token, then send the returned 'next' "
+                       + "token each time; while 'more' is set, sync again right away. Changes from the last few "
+                       + "seconds may be sent twice. When 'reset' is set the token was too old: drop the local copy")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Changes since the token",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = SyncPage.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid token or limit")
+    })
+    @GetMapping("/sync")
+    public ResponseEntity<SyncPage> syncJournalEntries(
+            @Parameter(description = "User ID", required = true) @RequestParam String userId,
+            @Parameter(description = "Token returned as 'next' by the previous sync") @RequestParam(required = false) String since,
+            @Parameter(description = "Changes per page (default 200, max 1000)") @RequestParam(required = false) Integer limit) {
+        
+        try {
+            return ResponseEntity.ok(journalSyncService.sync(userId, since, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Push a user's changes",
+               description = "Streams server-sent events as the user's entries and profile change: 'entry' with the "
+                       + "entry as stored, 'entryDeleted' with its tombstone, 'profile' and 'profileDeleted'. "
+                       + "EventSource reconnects with Last-Event-ID and gets the changes it missed; 'reset' means "
+                       + "they are no longer all known, so delta-sync. Clients that fall behind are disconnected "
+                       + "and resume the same way. Needs MongoDB running as a replica set")
+    @ApiResponse(responseCode = "200", description = "Event stream of the user's changes",
+                 content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE))
+    @Admission(Cost.STREAM)
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJournalChanges(
+            @Parameter(description = "User ID", required = true) @RequestParam String userId,
+            @Parameter(description = "Id of the last event received, sent by EventSource when reconnecting")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        
+        // Times out after inecho.streaming.timeout; EventSource then reconnects and resumes
+        SseEmitter emitter = new SseEmitter();
+        JournalChangeHub.Subscription subscription = journalChangeHub.subscribe(userId, lastEventId,
+                change -> emitter.send(event(change)), emitter::complete);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return emitter;
+    }
+
+    @Operation(summary = "Get a journal entry by ID",
+               description = "Returns a journal entry based on its ID. The ETag is the entry's version; send it "
+                       + "back in If-None-Match to get 304 Not Modified while the entry is unchanged")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Journal entry found", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = JournalEntry.class))),
+        @ApiResponse(responseCode = "304", description = "Journal entry unchanged since the given ETag"),
         @ApiResponse(responseCode = "404", description = "Journal entry not found")
     })
     @GetMapping("/{id}")
@@ -72,38 +285,109 @@ public class JournalEntryController {
         
         Optional<JournalEntry> journalEntry = journalEntryService.getJournalEntryById(id);
         
-        return journalEntry.map(ResponseEntity::ok)
+        return journalEntry.map(entry -> ETags.revalidated(entry, ETags.of(entry)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @Operation(summary = "Create a new journal entry", description = "Creates a new journal entry and returns it")
-    @ApiResponse(responseCode = "201", description = "Journal entry created successfully", 
-                 content = @Content(mediaType = "application/json", 
-                 schema = @Schema(implementation = JournalEntry.class)))
+    @Operation(summary = "Create a new journal entry",
+               description = "Creates a new journal entry and returns it. An existing entry with the same ID is "
+                       + "never replaced; update it with PUT instead")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Journal entry created successfully", 
+                     content = @Content(mediaType = "application/json", 
+                     schema = @Schema(implementation = JournalEntry.class))),
+        @ApiResponse(responseCode = "409", description = "A journal entry with this ID already exists"),
+        @ApiResponse(responseCode = "503", description = "Too many entries waiting to be written, retry later")
+    })
     @PostMapping
     public ResponseEntity<JournalEntry> createJournalEntry(
             @Parameter(description = "Journal entry to create", required = true) @RequestBody JournalEntry journalEntry) {
         
-        JournalEntry createdEntry = journalEntryService.createJournalEntry(journalEntry);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdEntry);
+        try {
+            JournalEntry createdEntry = journalEntryService.createJournalEntry(journalEntry);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdEntry);
+        } catch (DataIntegrityViolationException e) {
+            // New entries are inserted, so an ID that's taken fails rather than overwriting its entry
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (CapacityExceededException e) {
+            // Only raised by the write batcher, when its queue stays full or a write waits too long
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+
+    @Operation(summary = "Import journal entries",
+               description = "Bulk-creates journal entries from a JSON array or newline-delimited JSON body. "
+                       + "Entries are validated one by one and written in batches; the result lists the entries "
+                       + "that could not be imported by their position in the request")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Import finished, possibly with per-entry failures",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = ImportResult.class))),
+        @ApiResponse(responseCode = "503", description = "Too many imports in progress, retry later")
+    })
+    @Admission(Cost.EXPENSIVE)
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_JSON_VALUE, NdjsonResponseBody.MEDIA_TYPE_VALUE })
+    public ResponseEntity<ImportResult> importJournalEntries(
+            @Parameter(description = "Assign every imported entry to this user") @RequestParam(required = false) String userId,
+            InputStream body) throws IOException {
+        
+        try {
+            return ResponseEntity.ok(journalImportService.importJournalEntries(body, userId));
+        } catch (CapacityExceededException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
     }
 
-    @Operation(summary = "Update a journal entry", description = "Updates an existing journal entry and returns it")
+    @Operation(summary = "Update a journal entry",
+               description = "Replaces the title, body and tags of an existing journal entry and returns it. "
+                       + "Send the version you last read to have the update rejected if the entry changed since")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Journal entry updated successfully", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = JournalEntry.class))),
-        @ApiResponse(responseCode = "404", description = "Journal entry not found")
+        @ApiResponse(responseCode = "404", description = "Journal entry not found"),
+        @ApiResponse(responseCode = "409", description = "Journal entry was modified after the given version")
     })
     @PutMapping("/{id}")
     public ResponseEntity<JournalEntry> updateJournalEntry(
             @Parameter(description = "Journal entry ID", required = true) @PathVariable String id,
             @Parameter(description = "Updated journal entry", required = true) @RequestBody JournalEntry journalEntry) {
         
-        Optional<JournalEntry> updatedEntry = journalEntryService.updateJournalEntry(id, journalEntry);
+        try {
+            Optional<JournalEntry> updatedEntry = journalEntryService.updateJournalEntry(id, journalEntry);
+            return updatedEntry.map(entry -> ETags.revalidated(entry, ETags.of(entry)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @Operation(summary = "Partially update a journal entry",
+               description = "Changes only the title, body and tags present in the request and returns the entry. "
+                       + "Send the version you last read to have the update rejected if the entry changed since")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Journal entry updated successfully",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = JournalEntry.class))),
+        @ApiResponse(responseCode = "404", description = "Journal entry not found"),
+        @ApiResponse(responseCode = "409", description = "Journal entry was modified after the given version")
+    })
+    @PatchMapping("/{id}")
+    public ResponseEntity<JournalEntry> patchJournalEntry(
+            @Parameter(description = "Journal entry ID", required = true) @PathVariable String id,
+            @Parameter(description = "Fields to change", required = true) @RequestBody JournalEntry changes) {
         
-        return updatedEntry.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+        try {
+            Optional<JournalEntry> updatedEntry = journalEntryService.patchJournalEntry(id, changes);
+            return updatedEntry.map(entry -> ETags.revalidated(entry, ETags.of(entry)))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     @Operation(summary = "Delete a journal entry", description = "Deletes a journal entry by its ID")
@@ -120,13 +404,59 @@ public class JournalEntryController {
         return deleted ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 
-    @Operation(summary = "Search journal entries", description = "Searches for journal entries containing the specified text")
-    @ApiResponse(responseCode = "200", description = "Search results")
+    @Operation(summary = "Search journal entries",
+               description = "Full-text search over title, body and tags, most relevant first. Returns a list of "
+                       + "the best 1000 matches; when cursor or limit is given, returns one page together with the "
+                       + "cursor of the next page")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Search results"),
+        @ApiResponse(responseCode = "400", description = "Blank query or invalid cursor")
+    })
+    @Admission(Cost.EXPENSIVE)
     @GetMapping("/search")
-    public ResponseEntity<List<JournalEntry>> searchJournalEntries(
-            @Parameter(description = "Text to search for", required = true) @RequestParam String query) {
+    public ResponseEntity<?> searchJournalEntries(
+            @Parameter(description = "Text to search for", required = true) @RequestParam String query,
+            @Parameter(description = "Only search this user's entries") @RequestParam(required = false) String userId,
+            @Parameter(description = "Cursor returned as 'next' by the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (default 20, max 100)") @RequestParam(required = false) Integer limit) {
         
-        List<JournalEntry> entries = journalEntryService.searchJournalEntries(query);
-        return ResponseEntity.ok(entries);
+        try {
+            if (cursor != null || limit != null) {
+                return ResponseEntity.ok(journalEntryService.searchJournalEntries(query, userId, cursor, limit));
+            }
+            return ResponseEntity.ok(journalEntryService.searchJournalEntries(query, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get related journal entries",
+               description = "Summaries of the same user's entries most similar to this one by title, body and tags, most similar first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Related entries, possibly none"),
+        @ApiResponse(responseCode = "400", description = "Invalid limit"),
+        @ApiResponse(responseCode = "404", description = "Journal entry not found")
+    })
+    @Admission(Cost.EXPENSIVE)
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<JournalEntrySummary>> getRelatedJournalEntries(
+            @Parameter(description = "Journal entry ID", required = true) @PathVariable String id,
+            @Parameter(description = "Number of entries (default 5, max 20)") @RequestParam(required = false) Integer limit) {
+
+        try {
+            return journalEntryService.getRelatedEntries(id, limit)
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(JournalChange change) {
+        if (JournalChange.HEARTBEAT.equals(change.getType())) {
+            return SseEmitter.event().comment(JournalChange.HEARTBEAT);
+        }
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(change.getType()).data(change.getData());
+        return change.getId() != null ? event.id(change.getId()) : event;
     }
 }
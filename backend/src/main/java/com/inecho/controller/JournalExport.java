@@ -0,0 +1,142 @@
+package com.inecho.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.inecho.model.JournalEntry;
+
+// One journal export being encoded as gzipped JSON lines or a ZIP of journal.jsonl, for either stack, in
+// constant memory. Sync flushes keep a cut-off download readable up to its last whole entry.
+final class JournalExport implements AutoCloseable {
+
+    enum Format {
+
+        JSONL(MediaType.parseMediaType("application/gzip"), "jsonl.gz"),
+        ZIP(MediaType.parseMediaType("application/zip"), "zip");
+
+        final MediaType mediaType;
+        final String fileName;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.fileName = "journal." + extension;
+        }
+
+        // The format of the given name, case-insensitive, or null when there's none
+        static Format of(String name) {
+            for (Format format : values()) {
+                if (format.name().equals(name.toUpperCase(Locale.ROOT))) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final String ZIP_ENTRY = "journal.jsonl";
+
+    // Entries per sync flush (and per chunk the reactive controller sends)
+    static final int FLUSH_EVERY = 64;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+    private final DeflaterOutputStream out;
+    private final ObjectWriter writer;
+    private final double bytesPerSecond;
+    private final LongSupplier clock;
+    private final long started;
+    private long written;
+    private int entries;
+
+    JournalExport(Format format, ObjectMapper objectMapper, long bytesPerSecond) {
+        this(format, objectMapper, bytesPerSecond, System::nanoTime);
+    }
+
+    JournalExport(Format format, ObjectMapper objectMapper, long bytesPerSecond, LongSupplier clock) {
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.bytesPerSecond = bytesPerSecond;
+        this.clock = clock;
+        this.started = clock.getAsLong();
+        try {
+            if (format == Format.ZIP) {
+                ZipOutputStream zip = new ZipOutputStream(buffer);
+                zip.putNextEntry(new ZipEntry(ZIP_ENTRY));
+                out = zip;
+            } else {
+                out = new GZIPOutputStream(buffer, 8192, true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Encodes one entry; true when it completed a batch and what is buffered should be sent on now
+    boolean write(JournalEntry entry) {
+        try {
+            byte[] line = writer.writeValueAsBytes(entry);
+            out.write(line);
+            out.write('\n');
+            written += line.length + 1;
+            if (++entries % FLUSH_EVERY == 0) {
+                out.flush();
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Ends the export; what's left is then in the buffer
+    void finish() {
+        try {
+            if (out instanceof ZipOutputStream zip) {
+                zip.closeEntry();
+            }
+            out.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The compressed bytes produced since the last drain
+    byte[] drain() {
+        byte[] bytes = buffer.toByteArray();
+        buffer.reset();
+        return bytes;
+    }
+
+    void drainTo(OutputStream target) throws IOException {
+        buffer.writeTo(target);
+        buffer.reset();
+    }
+
+    // Nanoseconds to wait before going on to stay within the rate; 0 when the export is behind it
+    long pause() {
+        long due = started + (long) (written / bytesPerSecond * TimeUnit.SECONDS.toNanos(1));
+        return Math.max(0, due - clock.getAsLong());
+    }
+
+    // Releases the compressor, also when the export was abandoned
+    @Override
+    public void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.inecho.controller;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.inecho.model.JournalEntry;
+
+// Writes a journal export batch by batch as the cursor is read, sleeping between batches while the export is
+// ahead of its rate. The stream is opened lazily on the async writer thread and closed when writing ends.
+class JournalExportResponseBody implements StreamingResponseBody {
+
+    private final Supplier<? extends Stream<JournalEntry>> source;
+    private final Supplier<JournalExport> exports;
+
+    JournalExportResponseBody(Supplier<? extends Stream<JournalEntry>> source, Supplier<JournalExport> exports) {
+        this.source = source;
+        this.exports = exports;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (JournalExport export = exports.get(); Stream<JournalEntry> entries = source.get()) {
+            Iterator<JournalEntry> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                if (export.write(iterator.next())) {
+                    export.drainTo(out);
+                    out.flush();
+                    pace(export.pause());
+                }
+            }
+            export.finish();
+            export.drainTo(out);
+        }
+        out.flush();
+    }
+
+    private static void pace(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        }
+    }
+}
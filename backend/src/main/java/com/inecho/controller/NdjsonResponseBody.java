@@ -0,0 +1,48 @@
+package com.inecho.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+// Writes a stream of objects as newline-delimited JSON, one compact object per line,
+// flushing after every line so clients see the first entries without waiting for the rest
+class NdjsonResponseBody implements StreamingResponseBody {
+
+    static final String MEDIA_TYPE_VALUE = "application/x-ndjson";
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private final Supplier<? extends Stream<?>> source;
+    private final ObjectWriter writer;
+
+    // The stream is opened lazily on the async writer thread and closed when writing ends
+    NdjsonResponseBody(Supplier<? extends Stream<?>> source, ObjectMapper objectMapper) {
+        this.source = source;
+        this.writer = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        JsonGenerator generator = writer.createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        try (Stream<?> items = source.get()) {
+            Iterator<?> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                generator.flush();
+            }
+        }
+        generator.flush();
+    }
+}
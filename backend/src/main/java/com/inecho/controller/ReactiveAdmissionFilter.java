@@ -0,0 +1,64 @@
+package com.inecho.controller;
+
+import java.net.InetSocketAddress;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.inecho.service.AdmissionControl;
+import com.inecho.service.AdmissionControl.Cost;
+import com.inecho.service.AdmissionControl.Rejection;
+
+import reactor.core.publisher.Mono;
+
+// AdmissionInterceptor for the 'reactive' profile. There are no request threads to protect here, but the
+// bulkheads still bound the database connections and memory expensive requests hold, and a slot is only
+// released once the response has been written or the client went away.
+@Component
+@Profile("reactive")
+public class ReactiveAdmissionFilter implements WebFilter {
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!request.getPath().value().startsWith("/api/")) {
+            return chain.filter(exchange);
+        }
+        return handlerMapping.getHandler(exchange)
+                .map(handler -> handler instanceof HandlerMethod method
+                        ? AdmissionInterceptor.costOf(method, request.getQueryParams()::containsKey)
+                        : Cost.CHEAP)
+                .defaultIfEmpty(Cost.CHEAP)
+                .flatMap(cost -> {
+                    Rejection rejection = admissionControl.admit(address(request),
+                            request.getQueryParams().getFirst("userId"), cost);
+                    if (rejection != null) {
+                        ServerHttpResponse response = exchange.getResponse();
+                        response.setStatusCode(rejection.status());
+                        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(rejection.retryAfterSeconds()));
+                        return response.setComplete();
+                    }
+                    return chain.filter(exchange).doFinally(signal -> admissionControl.release(cost));
+                });
+    }
+
+    private static String address(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        return remote != null ? remote.getHostString() : null;
+    }
+}
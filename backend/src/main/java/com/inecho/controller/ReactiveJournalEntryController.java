@@ -0,0 +1,290 @@
+package com.inecho.controller;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.inecho.model.CursorPage;
+import com.inecho.model.ImportResult;
+import com.inecho.model.JournalChange;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.JournalStats;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncPage;
+import com.inecho.model.Versioned;
+import com.inecho.service.AdmissionControl.Cost;
+import com.inecho.service.CapacityExceededException;
+import com.inecho.service.JournalChangeHub;
+import com.inecho.service.ReactiveJournalEntryService;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// WebFlux version of JournalEntryController with the same request and response contract, used by the
+// 'reactive' profile. See JournalEntryController for the API documentation.
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/journal")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ReactiveJournalEntryController {
+
+    @Autowired
+    private ReactiveJournalEntryService journalEntryService;
+
+    @Autowired
+    private JournalChangeHub journalChangeHub;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${inecho.changes.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${inecho.export.rate:4MB}")
+    private DataSize exportRate;
+
+    @Admission(value = Cost.EXPENSIVE, cheapWith = { "userId", "cursor", "limit" })
+    @GetMapping
+    public Mono<ResponseEntity<?>> getAllJournalEntries(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields) {
+        
+        if (!JournalEntryController.isListingView(view, fields)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        boolean summary = JournalEntryController.SUMMARY_VIEW.equals(view);
+
+        if (cursor != null || limit != null) {
+            Mono<? extends CursorPage<? extends Versioned>> page = summary
+                    ? journalEntryService.getJournalEntrySummariesPage(userId, tag, cursor, limit)
+                    : journalEntryService.getJournalEntriesPage(userId, tag, cursor, limit);
+            return page
+                    .<ResponseEntity<?>>map(fetched -> ETags.revalidated(fetched, ETags.of(fetched)))
+                    .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+        }
+        // Encoded as a JSON array while the cursor is read, without collecting the entries first, so unlike the
+        // blocking controller unpaged listings carry no ETag
+        if (summary) {
+            return Mono.just(ResponseEntity.ok(journalEntryService.getJournalEntrySummaries(userId, tag)));
+        }
+        return Mono.just(ResponseEntity.ok(journalEntryService.getJournalEntries(userId, tag)));
+    }
+
+    @Admission(Cost.EXPENSIVE)
+    @GetMapping(produces = NdjsonResponseBody.MEDIA_TYPE_VALUE)
+    public Flux<JournalEntry> streamJournalEntries(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String tag) {
+        
+        return journalEntryService.getJournalEntries(userId, tag);
+    }
+
+    @Admission(Cost.EXPORT)
+    @GetMapping("/export")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportJournal(
+            @RequestParam String userId,
+            @RequestParam(defaultValue = "jsonl") String format,
+            @RequestParam(required = false) String after) {
+        
+        JournalExport.Format exportFormat = JournalExport.Format.of(format);
+        if (exportFormat == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        Mono<Optional<PageCursor>> position = after != null
+                ? journalEntryService.exportPositionAfter(userId, after).map(Optional::of)
+                : Mono.just(Optional.empty());
+        return position
+                .map(from -> ResponseEntity.ok()
+                        .contentType(exportFormat.mediaType)
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                ContentDisposition.attachment().filename(exportFormat.fileName).build().toString())
+                        .body(export(journalEntryService.getJournalExport(userId, from.orElse(null)), exportFormat)))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    // Encodes the entries as they arrive and sends each batch once complete, delayed while the export is
+    // ahead of its rate. Demand only reaches the cursor as batches are sent.
+    private Flux<DataBuffer> export(Flux<JournalEntry> entries, JournalExport.Format format) {
+        return Flux.using(
+                () -> new JournalExport(format, objectMapper, exportRate.toBytes()),
+                export -> entries
+                        .concatMap(entry -> {
+                            if (!export.write(entry)) {
+                                return Mono.empty();
+                            }
+                            Mono<DataBuffer> batch = Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(export.drain()));
+                            long pause = export.pause();
+                            return pause > 0 ? batch.delayElement(Duration.ofNanos(pause)) : batch;
+                        })
+                        .concatWith(Mono.fromSupplier(() -> {
+                            export.finish();
+                            return DefaultDataBufferFactory.sharedInstance.wrap(export.drain());
+                        })),
+                JournalExport::close);
+    }
+
+    @Admission(Cost.EXPENSIVE)
+    @GetMapping("/stats")
+    public Mono<JournalStats> getJournalStats(@RequestParam String userId) {
+        return journalEntryService.getJournalStats(userId);
+    }
+
+    @GetMapping("/sync")
+    public Mono<ResponseEntity<SyncPage>> syncJournalEntries(
+            @RequestParam String userId,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        
+        return journalEntryService.sync(userId, since, limit)
+                .map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @Admission(Cost.STREAM)
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamJournalChanges(
+            @RequestParam String userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        
+        // The hub hands changes over without waiting, so the per-subscriber bound is applied here: a client
+        // that falls further behind is disconnected and resumes with Last-Event-ID
+        return Flux.<ServerSentEvent<Object>>create(sink -> {
+                    JournalChangeHub.Subscription subscription = journalChangeHub.subscribe(userId, lastEventId,
+                            change -> sink.next(event(change)), sink::complete);
+                    sink.onDispose(subscription::close);
+                })
+                .onBackpressureBuffer(subscriberBuffer)
+                .onErrorResume(Exceptions::isOverflow, e -> Flux.empty());
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<JournalEntry>> getJournalEntryById(@PathVariable String id) {
+        return journalEntryService.getJournalEntryById(id)
+                .map(entry -> ETags.revalidated(entry, ETags.of(entry)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<JournalEntry>> createJournalEntry(@RequestBody JournalEntry journalEntry) {
+        return journalEntryService.createJournalEntry(journalEntry)
+                .map(createdEntry -> ResponseEntity.status(HttpStatus.CREATED).body(createdEntry))
+                .onErrorResume(DataIntegrityViolationException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+    }
+
+    @Admission(Cost.EXPENSIVE)
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_JSON_VALUE, NdjsonResponseBody.MEDIA_TYPE_VALUE })
+    public Mono<ResponseEntity<ImportResult>> importJournalEntries(
+            @RequestParam(required = false) String userId,
+            @RequestBody Flux<JournalEntry> body) {
+        
+        return journalEntryService.importJournalEntries(body, userId)
+                .map(ResponseEntity::ok)
+                .onErrorResume(CapacityExceededException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "30")
+                                .build()));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<JournalEntry>> updateJournalEntry(
+            @PathVariable String id,
+            @RequestBody JournalEntry journalEntry) {
+        
+        return updatedOrNotFound(journalEntryService.updateJournalEntry(id, journalEntry));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<JournalEntry>> patchJournalEntry(
+            @PathVariable String id,
+            @RequestBody JournalEntry changes) {
+        
+        return updatedOrNotFound(journalEntryService.patchJournalEntry(id, changes));
+    }
+
+    private static Mono<ResponseEntity<JournalEntry>> updatedOrNotFound(Mono<JournalEntry> updatedEntry) {
+        return updatedEntry
+                .map(entry -> ETags.revalidated(entry, ETags.of(entry)))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(OptimisticLockingFailureException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).build()));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteJournalEntry(@PathVariable String id) {
+        return journalEntryService.deleteJournalEntry(id)
+                .map(deleted -> deleted
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    @Admission(Cost.EXPENSIVE)
+    @GetMapping("/search")
+    public Mono<ResponseEntity<?>> searchJournalEntries(
+            @RequestParam String query,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        
+        Mono<?> results = cursor != null || limit != null
+                ? journalEntryService.searchJournalEntries(query, userId, cursor, limit)
+                : journalEntryService.searchJournalEntries(query, userId);
+        return results
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    @Admission(Cost.EXPENSIVE)
+    @GetMapping("/{id}/related")
+    public Mono<ResponseEntity<List<JournalEntrySummary>>> getRelatedJournalEntries(
+            @PathVariable String id,
+            @RequestParam(required = false) Integer limit) {
+
+        return journalEntryService.getRelatedEntries(id, limit)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest().build()));
+    }
+
+    private static ServerSentEvent<Object> event(JournalChange change) {
+        if (JournalChange.HEARTBEAT.equals(change.getType())) {
+            return ServerSentEvent.builder().comment(JournalChange.HEARTBEAT).build();
+        }
+        return ServerSentEvent.builder().id(change.getId()).event(change.getType()).data(change.getData()).build();
+    }
+}
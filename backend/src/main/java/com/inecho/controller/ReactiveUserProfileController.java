@@ -0,0 +1,136 @@
+package com.inecho.controller;
+
+import java.net.URI;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.inecho.controller.UserProfileController.ApiErrorResponse;
+import com.inecho.controller.UserProfileController.ApiSuccessResponse;
+import com.inecho.model.UserProfile;
+import com.inecho.service.AdmissionControl.Cost;
+import com.inecho.service.ReactiveUserProfileService;
+
+import reactor.core.publisher.Mono;
+
+// WebFlux version of UserProfileController with the same request and response contract, used by the
+// 'reactive' profile. See UserProfileController for the API documentation.
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+@CrossOrigin(origins = "*", allowedHeaders = "*") // Configured for development
+public class ReactiveUserProfileController {
+
+    @Autowired
+    private ReactiveUserProfileService service;
+
+    @GetMapping("/userProfiles/{id}")
+    public Mono<ResponseEntity<?>> getUserProfileById(@PathVariable String id) {
+        return service.getUserProfileById(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(notFound(id));
+    }
+
+    @PostMapping("/userProfiles")
+    public Mono<ResponseEntity<?>> createUserProfile(@RequestBody UserProfile userProfile) {
+        return service.saveUserProfile(userProfile)
+                .<ResponseEntity<?>>map(savedProfile -> ResponseEntity.status(HttpStatus.CREATED).body(savedProfile))
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ApiErrorResponse("Profile already exists: " + e.getMessage(), HttpStatus.CONFLICT))))
+                .onErrorResume(e -> Mono.just(serverError("Error creating profile: ", e)));
+    }
+
+    @PutMapping("/userProfiles/{id}")
+    public Mono<ResponseEntity<?>> updateUserProfile(
+            @PathVariable String id,
+            @RequestBody UserProfile userProfile) {
+        return updatedOrNotFound(id, service.updateUserProfile(id, userProfile));
+    }
+
+    @PatchMapping("/userProfiles/{id}")
+    public Mono<ResponseEntity<?>> patchUserProfile(
+            @PathVariable String id,
+            @RequestBody UserProfile changes) {
+        return updatedOrNotFound(id, service.patchUserProfile(id, changes));
+    }
+
+    @Admission(value = Cost.EXPENSIVE, cheapWith = { "cursor", "limit" })
+    @GetMapping("/userProfiles")
+    public Mono<ResponseEntity<?>> getAllUserProfiles(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        if (cursor != null || limit != null) {
+            return service.getUserProfilesPage(cursor, limit)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body(new ApiErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST))));
+        }
+        return Mono.just(ResponseEntity.ok(service.getAllUserProfiles()));
+    }
+
+    @DeleteMapping("/userProfiles/{id}")
+    public Mono<ResponseEntity<?>> deleteUserProfile(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean cascade) {
+        if (cascade) {
+            return service.deleteUserProfileCascade(id)
+                    .<ResponseEntity<?>>map(deletion -> ResponseEntity.accepted()
+                            .location(URI.create("/api/userProfiles/" + id + "/deletion"))
+                            .body(deletion))
+                    .onErrorResume(e -> Mono.just(serverError("Error deleting profile: ", e)));
+        }
+        return service.deleteUserProfile(id)
+                .then(Mono.<ResponseEntity<?>>fromSupplier(() ->
+                        ResponseEntity.ok(new ApiSuccessResponse("Profile deleted successfully", HttpStatus.OK))))
+                .onErrorResume(e -> Mono.just(serverError("Error deleting profile: ", e)));
+    }
+
+    @GetMapping("/userProfiles/{id}/deletion")
+    public Mono<ResponseEntity<?>> getCascadeDeletion(@PathVariable String id) {
+        return service.getCascadeDeletion(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiErrorResponse("No cascade deletion found for ID: " + id, HttpStatus.NOT_FOUND)));
+    }
+
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<ApiSuccessResponse>> logoutUser() {
+        return Mono.just(ResponseEntity.ok(new ApiSuccessResponse("Logout successful", HttpStatus.OK)));
+    }
+
+    private static ResponseEntity<?> notFound(String id) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new ApiErrorResponse("Profile not found for ID: " + id, HttpStatus.NOT_FOUND));
+    }
+
+    private static Mono<ResponseEntity<?>> updatedOrNotFound(String id, Mono<UserProfile> updatedProfile) {
+        return updatedProfile
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(notFound(id))
+                .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ApiErrorResponse(e.getMessage(), HttpStatus.CONFLICT))))
+                .onErrorResume(DataIntegrityViolationException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ApiErrorResponse("Email already in use: " + e.getMessage(), HttpStatus.CONFLICT))))
+                .onErrorResume(e -> Mono.just(serverError("Error updating profile: ", e)));
+    }
+
+    private static ResponseEntity<?> serverError(String prefix, Throwable e) {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ApiErrorResponse(prefix + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+}
@@ -1,22 +1,30 @@
 package com.inecho.controller;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.inecho.model.CascadeDeletion;
 import com.inecho.model.UserProfile;
+import com.inecho.service.AdmissionControl.Cost;
 import com.inecho.service.UserProfileService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -28,6 +36,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 @CrossOrigin(origins = "*", allowedHeaders = "*") // Configured for development
 @Tag(name = "User Profile", description = "User Profile Management API")
@@ -60,6 +69,9 @@ public class UserProfileController {
         @ApiResponse(responseCode = "201", description = "Profile created", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = UserProfile.class))),
+        @ApiResponse(responseCode = "409", description = "A profile with this ID or email already exists",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = ApiErrorResponse.class))),
         @ApiResponse(responseCode = "500", description = "Internal server error", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = ApiErrorResponse.class)))
@@ -70,13 +82,18 @@ public class UserProfileController {
         try {
             UserProfile savedProfile = service.saveUserProfile(userProfile);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedProfile);
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiErrorResponse("Profile already exists: " + e.getMessage(), HttpStatus.CONFLICT));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new ApiErrorResponse("Error creating profile: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR));
         }
     }
 
-    @Operation(summary = "Update an existing user profile", description = "Updates a user profile and returns the updated profile")
+    @Operation(summary = "Update an existing user profile",
+               description = "Replaces the name and email of a user profile and returns the updated profile. "
+                       + "Send the version you last read to have the update rejected if the profile changed since")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Profile updated", 
                      content = @Content(mediaType = "application/json", 
@@ -84,6 +101,10 @@ public class UserProfileController {
         @ApiResponse(responseCode = "404", description = "Profile not found", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = ApiErrorResponse.class))),
+        @ApiResponse(responseCode = "409", description = "Profile was modified after the given version, or the email "
+                     + "belongs to another profile",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = ApiErrorResponse.class))),
         @ApiResponse(responseCode = "500", description = "Internal server error", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = ApiErrorResponse.class)))
@@ -93,43 +114,115 @@ public class UserProfileController {
             @Parameter(description = "User profile ID", required = true) @PathVariable String id,
             @Parameter(description = "Updated user profile", required = true) @RequestBody UserProfile userProfile) {
         try {
-            Optional<UserProfile> existingProfile = service.getUserProfileById(id);
-            if (!existingProfile.isPresent()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                        .body(new ApiErrorResponse("Profile not found for ID: " + id, HttpStatus.NOT_FOUND));
-            }
-            
-            userProfile.setId(id);
-            UserProfile updatedProfile = service.saveUserProfile(userProfile);
-            return ResponseEntity.ok(updatedProfile);
+            return updatedOrNotFound(id, service.updateUserProfile(id, userProfile));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiErrorResponse(e.getMessage(), HttpStatus.CONFLICT));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiErrorResponse("Email already in use: " + e.getMessage(), HttpStatus.CONFLICT));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new ApiErrorResponse("Error updating profile: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR));
         }
     }
 
-    @Operation(summary = "Get all user profiles", description = "Returns a list of all user profiles")
-    @ApiResponse(responseCode = "200", description = "List of profiles", 
-                 content = @Content(mediaType = "application/json", 
-                 schema = @Schema(implementation = List.class)))
+    @Operation(summary = "Partially update a user profile",
+               description = "Changes only the name and email present in the request and returns the updated profile. "
+                       + "Send the version you last read to have the update rejected if the profile changed since")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Profile updated",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = UserProfile.class))),
+        @ApiResponse(responseCode = "404", description = "Profile not found",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = ApiErrorResponse.class))),
+        @ApiResponse(responseCode = "409", description = "Profile was modified after the given version, or the email "
+                     + "belongs to another profile",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = ApiErrorResponse.class))),
+        @ApiResponse(responseCode = "500", description = "Internal server error",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = ApiErrorResponse.class)))
+    })
+    @PatchMapping("/userProfiles/{id}")
+    public ResponseEntity<?> patchUserProfile(
+            @Parameter(description = "User profile ID", required = true) @PathVariable String id,
+            @Parameter(description = "Fields to change", required = true) @RequestBody UserProfile changes) {
+        try {
+            return updatedOrNotFound(id, service.patchUserProfile(id, changes));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiErrorResponse(e.getMessage(), HttpStatus.CONFLICT));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiErrorResponse("Email already in use: " + e.getMessage(), HttpStatus.CONFLICT));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiErrorResponse("Error updating profile: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR));
+        }
+    }
+
+    private static ResponseEntity<?> updatedOrNotFound(String id, Optional<UserProfile> updatedProfile) {
+        return updatedProfile.isPresent()
+                ? ResponseEntity.ok(updatedProfile.get())
+                : ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiErrorResponse("Profile not found for ID: " + id, HttpStatus.NOT_FOUND));
+    }
+
+    @Operation(summary = "Get all user profiles",
+               description = "Returns a list of all user profiles. When cursor or limit is given, returns one page "
+                       + "in ID order together with the cursor of the next page")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "List of profiles", 
+                     content = @Content(mediaType = "application/json", 
+                     schema = @Schema(implementation = List.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or limit", 
+                     content = @Content(mediaType = "application/json", 
+                     schema = @Schema(implementation = ApiErrorResponse.class)))
+    })
+    @Admission(value = Cost.EXPENSIVE, cheapWith = { "cursor", "limit" })
     @GetMapping("/userProfiles")
-    public ResponseEntity<List<UserProfile>> getAllUserProfiles() {
+    public ResponseEntity<?> getAllUserProfiles(
+            @Parameter(description = "Cursor returned as 'next' by the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (default 20, max 100)") @RequestParam(required = false) Integer limit) {
+        if (cursor != null || limit != null) {
+            try {
+                return ResponseEntity.ok(service.getUserProfilesPage(cursor, limit));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new ApiErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST));
+            }
+        }
         return ResponseEntity.ok(service.getAllUserProfiles());
     }
 
-    @Operation(summary = "Delete a user profile", description = "Deletes a user profile by ID")
+    @Operation(summary = "Delete a user profile",
+               description = "Deletes a user profile by ID. With cascade, the user's journal entries are deleted "
+                       + "in the background as well; poll the returned location for progress. Progress is kept by "
+                       + "the instance running the deletion; repeating the delete is safe")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Profile deleted", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = ApiSuccessResponse.class))),
+        @ApiResponse(responseCode = "202", description = "Profile deleted, journal entries are being deleted",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = CascadeDeletion.class))),
         @ApiResponse(responseCode = "500", description = "Internal server error", 
                      content = @Content(mediaType = "application/json", 
                      schema = @Schema(implementation = ApiErrorResponse.class)))
     })
     @DeleteMapping("/userProfiles/{id}")
     public ResponseEntity<?> deleteUserProfile(
-            @Parameter(description = "User profile ID to delete", required = true) @PathVariable String id) {
+            @Parameter(description = "User profile ID to delete", required = true) @PathVariable String id,
+            @Parameter(description = "Also delete the user's journal entries") @RequestParam(defaultValue = "false") boolean cascade) {
         try {
+            if (cascade) {
+                CascadeDeletion deletion = service.deleteUserProfileCascade(id);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/userProfiles/" + id + "/deletion"))
+                        .body(deletion);
+            }
             service.deleteUserProfile(id);
             return ResponseEntity.ok(new ApiSuccessResponse("Profile deleted successfully", HttpStatus.OK));
         } catch (Exception e) {
@@ -138,6 +231,27 @@ public class UserProfileController {
         }
     }
 
+    @Operation(summary = "Get cascade deletion progress",
+               description = "Returns the progress of deleting a user's journal entries after a cascading profile "
+                       + "delete handled by this instance")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Deletion progress",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = CascadeDeletion.class))),
+        @ApiResponse(responseCode = "404", description = "No recent cascade deletion for this user on this instance",
+                     content = @Content(mediaType = "application/json",
+                     schema = @Schema(implementation = ApiErrorResponse.class)))
+    })
+    @GetMapping("/userProfiles/{id}/deletion")
+    public ResponseEntity<?> getCascadeDeletion(
+            @Parameter(description = "User profile ID", required = true) @PathVariable String id) {
+        Optional<CascadeDeletion> deletion = service.getCascadeDeletion(id);
+        return deletion.isPresent()
+                ? ResponseEntity.ok(deletion.get())
+                : ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiErrorResponse("No cascade deletion found for ID: " + id, HttpStatus.NOT_FOUND));
+    }
+
     @Operation(summary = "Logout user", description = "Logs out the current user")
     @ApiResponse(responseCode = "200", description = "Logout successful", 
                  content = @Content(mediaType = "application/json", 
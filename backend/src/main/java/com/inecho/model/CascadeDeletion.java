@@ -0,0 +1,48 @@
+package com.inecho.model;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Progress of removing a deleted user's journal entries in the background
+@Data
+@NoArgsConstructor
+public class CascadeDeletion {
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    private String userId;
+
+    // Written by the deleting thread, read by status requests
+    private volatile State state = State.RUNNING;
+
+    private volatile long deletedEntries;
+
+    private LocalDateTime startedAt;
+
+    private volatile LocalDateTime finishedAt;
+
+    private volatile String error;  // Reason the deletion stopped, when FAILED
+
+    public CascadeDeletion(String userId) {
+        this.userId = userId;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    // Record a deleted batch; only called from the single thread doing the deletion
+    public void addDeleted(int count) {
+        deletedEntries += count;
+    }
+
+    public void complete() {
+        finishedAt = LocalDateTime.now();
+        state = State.COMPLETED;
+    }
+
+    public void fail(String reason) {
+        error = reason;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+}
@@ -0,0 +1,58 @@
+package com.inecho.model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A journal entry body as read from the database in compressed form (see CompressedBodyConverter). It is
+ * only inflated the first time the text is asked for, so entries read for anything but their body never
+ * pay for it, and an entry written back unchanged stores the same document without compressing it again.
+ */
+public final class CompressedBody {
+
+    private final Object stored;
+    private final byte[] deflated;
+    private volatile String text;
+
+    public CompressedBody(Object stored, byte[] deflated) {
+        this.stored = stored;
+        this.deflated = deflated;
+    }
+
+    // The value this body was read from, to write back as it is
+    public Object stored() {
+        return stored;
+    }
+
+    public String text() {
+        String inflated = text;
+        if (inflated == null) {
+            inflated = new String(inflate(deflated), StandardCharsets.UTF_8);
+            text = inflated;
+        }
+        return inflated;
+    }
+
+    private static byte[] inflate(byte[] deflated) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(deflated.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Truncated compressed body");
+                }
+                out.write(buffer, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed body", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.inecho.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ImportResult {
+
+    private int received;  // Items read from the request, valid or not
+
+    private int inserted;
+
+    private int failed;
+
+    private boolean aborted;  // True when the input stopped being readable and the rest was skipped
+
+    private List<Failure> failures = new ArrayList<>();  // Capped; see failed for the full count
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+
+        private int index;  // Position of the item in the request, starting at 0
+
+        private String message;
+    }
+}
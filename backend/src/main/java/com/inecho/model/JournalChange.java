@@ -0,0 +1,41 @@
+package com.inecho.model;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A change pushed to the subscribers of a user, sent as one server-sent event: {@code type} is the event
+ * name, {@code id} the event id and {@code data} its JSON payload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalChange {
+
+    public static final String ENTRY = "entry";  // data: the journal entry as stored after the change
+    public static final String ENTRY_DELETED = "entryDeleted";  // data: the entry's tombstone
+    public static final String PROFILE = "profile";  // data: the user's profile as stored after the change
+    public static final String PROFILE_DELETED = "profileDeleted";  // data: {"id": the profile id}
+    public static final String RESET = "reset";  // Changes may have been missed; delta-sync to catch up
+    public static final String HEARTBEAT = "heartbeat";  // Keeps idle connections open; sent as a comment
+
+    private String id;  // Change stream resume token; clients send it back as Last-Event-ID when reconnecting
+
+    private String type;
+
+    private String userId;  // The user whose subscribers get the change
+
+    private Object data;
+
+    public static JournalChange reset(String userId) {
+        // EventSource only dispatches events that carry data
+        return new JournalChange(null, RESET, userId, Map.of());
+    }
+
+    public static JournalChange heartbeat() {
+        return new JournalChange(null, HEARTBEAT, null, null);
+    }
+}
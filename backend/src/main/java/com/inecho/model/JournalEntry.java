@@ -1,34 +1,107 @@
 package com.inecho.model;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Document(collection = "journalEntries")
+@CompoundIndexes({
+    // Per-user listings and keyset pages, newest first
+    @CompoundIndex(name = "userId_date", def = "{'userId': 1, 'date': -1, '_id': -1}"),
+    // Per-user tag filters (multikey on tags)
+    @CompoundIndex(name = "userId_tags_date", def = "{'userId': 1, 'tags': 1, 'date': -1, '_id': -1}"),
+    // Tag filters across users (multikey on tags)
+    @CompoundIndex(name = "tags_date", def = "{'tags': 1, 'date': -1, '_id': -1}"),
+    // Unfiltered keyset pages
+    @CompoundIndex(name = "date", def = "{'date': -1, '_id': -1}"),
+    // Delta sync: a user's changes in modification order
+    @CompoundIndex(name = "userId_modSeq", def = "{'userId': 1, 'modSeq': 1, '_id': 1}")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class JournalEntry {
+public class JournalEntry implements Versioned {
 
     @Id
     private String id;
     
+    @TextIndexed(weight = 3)
     private String title;
     
-    private String body;
+    @TextIndexed
+    private Object body;  // The text, or a CompressedBody read from the database until written again
     
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime date;
     
+    @TextIndexed(weight = 2)
     private List<String> tags;
     
     private String userId;  // Reference to the user who created this entry
-}
\ No newline at end of file
+
+    @Version
+    private Long version;  // Incremented on every update; send it back to reject conflicting edits
+
+    @JsonInclude(Include.NON_NULL)
+    private Long modSeq;  // Modification sequence, assigned by the server on every write; orders delta sync
+
+    @TextScore
+    @JsonInclude(Include.NON_NULL)
+    private Float score;  // Search relevance, only populated on search results
+
+    // The body's text, inflated on first use if it was read compressed
+    public String getBody() {
+        return body instanceof CompressedBody compressed ? compressed.text() : (String) body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    // Copy the title, body and tags of changes onto this entry. Missing values clear the field when
+    // replacing the whole entry (PUT) and leave it untouched otherwise (PATCH), like the repository updates.
+    public void applyChanges(JournalEntry changes, boolean replace) {
+        if (changes.getTitle() != null || replace) {
+            title = changes.getTitle();
+        }
+        if (changes.getBody() != null || replace) {
+            body = changes.getBody();
+        }
+        if (changes.getTags() != null || replace) {
+            tags = changes.getTags() != null ? new ArrayList<>(changes.getTags()) : null;
+        }
+        if (changes.getModSeq() != null) {
+            modSeq = changes.getModSeq();
+        }
+    }
+
+    // A copy that shares no mutable state with this entry, e.g. to hand out what a cache holds
+    public JournalEntry copy() {
+        return new JournalEntry(id, title, body, date, tags != null ? new ArrayList<>(tags) : null, userId, version,
+                modSeq, score);
+    }
+
+    // This entry as it is after the changes have been applied and the version bumped
+    public JournalEntry withChanges(JournalEntry changes, boolean replace) {
+        JournalEntry updated = new JournalEntry(id, title, body, date, tags != null ? new ArrayList<>(tags) : null,
+                userId, version != null ? version + 1 : 1L, modSeq, null);
+        updated.applyChanges(changes, replace);
+        return updated;
+    }
+}
@@ -0,0 +1,35 @@
+package com.inecho.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Projection of a JournalEntry without its body, for list screens. Only these fields are read from Mongo.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntrySummary implements Versioned {
+
+    private String id;
+
+    private String title;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime date;
+
+    private List<String> tags;
+
+    private String userId;
+
+    private Long version;
+
+    public static JournalEntrySummary of(JournalEntry entry) {
+        return new JournalEntrySummary(entry.getId(), entry.getTitle(), entry.getDate(),
+                entry.getTags() != null ? List.copyOf(entry.getTags()) : null, entry.getUserId(), entry.getVersion());
+    }
+}
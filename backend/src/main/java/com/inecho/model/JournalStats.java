@@ -0,0 +1,183 @@
+package com.inecho.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.IsoFields;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per-user rollup of the journal, kept up to date with $inc as entries are created, edited and deleted
+ * so dashboards read one small document instead of the whole journal.
+ *
+ * Stored map keys are encoded with {@link #key} because tags may contain '.' and '$', which MongoDB
+ * doesn't allow in update paths; {@link #view} decodes them for clients.
+ */
+@Document(collection = "journalStats")
+@Data
+@NoArgsConstructor
+public class JournalStats {
+
+    public static final String ENTRY_COUNT = "entryCount";
+    public static final String TAG_COUNTS = "tagCounts";
+    public static final String ENTRIES_PER_DAY = "entriesPerDay";
+    public static final String ENTRIES_PER_WEEK = "entriesPerWeek";
+
+    @Id
+    private String userId;  // One document per user
+
+    private long entryCount;
+
+    private Map<String, Long> tagCounts = new TreeMap<>();
+
+    private Map<String, Long> entriesPerDay = new TreeMap<>();  // yyyy-MM-dd
+
+    private Map<String, Long> entriesPerWeek = new TreeMap<>();  // ISO week, e.g. 2024-W05
+
+    @Transient
+    private int currentStreak;  // Consecutive days with entries up to today, or up to yesterday
+
+    @Transient
+    private int longestStreak;
+
+    public JournalStats(String userId) {
+        this.userId = userId;
+    }
+
+    // Count one entry with the given date and tags in or out (delta -1) of this rollup
+    public void count(LocalDateTime date, Collection<String> tags, long delta) {
+        Map<String, Long> changes = new TreeMap<>();
+        addChanges(changes, date, tags, delta);
+        changes.forEach(this::increment);
+    }
+
+    // Apply one $inc path, e.g. "tagCounts.work", to this rollup
+    public void increment(String path, long delta) {
+        int split = path.indexOf('.');
+        if (split < 0) {
+            entryCount += delta;
+            return;
+        }
+        Map<String, Long> counts = switch (path.substring(0, split)) {
+            case TAG_COUNTS -> tagCounts;
+            case ENTRIES_PER_DAY -> entriesPerDay;
+            case ENTRIES_PER_WEEK -> entriesPerWeek;
+            default -> throw new IllegalArgumentException("Unknown stats field: " + path);
+        };
+        counts.merge(path.substring(split + 1), delta, Long::sum);
+    }
+
+    // The $inc paths and amounts that turn the rollup with before into the rollup with after. Either may be
+    // null, for a created or deleted entry. Empty when the change doesn't affect the rollup.
+    public static Map<String, Long> changes(JournalEntry before, JournalEntry after) {
+        Map<String, Long> changes = new TreeMap<>();
+        if (before != null) {
+            addChanges(changes, before.getDate(), before.getTags(), -1);
+        }
+        if (after != null) {
+            addChanges(changes, after.getDate(), after.getTags(), 1);
+        }
+        changes.values().removeIf(delta -> delta == 0);
+        return changes;
+    }
+
+    // The $inc paths and amounts that add this rollup's counts to an empty one
+    public Map<String, Long> totals() {
+        Map<String, Long> totals = new TreeMap<>();
+        totals.put(ENTRY_COUNT, entryCount);
+        tagCounts.forEach((tag, count) -> totals.put(TAG_COUNTS + "." + tag, count));
+        entriesPerDay.forEach((day, count) -> totals.put(ENTRIES_PER_DAY + "." + day, count));
+        entriesPerWeek.forEach((week, count) -> totals.put(ENTRIES_PER_WEEK + "." + week, count));
+        totals.values().removeIf(count -> count == 0);
+        return totals;
+    }
+
+    private static void addChanges(Map<String, Long> changes, LocalDateTime date, Collection<String> tags, long delta) {
+        changes.merge(ENTRY_COUNT, delta, Long::sum);
+        if (tags != null) {
+            // An entry tagged twice with the same tag counts once
+            for (String tag : new LinkedHashSet<>(tags)) {
+                changes.merge(TAG_COUNTS + "." + key(tag), delta, Long::sum);
+            }
+        }
+        if (date != null) {
+            LocalDate day = date.toLocalDate();
+            changes.merge(ENTRIES_PER_DAY + "." + day, delta, Long::sum);
+            changes.merge(ENTRIES_PER_WEEK + "." + week(day), delta, Long::sum);
+        }
+    }
+
+    static String week(LocalDate day) {
+        return String.format("%d-W%02d", day.get(IsoFields.WEEK_BASED_YEAR), day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    // Escape '%', '.' and '$' so a tag can be used as a field name in an update path
+    public static String key(String tag) {
+        StringBuilder key = new StringBuilder(tag.length());
+        for (char c : tag.toCharArray()) {
+            switch (c) {
+                case '%' -> key.append("%25");
+                case '.' -> key.append("%2E");
+                case '$' -> key.append("%24");
+                default -> key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    static String tag(String key) {
+        StringBuilder tag = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '%' && i + 2 < key.length()) {
+                tag.append((char) Integer.parseInt(key.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                tag.append(c);
+            }
+        }
+        return tag.toString();
+    }
+
+    // Copy for clients: decoded tags, no counts that dropped to zero, and streaks as of today
+    public JournalStats view(LocalDate today) {
+        JournalStats view = new JournalStats(userId);
+        view.entryCount = entryCount;
+        tagCounts.forEach((key, count) -> {
+            if (count > 0) {
+                view.tagCounts.put(tag(key), count);
+            }
+        });
+        entriesPerDay.forEach((day, count) -> {
+            if (count > 0) {
+                view.entriesPerDay.put(day, count);
+            }
+        });
+        entriesPerWeek.forEach((week, count) -> {
+            if (count > 0) {
+                view.entriesPerWeek.put(week, count);
+            }
+        });
+
+        List<LocalDate> days = view.entriesPerDay.keySet().stream().map(LocalDate::parse).sorted().toList();
+        int run = 0;
+        for (int i = 0; i < days.size(); i++) {
+            run = i > 0 && days.get(i - 1).plusDays(1).equals(days.get(i)) ? run + 1 : 1;
+            view.longestStreak = Math.max(view.longestStreak, run);
+        }
+        if (!days.isEmpty() && !days.get(days.size() - 1).isBefore(today.minusDays(1))) {
+            view.currentStreak = run;
+        }
+        return view;
+    }
+}
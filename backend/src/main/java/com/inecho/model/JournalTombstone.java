@@ -0,0 +1,36 @@
+package com.inecho.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marker left behind by a deleted journal entry so delta sync can tell clients to drop it. Tombstones expire
+ * after {@link #RETENTION_DAYS}; clients whose change token is older than that have to sync from scratch.
+ */
+@Document(collection = "journalTombstones")
+@CompoundIndex(name = "userId_modSeq", def = "{'userId': 1, 'modSeq': 1, '_id': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalTombstone {
+
+    public static final int RETENTION_DAYS = 90;
+
+    @Id
+    private String id;  // Id of the deleted entry
+
+    private String userId;
+
+    private long modSeq;  // Modification sequence of the deletion
+
+    @Indexed(name = "deletedAt_ttl", expireAfter = RETENTION_DAYS + "d")
+    private LocalDateTime deletedAt;
+}
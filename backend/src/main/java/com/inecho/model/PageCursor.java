@@ -0,0 +1,82 @@
+package com.inecho.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Opaque keyset position for paged listings. Encodes the sort key
+ * ({@code date}, {@code id}) of the last item returned so the next page can
+ * seek directly past it instead of skipping over all earlier rows.
+ */
+public final class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime date;
+    private final String id;
+
+    public PageCursor(LocalDateTime date, String id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // Stored ids are ObjectIds unless a client supplied its own, so compare with the matching BSON type
+    public Object getIdValue() {
+        return idValue(id);
+    }
+
+    public String encode() {
+        String raw = (date != null ? date.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor of(JournalEntry entry) {
+        return new PageCursor(entry.getDate(), entry.getId());
+    }
+
+    public static PageCursor of(JournalEntrySummary summary) {
+        return new PageCursor(summary.getDate(), summary.getId());
+    }
+
+    public static PageCursor ofId(String id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+
+        int split = raw.indexOf(SEPARATOR);
+        if (split < 0 || split == raw.length() - 1) {
+            throw new IllegalArgumentException("Malformed cursor: " + token);
+        }
+
+        String datePart = raw.substring(0, split);
+        try {
+            LocalDateTime date = datePart.isEmpty() ? null : LocalDateTime.parse(datePart);
+            return new PageCursor(date, raw.substring(split + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+
+    public static Object idValue(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
@@ -0,0 +1,23 @@
+package com.inecho.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncPage {
+
+    private List<JournalEntry> changed;  // Entries created or updated since the token, oldest change first
+
+    private List<String> deleted;  // Ids of entries deleted since the token
+
+    private String next;  // Token to send on the next sync
+
+    private boolean more;  // More changes follow; sync again with next right away
+
+    private boolean reset;  // The token was too old: drop the local copy, this page starts over from scratch
+}
@@ -0,0 +1,95 @@
+package com.inecho.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Objects;
+
+import org.bson.types.ObjectId;
+
+/**
+ * Opaque change token for delta sync. Encodes the position ({@code modSeq}, {@code id}) of the last change
+ * a client has seen, in the order changes are returned: by modification sequence, ties broken by id.
+ * A token without an id stands after every change with its modSeq; {@link #START} stands before all of them,
+ * including entries written before modification sequences existed, which count as modSeq 0.
+ */
+public final class SyncToken {
+
+    public static final SyncToken START = new SyncToken(0, null);
+
+    // Change order, with ids compared the way MongoDB compares _id values: plain strings before ObjectIds
+    public static final Comparator<SyncToken> ORDER = Comparator
+            .comparingLong(SyncToken::getModSeq)
+            .thenComparing(SyncToken::getId, Comparator.nullsLast(Comparator
+                    .comparing((String id) -> ObjectId.isValid(id))
+                    .thenComparing(Comparator.naturalOrder())));
+
+    private static final String SEPARATOR = "|";
+
+    private final long modSeq;
+    private final String id;
+
+    public SyncToken(long modSeq, String id) {
+        this.modSeq = modSeq;
+        this.id = id;
+    }
+
+    public long getModSeq() {
+        return modSeq;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isStart() {
+        return modSeq == 0 && id == null;
+    }
+
+    public String encode() {
+        String raw = modSeq + SEPARATOR + (id != null ? id : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SyncToken of(JournalEntry entry) {
+        return new SyncToken(entry.getModSeq() != null ? entry.getModSeq() : 0, entry.getId());
+    }
+
+    public static SyncToken of(JournalTombstone tombstone) {
+        return new SyncToken(tombstone.getModSeq(), tombstone.getId());
+    }
+
+    public static SyncToken decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed sync token: " + token, e);
+        }
+
+        int split = raw.indexOf(SEPARATOR);
+        if (split < 0) {
+            throw new IllegalArgumentException("Malformed sync token: " + token);
+        }
+        try {
+            long modSeq = Long.parseLong(raw.substring(0, split));
+            String id = raw.substring(split + 1);
+            if (modSeq < 0) {
+                throw new IllegalArgumentException("Malformed sync token: " + token);
+            }
+            return new SyncToken(modSeq, id.isEmpty() ? null : id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed sync token: " + token, e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SyncToken token && modSeq == token.modSeq && Objects.equals(id, token.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(modSeq) * 31 + (id != null ? id.hashCode() : 0);
+    }
+}
@@ -1,6 +1,8 @@
 package com.inecho.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "userProfiles")  // MongoDB collection mapping
@@ -9,8 +11,12 @@ public class UserProfile {
     @Id
     private String id;  // MongoDB ID field
     private String name;
+    @Indexed(unique = true, sparse = true)  // Profiles are looked up by email; sparse allows profiles without one
     private String email;
 
+    @Version
+    private Long version;  // Incremented on every update; send it back to reject conflicting edits
+
     // Default constructor
     public UserProfile() {}
 
@@ -20,6 +26,14 @@ public class UserProfile {
         this.email = email;
     }
 
+    // A copy of this profile, e.g. to hand out what a cache holds
+    public UserProfile copy() {
+        UserProfile copy = new UserProfile(name, email);
+        copy.setId(id);
+        copy.setVersion(version);
+        return copy;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -44,4 +58,12 @@ public class UserProfile {
     public void setEmail(String email) {
         this.email = email;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
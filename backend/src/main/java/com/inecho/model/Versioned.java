@@ -0,0 +1,9 @@
+package com.inecho.model;
+
+// A document identified by its id and changed only through version-bumping updates
+public interface Versioned {
+
+    String getId();
+
+    Long getVersion();
+}
@@ -0,0 +1,29 @@
+package com.inecho.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// How journal text is split into words wherever it is indexed: the terms of compressed bodies, the related
+// entries index and the in-memory text search
+public final class Words {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Words() {
+    }
+
+    // The lowercased runs of letters and digits of the text, in order, repeats included; empty for null
+    public static List<String> of(String text) {
+        List<String> words = new ArrayList<>();
+        if (text != null) {
+            for (String word : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,39 @@
+package com.inecho.repository;
+
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+// Building blocks for the single round trip findAndModify updates of the blocking and reactive repositories
+final class AtomicUpdates {
+
+    static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private AtomicUpdates() {
+    }
+
+    // Match a document by id and, when the caller read a version, only while it still has that version
+    static Query byIdAndVersion(String id, Long expectedVersion) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        if (expectedVersion != null) {
+            query.addCriteria(Criteria.where("version").is(expectedVersion));
+        }
+        return query;
+    }
+
+    // Start an update that bumps the version, so concurrent writers holding the old one are rejected
+    static Update bumpVersion() {
+        return new Update().inc("version", 1);
+    }
+
+    // $set the field when a value is given. A missing value clears the field when replacing the whole
+    // document (PUT) and leaves it untouched otherwise (PATCH).
+    static void setField(Update update, String field, Object value, boolean replace) {
+        if (value != null) {
+            update.set(field, value);
+        } else if (replace) {
+            update.unset(field);
+        }
+    }
+}
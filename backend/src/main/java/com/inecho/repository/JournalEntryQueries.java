@@ -0,0 +1,145 @@
+package com.inecho.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+
+// Queries shared by the blocking and reactive journal entry repository implementations
+final class JournalEntryQueries {
+
+    private static final Sort PAGE_ORDER = Sort.by(Sort.Direction.DESC, "date", "id");
+
+    private static final Sort SYNC_ORDER = Sort.by(Sort.Direction.ASC, "modSeq", "id");
+
+    private JournalEntryQueries() {
+    }
+
+    // Every entry, optionally filtered by user and/or tag, unsorted; read from the same indexes as the pages
+    static Query listing(String userId, String tag) {
+        Query query = new Query();
+        if (userId != null) {
+            query.addCriteria(Criteria.where("userId").is(userId));
+        }
+        if (tag != null) {
+            query.addCriteria(Criteria.where("tags").is(tag));
+        }
+        return query;
+    }
+
+    // Keyset page ordered by (date, id) descending, optionally filtered by user and/or tag
+    static Query page(String userId, String tag, PageCursor after, int limit) {
+        List<Criteria> filters = new ArrayList<>();
+        if (userId != null) {
+            filters.add(Criteria.where("userId").is(userId));
+        }
+        if (tag != null) {
+            filters.add(Criteria.where("tags").is(tag));
+        }
+        if (after != null) {
+            filters.add(seekPast(after));
+        }
+
+        Query query = new Query()
+                .with(PAGE_ORDER)
+                .limit(limit);
+        if (!filters.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(filters));
+        }
+        return query;
+    }
+
+    // Every entry of the user after the cursor (null for all), in page order without a limit, for exports read
+    // from the userId_date index
+    static Query export(String userId, PageCursor after) {
+        // A limit of 0 is no limit
+        return page(userId, null, after, 0);
+    }
+
+    // Full-text search sorted by relevance, optionally filtered by user
+    static Query search(String userId, String text, int skip, int limit) {
+        Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .skip(skip)
+                .limit(limit);
+        if (userId != null) {
+            query.addCriteria(Criteria.where("userId").is(userId));
+        }
+        return query;
+    }
+
+    // Up to limit of the user's entries or tombstones changed after the token, in change order, read from the
+    // userId_modSeq index of either collection
+    static Query changedSince(String userId, SyncToken after, int limit) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(SYNC_ORDER)
+                .limit(limit);
+        if (!after.isStart()) {
+            query.addCriteria(seekAfter(after));
+        }
+        return query;
+    }
+
+    // Ids of up to limit entries of one user, read from the userId_date index
+    static Query idsOfUser(String userId, int limit) {
+        Query query = Query.query(Criteria.where("userId").is(userId)).limit(limit);
+        query.fields().include("id");
+        return query;
+    }
+
+    // One entry without its body, which can be large
+    static Query byIdWithoutBody(String id) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().exclude("body");
+        return query;
+    }
+
+    // Entries with any of the given ids
+    static Query byIds(List<String> ids) {
+        return Query.query(Criteria.where("id").in(ids.stream().map(PageCursor::idValue).toList()));
+    }
+
+    // Changes to the editable fields of an entry; the date and userId are never updated
+    static Update changes(JournalEntry changes, boolean replace) {
+        Update update = AtomicUpdates.bumpVersion();
+        AtomicUpdates.setField(update, "title", changes.getTitle(), replace);
+        AtomicUpdates.setField(update, "body", changes.getBody(), replace);
+        AtomicUpdates.setField(update, "tags", changes.getTags(), replace);
+        AtomicUpdates.setField(update, "modSeq", changes.getModSeq(), false);
+        return update;
+    }
+
+    // (modSeq, id) > (token.modSeq, token.id). Entries written before modSeq existed have none and count as 0.
+    private static Criteria seekAfter(SyncToken after) {
+        if (after.getId() == null) {
+            return Criteria.where("modSeq").gt(after.getModSeq());
+        }
+        Object id = PageCursor.idValue(after.getId());
+        Criteria sameModSeq = after.getModSeq() == 0
+                ? Criteria.where("modSeq").is(null).and("id").gt(id)
+                : Criteria.where("modSeq").is(after.getModSeq()).and("id").gt(id);
+        return new Criteria().orOperator(sameModSeq, Criteria.where("modSeq").gt(after.getModSeq()));
+    }
+
+    // (date, id) < (cursor.date, cursor.id) expressed so Mongo can use the sort index as a range scan
+    private static Criteria seekPast(PageCursor after) {
+        Object id = after.getIdValue();
+        if (after.getDate() == null) {
+            // Entries without a date sort last in descending order
+            return Criteria.where("date").is(null).and("id").lt(id);
+        }
+        return new Criteria().orOperator(
+                Criteria.where("date").lt(after.getDate()),
+                Criteria.where("date").is(after.getDate()).and("id").lt(id),
+                Criteria.where("date").is(null));
+    }
+}
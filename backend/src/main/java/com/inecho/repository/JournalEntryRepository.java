@@ -1,24 +1,25 @@
 package com.inecho.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
 
 @Repository
-public interface JournalEntryRepository extends MongoRepository<JournalEntry, String> {
-    
-    // Find all journal entries for a specific user
-    List<JournalEntry> findByUserId(String userId);
-    
-    // Find journal entries containing specific text in title or body
-    List<JournalEntry> findByTitleContainingIgnoreCaseOrBodyContainingIgnoreCase(String titleText, String bodyText);
-    
-    // Find journal entries with a specific tag
-    List<JournalEntry> findByTagsContaining(String tag);
-    
-    // Find journal entries by user ID and containing a tag
-    List<JournalEntry> findByUserIdAndTagsContaining(String userId, String tag);
+public interface JournalEntryRepository extends MongoRepository<JournalEntry, String>, JournalEntryRepositoryCustom {
+
+    // Documents fetched per cursor round trip by streamEntries and streamExport
+    int STREAM_BATCH_SIZE = 200;
+
+    // Summaries (no body) of all of a user's entries, read from the primary. Listings go through the
+    // findEntries family of JournalEntryRepositoryCustom, which can be routed to secondaries.
+    List<JournalEntrySummary> findSummariesByUserId(String userId);
+
+    // Summaries of the entries with the given ids that exist, in no particular order, read from the primary
+    List<JournalEntrySummary> findSummariesByIdIn(Collection<String> ids);
 }
+
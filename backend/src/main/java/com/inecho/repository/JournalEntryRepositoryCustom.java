@@ -0,0 +1,64 @@
+package com.inecho.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.dao.DataAccessException;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+
+// Query methods that can't be expressed as derived queries and are implemented in JournalEntryRepositoryImpl.
+// Methods taking a ReadRoute read from where the caller says; all others read from the primary.
+public interface JournalEntryRepositoryCustom {
+
+    // All entries, optionally filtered by user and/or tag, in no particular order
+    List<JournalEntry> findEntries(String userId, String tag, ReadRoute route);
+
+    // Same entries as findEntries, reading only the fields of JournalEntrySummary
+    List<JournalEntrySummary> findEntrySummaries(String userId, String tag, ReadRoute route);
+
+    // Same entries as findEntries, read from a cursor STREAM_BATCH_SIZE documents at a time; callers must
+    // close the stream
+    Stream<JournalEntry> streamEntries(String userId, String tag, ReadRoute route);
+
+    // Keyset page ordered by (date, id) descending, starting after the given cursor (null for the first page).
+    // userId and tag are optional filters.
+    List<JournalEntry> findPage(String userId, String tag, PageCursor after, int limit, ReadRoute route);
+
+    // Same page as findPage, reading only the fields of JournalEntrySummary
+    List<JournalEntrySummary> findSummaryPage(String userId, String tag, PageCursor after, int limit, ReadRoute route);
+
+    // All of the user's entries after the cursor (null for all) in page order, (date, id) descending, read from
+    // a cursor STREAM_BATCH_SIZE documents at a time; callers must close the stream
+    Stream<JournalEntry> streamExport(String userId, PageCursor after, ReadRoute route);
+
+    // Up to limit of the user's entries created or updated after the token, in change order (modSeq, id)
+    List<JournalEntry> findChangedSince(String userId, SyncToken after, int limit);
+
+    // Full-text search over title, body and tags using the text index, best matches first.
+    // userId is an optional filter.
+    List<JournalEntry> searchText(String userId, String text, int skip, int limit, ReadRoute route);
+
+    // Inserts the entries with one unordered bulk write. Returns the positions (within the list)
+    // of entries that could not be inserted, mapped to the reason (a DuplicateKeyException for a taken id);
+    // empty when all succeeded.
+    Map<Integer, DataAccessException> insertUnordered(List<JournalEntry> entries);
+
+    // Deletes the entry with a single findAndRemove and returns it without its body, so callers can see what
+    // was deleted; empty when there was no such entry
+    Optional<JournalEntry> findAndDelete(String id);
+
+    // Deletes up to batchSize entries of the user and returns their ids; empty once none are left
+    List<String> deleteBatchByUserId(String userId, int batchSize);
+
+    // Applies the title, body and tags of the given changes to the stored entry and bumps its version in one
+    // findAndModify, returning the entry as it was before; JournalEntry#withChanges gives the updated one.
+    // Null fields are cleared when replace is set and left as they are otherwise. When expectedVersion is
+    // given the update only applies if the stored version still matches. Empty when no entry matched.
+    Optional<JournalEntry> findAndUpdateFields(String id, Long expectedVersion, JournalEntry changes, boolean replace);
+}
@@ -0,0 +1,133 @@
+package com.inecho.repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+import com.mongodb.bulk.BulkWriteError;
+
+public class JournalEntryRepositoryImpl implements JournalEntryRepositoryCustom {
+
+    // Server error code of a unique index violation
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    @Override
+    public List<JournalEntry> findEntries(String userId, String tag, ReadRoute route) {
+        return mongoTemplate.find(readRouting.route(JournalEntryQueries.listing(userId, tag), route), JournalEntry.class);
+    }
+
+    @Override
+    public List<JournalEntrySummary> findEntrySummaries(String userId, String tag, ReadRoute route) {
+        return mongoTemplate.query(JournalEntry.class)
+                .as(JournalEntrySummary.class)
+                .matching(readRouting.route(JournalEntryQueries.listing(userId, tag), route))
+                .all();
+    }
+
+    @Override
+    public Stream<JournalEntry> streamEntries(String userId, String tag, ReadRoute route) {
+        Query query = JournalEntryQueries.listing(userId, tag).cursorBatchSize(JournalEntryRepository.STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(readRouting.route(query, route), JournalEntry.class);
+    }
+
+    @Override
+    public List<JournalEntry> findPage(String userId, String tag, PageCursor after, int limit, ReadRoute route) {
+        return mongoTemplate.find(readRouting.route(JournalEntryQueries.page(userId, tag, after, limit), route),
+                JournalEntry.class);
+    }
+
+    @Override
+    public List<JournalEntrySummary> findSummaryPage(String userId, String tag, PageCursor after, int limit, ReadRoute route) {
+        return mongoTemplate.query(JournalEntry.class)
+                .as(JournalEntrySummary.class)
+                .matching(readRouting.route(JournalEntryQueries.page(userId, tag, after, limit), route))
+                .all();
+    }
+
+    @Override
+    public Stream<JournalEntry> streamExport(String userId, PageCursor after, ReadRoute route) {
+        Query query = JournalEntryQueries.export(userId, after).cursorBatchSize(JournalEntryRepository.STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(readRouting.route(query, route), JournalEntry.class);
+    }
+
+    @Override
+    public List<JournalEntry> findChangedSince(String userId, SyncToken after, int limit) {
+        return mongoTemplate.find(JournalEntryQueries.changedSince(userId, after, limit), JournalEntry.class);
+    }
+
+    @Override
+    public List<JournalEntry> searchText(String userId, String text, int skip, int limit, ReadRoute route) {
+        return mongoTemplate.find(readRouting.route(JournalEntryQueries.search(userId, text, skip, limit), route),
+                JournalEntry.class);
+    }
+
+    @Override
+    public Map<Integer, DataAccessException> insertUnordered(List<JournalEntry> entries) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, JournalEntry.class);
+        bulk.insert(entries);
+        try {
+            bulk.execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the reported entries was written
+            return insertFailures(e.getErrors());
+        }
+    }
+
+    // The reasons bulk inserts failed by position: taken ids as a DuplicateKeyException like a single insert
+    // gets, anything else uncategorized
+    static Map<Integer, DataAccessException> insertFailures(List<BulkWriteError> errors) {
+        Map<Integer, DataAccessException> failures = new LinkedHashMap<>();
+        for (BulkWriteError error : errors) {
+            failures.put(error.getIndex(), error.getCode() == DUPLICATE_KEY
+                    ? new DuplicateKeyException(error.getMessage())
+                    : new UncategorizedMongoDbException(error.getMessage(), null));
+        }
+        return failures;
+    }
+
+    @Override
+    public Optional<JournalEntry> findAndDelete(String id) {
+        return Optional.ofNullable(mongoTemplate.findAndRemove(JournalEntryQueries.byIdWithoutBody(id), JournalEntry.class));
+    }
+
+    @Override
+    public List<String> deleteBatchByUserId(String userId, int batchSize) {
+        List<String> ids = mongoTemplate.find(JournalEntryQueries.idsOfUser(userId, batchSize), JournalEntry.class)
+                .stream()
+                .map(JournalEntry::getId)
+                .toList();
+        if (!ids.isEmpty()) {
+            mongoTemplate.remove(JournalEntryQueries.byIds(ids), JournalEntry.class);
+        }
+        return ids;
+    }
+
+    @Override
+    public Optional<JournalEntry> findAndUpdateFields(String id, Long expectedVersion, JournalEntry changes, boolean replace) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(AtomicUpdates.byIdAndVersion(id, expectedVersion),
+                JournalEntryQueries.changes(changes, replace), JournalEntry.class));
+    }
+}
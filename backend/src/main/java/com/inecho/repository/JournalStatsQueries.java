@@ -0,0 +1,25 @@
+package com.inecho.repository;
+
+import java.util.Map;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+// Queries shared by the blocking and reactive journal stats repository implementations
+final class JournalStatsQueries {
+
+    private JournalStatsQueries() {
+    }
+
+    static Query byUser(String userId) {
+        return Query.query(Criteria.where("userId").is(userId));
+    }
+
+    // One $inc per changed counter; the paths come from JournalStats#changes and are already escaped
+    static Update increments(Map<String, Long> changes) {
+        Update update = new Update();
+        changes.forEach(update::inc);
+        return update;
+    }
+}
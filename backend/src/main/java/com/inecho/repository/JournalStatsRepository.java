@@ -0,0 +1,11 @@
+package com.inecho.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalStats;
+
+// Per-user journal rollups, keyed by user ID
+@Repository
+public interface JournalStatsRepository extends MongoRepository<JournalStats, String>, JournalStatsRepositoryCustom {
+}
@@ -0,0 +1,14 @@
+package com.inecho.repository;
+
+import java.util.Map;
+
+// Counter updates for the journal rollups, implemented in JournalStatsRepositoryImpl
+public interface JournalStatsRepositoryCustom {
+
+    // Applies the changes from JournalStats#changes to the user's rollup with one $inc. A missing rollup is
+    // left missing, to be counted in full on first read.
+    void increment(String userId, Map<String, Long> changes);
+
+    // Applies the changes of several users with one unordered bulk write
+    void incrementAll(Map<String, Map<String, Long>> changesByUser);
+}
@@ -0,0 +1,34 @@
+package com.inecho.repository;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.inecho.model.JournalStats;
+
+public class JournalStatsRepositoryImpl implements JournalStatsRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void increment(String userId, Map<String, Long> changes) {
+        if (!changes.isEmpty()) {
+            mongoTemplate.updateFirst(JournalStatsQueries.byUser(userId), JournalStatsQueries.increments(changes), JournalStats.class);
+        }
+    }
+
+    @Override
+    public void incrementAll(Map<String, Map<String, Long>> changesByUser) {
+        if (changesByUser.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, JournalStats.class);
+        changesByUser.forEach((userId, changes) ->
+                bulk.updateOne(JournalStatsQueries.byUser(userId), JournalStatsQueries.increments(changes)));
+        bulk.execute();
+    }
+}
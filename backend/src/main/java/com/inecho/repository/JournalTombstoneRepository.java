@@ -0,0 +1,14 @@
+package com.inecho.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalTombstone;
+
+// Tombstones of deleted journal entries, keyed by the entry ID
+@Repository
+public interface JournalTombstoneRepository extends MongoRepository<JournalTombstone, String>, JournalTombstoneRepositoryCustom {
+
+    // Remove all tombstones of a user, e.g. with their journal
+    long deleteByUserId(String userId);
+}
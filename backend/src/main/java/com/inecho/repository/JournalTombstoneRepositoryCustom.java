@@ -0,0 +1,13 @@
+package com.inecho.repository;
+
+import java.util.List;
+
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncToken;
+
+// Query methods that can't be expressed as derived queries and are implemented in JournalTombstoneRepositoryImpl
+public interface JournalTombstoneRepositoryCustom {
+
+    // Up to limit of the user's tombstones written after the token, in change order (modSeq, id)
+    List<JournalTombstone> findChangedSince(String userId, SyncToken after, int limit);
+}
@@ -0,0 +1,20 @@
+package com.inecho.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncToken;
+
+public class JournalTombstoneRepositoryImpl implements JournalTombstoneRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public List<JournalTombstone> findChangedSince(String userId, SyncToken after, int limit) {
+        return mongoTemplate.find(JournalEntryQueries.changedSince(userId, after, limit), JournalTombstone.class);
+    }
+}
@@ -0,0 +1,23 @@
+package com.inecho.repository;
+
+import java.util.Collection;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+
+import reactor.core.publisher.Flux;
+
+// Non-blocking counterpart of JournalEntryRepository, used by the 'reactive' profile
+@Repository
+public interface ReactiveJournalEntryRepository extends ReactiveMongoRepository<JournalEntry, String>, ReactiveJournalEntryRepositoryCustom {
+
+    // Summaries (no body) of all of a user's entries, read from the primary. Listings go through the
+    // findEntries family of ReactiveJournalEntryRepositoryCustom, which can be routed to secondaries.
+    Flux<JournalEntrySummary> findSummariesByUserId(String userId);
+
+    // Summaries of the entries with the given ids that exist, in no particular order, read from the primary
+    Flux<JournalEntrySummary> findSummariesByIdIn(Collection<String> ids);
+}
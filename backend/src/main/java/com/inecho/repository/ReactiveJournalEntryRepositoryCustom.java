@@ -0,0 +1,59 @@
+package com.inecho.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.DataAccessException;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Reactive versions of the JournalEntryRepositoryCustom methods, implemented in ReactiveJournalEntryRepositoryImpl
+public interface ReactiveJournalEntryRepositoryCustom {
+
+    // All entries, optionally filtered by user and/or tag, in no particular order
+    Flux<JournalEntry> findEntries(String userId, String tag, ReadRoute route);
+
+    // Same entries as findEntries, reading only the fields of JournalEntrySummary
+    Flux<JournalEntrySummary> findEntrySummaries(String userId, String tag, ReadRoute route);
+
+    // Keyset page ordered by (date, id) descending, starting after the given cursor (null for the first page).
+    // userId and tag are optional filters.
+    Flux<JournalEntry> findPage(String userId, String tag, PageCursor after, int limit, ReadRoute route);
+
+    // Same page as findPage, reading only the fields of JournalEntrySummary
+    Flux<JournalEntrySummary> findSummaryPage(String userId, String tag, PageCursor after, int limit, ReadRoute route);
+
+    // All of the user's entries after the cursor (null for all) in page order, (date, id) descending
+    Flux<JournalEntry> findExport(String userId, PageCursor after, ReadRoute route);
+
+    // Up to limit of the user's entries created or updated after the token, in change order (modSeq, id)
+    Flux<JournalEntry> findChangedSince(String userId, SyncToken after, int limit);
+
+    // Full-text search over title, body and tags using the text index, best matches first.
+    // userId is an optional filter.
+    Flux<JournalEntry> searchText(String userId, String text, int skip, int limit, ReadRoute route);
+
+    // Inserts the entries with one unordered bulk write. Emits the positions (within the list)
+    // of entries that could not be inserted, mapped to the reason (a DuplicateKeyException for a taken id);
+    // empty when all succeeded.
+    Mono<Map<Integer, DataAccessException>> insertUnordered(List<JournalEntry> entries);
+
+    // Deletes the entry with a single findAndRemove and emits it without its body; empty when there was no
+    // such entry
+    Mono<JournalEntry> findAndDelete(String id);
+
+    // Deletes up to batchSize entries of the user and emits their ids; an empty list once none are left
+    Mono<List<String>> deleteBatchByUserId(String userId, int batchSize);
+
+    // Applies the title, body and tags of the given changes and bumps the version in one findAndModify,
+    // emitting the entry as it was before; JournalEntry#withChanges gives the updated one. Null fields are cleared when replace is set and left as they are otherwise.
+    // When expectedVersion is given the update only applies if the stored version still matches.
+    // Empty when no entry matched.
+    Mono<JournalEntry> findAndUpdateFields(String id, Long expectedVersion, JournalEntry changes, boolean replace);
+}
@@ -0,0 +1,103 @@
+package com.inecho.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+import com.mongodb.MongoBulkWriteException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReactiveJournalEntryRepositoryImpl implements ReactiveJournalEntryRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private ReadRouting readRouting;
+
+    @Override
+    public Flux<JournalEntry> findEntries(String userId, String tag, ReadRoute route) {
+        return mongoTemplate.find(readRouting.route(JournalEntryQueries.listing(userId, tag), route), JournalEntry.class);
+    }
+
+    @Override
+    public Flux<JournalEntrySummary> findEntrySummaries(String userId, String tag, ReadRoute route) {
+        return mongoTemplate.query(JournalEntry.class)
+                .as(JournalEntrySummary.class)
+                .matching(readRouting.route(JournalEntryQueries.listing(userId, tag), route))
+                .all();
+    }
+
+    @Override
+    public Flux<JournalEntry> findPage(String userId, String tag, PageCursor after, int limit, ReadRoute route) {
+        return mongoTemplate.find(readRouting.route(JournalEntryQueries.page(userId, tag, after, limit), route),
+                JournalEntry.class);
+    }
+
+    @Override
+    public Flux<JournalEntrySummary> findSummaryPage(String userId, String tag, PageCursor after, int limit, ReadRoute route) {
+        return mongoTemplate.query(JournalEntry.class)
+                .as(JournalEntrySummary.class)
+                .matching(readRouting.route(JournalEntryQueries.page(userId, tag, after, limit), route))
+                .all();
+    }
+
+    @Override
+    public Flux<JournalEntry> findExport(String userId, PageCursor after, ReadRoute route) {
+        return mongoTemplate.find(readRouting.route(JournalEntryQueries.export(userId, after), route), JournalEntry.class);
+    }
+
+    @Override
+    public Flux<JournalEntry> findChangedSince(String userId, SyncToken after, int limit) {
+        return mongoTemplate.find(JournalEntryQueries.changedSince(userId, after, limit), JournalEntry.class);
+    }
+
+    @Override
+    public Flux<JournalEntry> searchText(String userId, String text, int skip, int limit, ReadRoute route) {
+        return mongoTemplate.find(readRouting.route(JournalEntryQueries.search(userId, text, skip, limit), route),
+                JournalEntry.class);
+    }
+
+    @Override
+    public Mono<Map<Integer, DataAccessException>> insertUnordered(List<JournalEntry> entries) {
+        return mongoTemplate.bulkOps(BulkMode.UNORDERED, JournalEntry.class)
+                .insert(entries)
+                .execute()
+                .<Map<Integer, DataAccessException>>map(result -> Map.of())
+                // Unordered: everything except the reported entries was written
+                .onErrorResume(BulkOperationException.class, e -> Mono.just(JournalEntryRepositoryImpl.insertFailures(e.getErrors())))
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just(JournalEntryRepositoryImpl.insertFailures(e.getWriteErrors())));
+    }
+
+    @Override
+    public Mono<JournalEntry> findAndDelete(String id) {
+        return mongoTemplate.findAndRemove(JournalEntryQueries.byIdWithoutBody(id), JournalEntry.class);
+    }
+
+    @Override
+    public Mono<List<String>> deleteBatchByUserId(String userId, int batchSize) {
+        return mongoTemplate.find(JournalEntryQueries.idsOfUser(userId, batchSize), JournalEntry.class)
+                .map(JournalEntry::getId)
+                .collectList()
+                .flatMap(ids -> ids.isEmpty()
+                        ? Mono.just(ids)
+                        : mongoTemplate.remove(JournalEntryQueries.byIds(ids), JournalEntry.class).thenReturn(ids));
+    }
+
+    @Override
+    public Mono<JournalEntry> findAndUpdateFields(String id, Long expectedVersion, JournalEntry changes, boolean replace) {
+        return mongoTemplate.findAndModify(AtomicUpdates.byIdAndVersion(id, expectedVersion),
+                JournalEntryQueries.changes(changes, replace), JournalEntry.class);
+    }
+}
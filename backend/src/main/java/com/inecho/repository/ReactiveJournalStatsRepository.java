@@ -0,0 +1,11 @@
+package com.inecho.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalStats;
+
+// Non-blocking counterpart of JournalStatsRepository, used by the 'reactive' profile
+@Repository
+public interface ReactiveJournalStatsRepository extends ReactiveMongoRepository<JournalStats, String>, ReactiveJournalStatsRepositoryCustom {
+}
@@ -0,0 +1,15 @@
+package com.inecho.repository;
+
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+// Reactive versions of the JournalStatsRepositoryCustom methods, implemented in ReactiveJournalStatsRepositoryImpl
+public interface ReactiveJournalStatsRepositoryCustom {
+
+    // Applies the changes from JournalStats#changes to the user's rollup with one $inc; a missing one stays missing
+    Mono<Void> increment(String userId, Map<String, Long> changes);
+
+    // Applies the changes of several users with one unordered bulk write
+    Mono<Void> incrementAll(Map<String, Map<String, Long>> changesByUser);
+}
@@ -0,0 +1,38 @@
+package com.inecho.repository;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.inecho.model.JournalStats;
+
+import reactor.core.publisher.Mono;
+
+public class ReactiveJournalStatsRepositoryImpl implements ReactiveJournalStatsRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<Void> increment(String userId, Map<String, Long> changes) {
+        if (changes.isEmpty()) {
+            return Mono.empty();
+        }
+        return mongoTemplate.updateFirst(JournalStatsQueries.byUser(userId), JournalStatsQueries.increments(changes), JournalStats.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> incrementAll(Map<String, Map<String, Long>> changesByUser) {
+        if (changesByUser.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, JournalStats.class);
+        changesByUser.forEach((userId, changes) ->
+                bulk.updateOne(JournalStatsQueries.byUser(userId), JournalStatsQueries.increments(changes)));
+        return bulk.execute().then();
+    }
+}
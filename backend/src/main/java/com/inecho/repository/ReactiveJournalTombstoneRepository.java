@@ -0,0 +1,16 @@
+package com.inecho.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalTombstone;
+
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of JournalTombstoneRepository, used by the 'reactive' profile
+@Repository
+public interface ReactiveJournalTombstoneRepository extends ReactiveMongoRepository<JournalTombstone, String>, ReactiveJournalTombstoneRepositoryCustom {
+
+    // Remove all tombstones of a user, e.g. with their journal
+    Mono<Long> deleteByUserId(String userId);
+}
@@ -0,0 +1,13 @@
+package com.inecho.repository;
+
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncToken;
+
+import reactor.core.publisher.Flux;
+
+// Reactive versions of the JournalTombstoneRepositoryCustom methods, implemented in ReactiveJournalTombstoneRepositoryImpl
+public interface ReactiveJournalTombstoneRepositoryCustom {
+
+    // Up to limit of the user's tombstones written after the token, in change order (modSeq, id)
+    Flux<JournalTombstone> findChangedSince(String userId, SyncToken after, int limit);
+}
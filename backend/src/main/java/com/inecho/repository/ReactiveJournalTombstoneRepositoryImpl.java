@@ -0,0 +1,20 @@
+package com.inecho.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncToken;
+
+import reactor.core.publisher.Flux;
+
+public class ReactiveJournalTombstoneRepositoryImpl implements ReactiveJournalTombstoneRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Flux<JournalTombstone> findChangedSince(String userId, SyncToken after, int limit) {
+        return mongoTemplate.find(JournalEntryQueries.changedSince(userId, after, limit), JournalTombstone.class);
+    }
+}
@@ -0,0 +1,24 @@
+package com.inecho.repository;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.UserProfile;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of UserProfileRepository, used by the 'reactive' profile
+@Repository
+public interface ReactiveUserProfileRepository extends ReactiveMongoRepository<UserProfile, String>, ReactiveUserProfileRepositoryCustom {
+    // Custom query method to find a user profile by email
+    Mono<UserProfile> findByEmail(String email);
+
+    // First keyset page of profiles in id order
+    Flux<UserProfile> findAllByOrderByIdAsc(Pageable pageable);
+
+    // Keyset page of profiles after the given id; takes an ObjectId so the range compares BSON ids, not strings
+    Flux<UserProfile> findByIdGreaterThanOrderByIdAsc(ObjectId id, Pageable pageable);
+}
@@ -0,0 +1,15 @@
+package com.inecho.repository;
+
+import com.inecho.model.UserProfile;
+
+import reactor.core.publisher.Mono;
+
+// Reactive versions of the UserProfileRepositoryCustom methods, implemented in ReactiveUserProfileRepositoryImpl
+public interface ReactiveUserProfileRepositoryCustom {
+
+    // Applies the name and email of the given changes and bumps the version in one findAndModify, emitting
+    // the updated profile. Null fields are cleared when replace is set and left as they are otherwise.
+    // When expectedVersion is given the update only applies if the stored version still matches.
+    // Empty when no profile matched.
+    Mono<UserProfile> updateFields(String id, Long expectedVersion, UserProfile changes, boolean replace);
+}
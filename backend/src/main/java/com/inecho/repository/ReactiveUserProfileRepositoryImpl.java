@@ -0,0 +1,20 @@
+package com.inecho.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import com.inecho.model.UserProfile;
+
+import reactor.core.publisher.Mono;
+
+public class ReactiveUserProfileRepositoryImpl implements ReactiveUserProfileRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<UserProfile> updateFields(String id, Long expectedVersion, UserProfile changes, boolean replace) {
+        return mongoTemplate.findAndModify(AtomicUpdates.byIdAndVersion(id, expectedVersion),
+                UserProfileQueries.changes(changes, replace), AtomicUpdates.RETURN_NEW, UserProfile.class);
+    }
+}
@@ -0,0 +1,13 @@
+package com.inecho.repository;
+
+// Where a repository read is served from, chosen per call. Listing and search traffic can tolerate slightly
+// stale results and be spread over the secondaries; reads that must see the caller's own writes use PRIMARY.
+public enum ReadRoute {
+
+    // The primary, with the client's default read concern
+    PRIMARY,
+
+    // A secondary no further behind than inecho.reads.secondary.max-staleness, or the primary when none is
+    // available (see ReadRouting)
+    SECONDARY
+}
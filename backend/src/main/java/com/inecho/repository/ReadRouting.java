@@ -0,0 +1,59 @@
+package com.inecho.repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+
+import jakarta.annotation.PostConstruct;
+
+// Read preference and read concern of each ReadRoute, set on the queries of the repository implementations.
+// PRIMARY leaves the client's defaults in place; SECONDARY is configured by inecho.reads.secondary.*.
+@Component
+@Profile("!memory")
+public class ReadRouting {
+
+    @Value("${inecho.reads.secondary.read-preference:secondaryPreferred}")
+    private String secondaryMode;
+
+    @Value("${inecho.reads.secondary.max-staleness:90s}")
+    private Duration maxStaleness;
+
+    @Value("${inecho.reads.secondary.read-concern:local}")
+    private String secondaryLevel;
+
+    private ReadPreference secondaryPreference;
+
+    private ReadConcern secondaryConcern;
+
+    @PostConstruct
+    void init() {
+        secondaryPreference = readPreference(secondaryMode, maxStaleness);
+        secondaryConcern = new ReadConcern(ReadConcernLevel.fromString(secondaryLevel));
+    }
+
+    // Send the query where the route says
+    public Query route(Query query, ReadRoute route) {
+        if (route == ReadRoute.SECONDARY) {
+            query.withReadPreference(secondaryPreference).withReadConcern(secondaryConcern);
+        }
+        return query;
+    }
+
+    // A read preference mode such as secondaryPreferred or nearest, bounded by maxStaleness (at least 90s,
+    // as required by MongoDB). Primary reads are never stale, so the bound doesn't apply to them.
+    static ReadPreference readPreference(String mode, Duration maxStaleness) {
+        if ("primary".equalsIgnoreCase(mode)) {
+            return ReadPreference.primary();
+        }
+        return ReadPreference.valueOf(mode, List.of(), maxStaleness.toSeconds(), TimeUnit.SECONDS);
+    }
+}
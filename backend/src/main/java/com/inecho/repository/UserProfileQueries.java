@@ -0,0 +1,20 @@
+package com.inecho.repository;
+
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.inecho.model.UserProfile;
+
+// Queries shared by the blocking and reactive user profile repository implementations
+final class UserProfileQueries {
+
+    private UserProfileQueries() {
+    }
+
+    // Changes to the editable fields of a profile
+    static Update changes(UserProfile changes, boolean replace) {
+        Update update = AtomicUpdates.bumpVersion();
+        AtomicUpdates.setField(update, "name", changes.getName(), replace);
+        AtomicUpdates.setField(update, "email", changes.getEmail(), replace);
+        return update;
+    }
+}
@@ -1,14 +1,23 @@
 package com.inecho.repository;
 
+import java.util.List;
 import java.util.Optional;
 
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import com.inecho.model.UserProfile;  // Import Optional from java.util
 
 @Repository
-public interface UserProfileRepository extends MongoRepository<UserProfile, String> {
+public interface UserProfileRepository extends MongoRepository<UserProfile, String>, UserProfileRepositoryCustom {
     // Custom query method to find a user profile by email
     Optional<UserProfile> findByEmail(String email);
+
+    // First keyset page of profiles in id order
+    List<UserProfile> findAllByOrderByIdAsc(Pageable pageable);
+
+    // Keyset page of profiles after the given id; takes an ObjectId so the range compares BSON ids, not strings
+    List<UserProfile> findByIdGreaterThanOrderByIdAsc(ObjectId id, Pageable pageable);
 }
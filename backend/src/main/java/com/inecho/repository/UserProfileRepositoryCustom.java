@@ -0,0 +1,15 @@
+package com.inecho.repository;
+
+import java.util.Optional;
+
+import com.inecho.model.UserProfile;
+
+// Update methods that can't be expressed as derived queries and are implemented in UserProfileRepositoryImpl
+public interface UserProfileRepositoryCustom {
+
+    // Applies the name and email of the given changes to the stored profile and bumps its version in one
+    // findAndModify, returning the updated profile. Null fields are cleared when replace is set and left as
+    // they are otherwise. When expectedVersion is given the update only applies if the stored version still
+    // matches. Empty when no profile matched.
+    Optional<UserProfile> updateFields(String id, Long expectedVersion, UserProfile changes, boolean replace);
+}
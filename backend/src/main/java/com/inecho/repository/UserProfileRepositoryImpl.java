@@ -0,0 +1,20 @@
+package com.inecho.repository;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.inecho.model.UserProfile;
+
+public class UserProfileRepositoryImpl implements UserProfileRepositoryCustom {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<UserProfile> updateFields(String id, Long expectedVersion, UserProfile changes, boolean replace) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(AtomicUpdates.byIdAndVersion(id, expectedVersion),
+                UserProfileQueries.changes(changes, replace), AtomicUpdates.RETURN_NEW, UserProfile.class));
+    }
+}
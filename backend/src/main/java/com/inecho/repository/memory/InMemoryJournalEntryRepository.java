@@ -0,0 +1,298 @@
+package com.inecho.repository.memory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+import com.inecho.model.Words;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.ReadRoute;
+
+/**
+ * In-memory JournalEntryRepository for the 'memory' profile. Entries are indexed newest first overall,
+ * per user, per tag and per user and tag, and per user in change order, mirroring the compound indexes declared on JournalEntry,
+ * so listings and keyset pages are range reads rather than scans.
+ */
+@Repository
+@Profile("memory")
+public class InMemoryJournalEntryRepository extends InMemoryRepository<JournalEntry> implements JournalEntryRepository {
+
+    // Same order as the keyset pages: newest first, ties broken by id, entries without a date last
+    private static final Comparator<PageCursor> PAGE_ORDER = Comparator
+            .comparing(PageCursor::getDate, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(PageCursor::getId, ID_ORDER)
+            .reversed();
+
+    // Text search field weights, as on the text index
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TAGS_WEIGHT = 2;
+    private static final int BODY_WEIGHT = 1;
+
+    private final NavigableMap<PageCursor, JournalEntry> byDate = new ConcurrentSkipListMap<>(PAGE_ORDER);
+
+    private final Map<String, NavigableMap<PageCursor, JournalEntry>> byUser = new ConcurrentHashMap<>();
+
+    private final Map<String, NavigableMap<PageCursor, JournalEntry>> byTag = new ConcurrentHashMap<>();
+
+    private final Map<String, NavigableMap<PageCursor, JournalEntry>> byUserAndTag = new ConcurrentHashMap<>();
+
+    private final Map<String, NavigableMap<SyncToken, JournalEntry>> byUserChanges = new ConcurrentHashMap<>();
+
+    @Override
+    protected String idOf(JournalEntry entry) {
+        return entry.getId();
+    }
+
+    @Override
+    protected void setId(JournalEntry entry, String id) {
+        entry.setId(id);
+    }
+
+    @Override
+    protected Long versionOf(JournalEntry entry) {
+        return entry.getVersion();
+    }
+
+    @Override
+    protected void setVersion(JournalEntry entry, Long version) {
+        entry.setVersion(version);
+    }
+
+    @Override
+    protected JournalEntry copy(JournalEntry entry) {
+        return new JournalEntry(entry.getId(), entry.getTitle(), entry.getBody(), entry.getDate(),
+                entry.getTags() != null ? new ArrayList<>(entry.getTags()) : null, entry.getUserId(),
+                entry.getVersion(), entry.getModSeq(), null);
+    }
+
+    @Override
+    protected void index(JournalEntry entry) {
+        PageCursor key = PageCursor.of(entry);
+        byDate.put(key, entry);
+        if (entry.getUserId() != null) {
+            indexOf(byUser, entry.getUserId()).put(key, entry);
+            byUserChanges.computeIfAbsent(entry.getUserId(), userId -> new ConcurrentSkipListMap<>(SyncToken.ORDER))
+                    .put(SyncToken.of(entry), entry);
+        }
+        for (String tag : tags(entry)) {
+            indexOf(byTag, tag).put(key, entry);
+            if (entry.getUserId() != null) {
+                indexOf(byUserAndTag, userAndTag(entry.getUserId(), tag)).put(key, entry);
+            }
+        }
+    }
+
+    @Override
+    protected void unindex(JournalEntry entry) {
+        PageCursor key = PageCursor.of(entry);
+        byDate.remove(key);
+        if (entry.getUserId() != null) {
+            removeFrom(byUser, entry.getUserId(), key);
+            removeFrom(byUserChanges, entry.getUserId(), SyncToken.of(entry));
+        }
+        for (String tag : tags(entry)) {
+            removeFrom(byTag, tag, key);
+            if (entry.getUserId() != null) {
+                removeFrom(byUserAndTag, userAndTag(entry.getUserId(), tag), key);
+            }
+        }
+    }
+
+    // There is only one copy of the data here, so every ReadRoute reads the same thing
+    @Override
+    public List<JournalEntry> findEntries(String userId, String tag, ReadRoute route) {
+        return copies(entriesOf(userId, tag, null));
+    }
+
+    @Override
+    public List<JournalEntrySummary> findEntrySummaries(String userId, String tag, ReadRoute route) {
+        return summaries(entriesOf(userId, tag, null));
+    }
+
+    @Override
+    public Stream<JournalEntry> streamEntries(String userId, String tag, ReadRoute route) {
+        return entriesOf(userId, tag, null).stream().map(this::copy);
+    }
+
+    @Override
+    public List<JournalEntrySummary> findSummariesByUserId(String userId) {
+        return summaries(lookup(byUser, userId).values());
+    }
+
+    @Override
+    public List<JournalEntrySummary> findSummariesByIdIn(Collection<String> ids) {
+        return summaries(findAllById(ids));
+    }
+
+    @Override
+    public List<JournalEntry> findPage(String userId, String tag, PageCursor after, int limit, ReadRoute route) {
+        return entriesOf(userId, tag, after).stream().limit(limit).map(this::copy).toList();
+    }
+
+    @Override
+    public List<JournalEntrySummary> findSummaryPage(String userId, String tag, PageCursor after, int limit, ReadRoute route) {
+        return entriesOf(userId, tag, after).stream().limit(limit).map(JournalEntrySummary::of).toList();
+    }
+
+    @Override
+    public Stream<JournalEntry> streamExport(String userId, PageCursor after, ReadRoute route) {
+        return entriesOf(userId, null, after).stream().map(this::copy);
+    }
+
+    // Entries of the index matching the filters, newest first, from the cursor onwards (null for all of them)
+    private Collection<JournalEntry> entriesOf(String userId, String tag, PageCursor after) {
+        NavigableMap<PageCursor, JournalEntry> index;
+        if (userId != null && tag != null) {
+            index = lookup(byUserAndTag, userAndTag(userId, tag));
+        } else if (userId != null) {
+            index = lookup(byUser, userId);
+        } else if (tag != null) {
+            index = lookup(byTag, tag);
+        } else {
+            index = byDate;
+        }
+        if (after != null) {
+            index = index.tailMap(after, false);
+        }
+        return index.values();
+    }
+
+    @Override
+    public List<JournalEntry> findChangedSince(String userId, SyncToken after, int limit) {
+        NavigableMap<SyncToken, JournalEntry> changes = byUserChanges.get(userId);
+        if (changes == null) {
+            return List.of();
+        }
+        if (!after.isStart()) {
+            changes = changes.tailMap(after, false);
+        }
+        return changes.values().stream().limit(limit).map(this::copy).toList();
+    }
+
+    // Approximates MongoDB's text search: any query word matches (no stemming or stop words), scored by
+    // how often it occurs in title, tags and body, weighted like the text index
+    @Override
+    public List<JournalEntry> searchText(String userId, String text, int skip, int limit, ReadRoute route) {
+        Set<String> terms = new LinkedHashSet<>(Words.of(text));
+        List<Hit> hits = new ArrayList<>();
+        for (JournalEntry entry : (userId != null ? lookup(byUser, userId) : byDate).values()) {
+            int score = TITLE_WEIGHT * occurrences(terms, entry.getTitle())
+                    + TAGS_WEIGHT * occurrences(terms, entry.getTags() != null ? String.join(" ", entry.getTags()) : null)
+                    + BODY_WEIGHT * occurrences(terms, entry.getBody());
+            if (score > 0) {
+                hits.add(new Hit(entry, score));
+            }
+        }
+        // Stable sort: equal scores stay newest first
+        return hits.stream()
+                .sorted(Comparator.comparingInt(Hit::score).reversed())
+                .skip(skip)
+                .limit(limit)
+                .map(hit -> {
+                    JournalEntry entry = copy(hit.entry());
+                    entry.setScore((float) hit.score());
+                    return entry;
+                })
+                .toList();
+    }
+
+    @Override
+    public Map<Integer, DataAccessException> insertUnordered(List<JournalEntry> entries) {
+        Map<Integer, DataAccessException> failures = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            try {
+                insert(entries.get(i));
+            } catch (DataAccessException e) {
+                failures.put(i, e);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public Optional<JournalEntry> findAndDelete(String id) {
+        JournalEntry removed = remove(id);
+        if (removed == null) {
+            return Optional.empty();
+        }
+        removed.setBody(null);
+        return Optional.of(removed);
+    }
+
+    @Override
+    public List<String> deleteBatchByUserId(String userId, int batchSize) {
+        List<String> ids = lookup(byUser, userId).values().stream()
+                .limit(batchSize)
+                .map(JournalEntry::getId)
+                .toList();
+        ids.forEach(this::remove);
+        return ids;
+    }
+
+    @Override
+    public Optional<JournalEntry> findAndUpdateFields(String id, Long expectedVersion, JournalEntry changes, boolean replace) {
+        return findAndModify(id, expectedVersion, entry -> entry.applyChanges(changes, replace));
+    }
+
+    private static List<JournalEntrySummary> summaries(Collection<JournalEntry> entries) {
+        return entries.stream().map(JournalEntrySummary::of).toList();
+    }
+
+    private static Set<String> tags(JournalEntry entry) {
+        return entry.getTags() != null ? new LinkedHashSet<>(entry.getTags()) : Set.of();
+    }
+
+    private static String userAndTag(String userId, String tag) {
+        return userId + '\u0000' + tag;
+    }
+
+    private static NavigableMap<PageCursor, JournalEntry> indexOf(Map<String, NavigableMap<PageCursor, JournalEntry>> indexes,
+            String key) {
+        return indexes.computeIfAbsent(key, k -> new ConcurrentSkipListMap<>(PAGE_ORDER));
+    }
+
+    private static <K> NavigableMap<K, JournalEntry> lookup(Map<String, NavigableMap<K, JournalEntry>> indexes, String key) {
+        NavigableMap<K, JournalEntry> index = key != null ? indexes.get(key) : null;
+        return index != null ? index : Collections.emptyNavigableMap();
+    }
+
+    private static <K> void removeFrom(Map<String, NavigableMap<K, JournalEntry>> indexes, String key, K entryKey) {
+        indexes.computeIfPresent(key, (k, index) -> {
+            index.remove(entryKey);
+            return index.isEmpty() ? null : index;
+        });
+    }
+
+    private static int occurrences(Set<String> terms, String field) {
+        int count = 0;
+        for (String word : Words.of(field)) {
+            if (terms.contains(word)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private record Hit(JournalEntry entry, int score) {
+    }
+}
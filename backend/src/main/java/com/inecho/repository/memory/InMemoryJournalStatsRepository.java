@@ -0,0 +1,73 @@
+package com.inecho.repository.memory;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalStats;
+import com.inecho.repository.JournalStatsRepository;
+
+/**
+ * In-memory JournalStatsRepository for the 'memory' profile. Rollups are part of the snapshot; one that is
+ * missing is rebuilt from the journal on first read.
+ */
+@Repository
+@Profile("memory")
+public class InMemoryJournalStatsRepository extends InMemoryRepository<JournalStats> implements JournalStatsRepository {
+
+    @Override
+    protected String idOf(JournalStats stats) {
+        return stats.getUserId();
+    }
+
+    @Override
+    protected void setId(JournalStats stats, String id) {
+        stats.setUserId(id);
+    }
+
+    @Override
+    protected boolean versioned() {
+        return false;
+    }
+
+    @Override
+    protected Long versionOf(JournalStats stats) {
+        return null;
+    }
+
+    @Override
+    protected void setVersion(JournalStats stats, Long version) {
+    }
+
+    @Override
+    protected JournalStats copy(JournalStats stats) {
+        JournalStats copy = new JournalStats(stats.getUserId());
+        copy.setEntryCount(stats.getEntryCount());
+        copy.setTagCounts(new TreeMap<>(stats.getTagCounts()));
+        copy.setEntriesPerDay(new TreeMap<>(stats.getEntriesPerDay()));
+        copy.setEntriesPerWeek(new TreeMap<>(stats.getEntriesPerWeek()));
+        return copy;
+    }
+
+    @Override
+    protected void index(JournalStats stats) {
+    }
+
+    @Override
+    protected void unindex(JournalStats stats) {
+    }
+
+    @Override
+    public void increment(String userId, Map<String, Long> changes) {
+        if (!changes.isEmpty()) {
+            modify(userId, null, stats -> changes.forEach(stats::increment));
+        }
+    }
+
+    @Override
+    public void incrementAll(Map<String, Map<String, Long>> changesByUser) {
+        changesByUser.forEach(this::increment);
+    }
+}
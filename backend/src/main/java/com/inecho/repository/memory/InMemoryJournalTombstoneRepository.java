@@ -0,0 +1,90 @@
+package com.inecho.repository.memory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncToken;
+import com.inecho.repository.JournalTombstoneRepository;
+
+/**
+ * In-memory JournalTombstoneRepository for the 'memory' profile. Tombstones are indexed per user in change
+ * order, like the userId_modSeq index. They are kept until the user is deleted rather than expiring.
+ */
+@Repository
+@Profile("memory")
+public class InMemoryJournalTombstoneRepository extends InMemoryRepository<JournalTombstone> implements JournalTombstoneRepository {
+
+    private final Map<String, NavigableMap<SyncToken, JournalTombstone>> byUser = new ConcurrentHashMap<>();
+
+    @Override
+    protected String idOf(JournalTombstone tombstone) {
+        return tombstone.getId();
+    }
+
+    @Override
+    protected void setId(JournalTombstone tombstone, String id) {
+        tombstone.setId(id);
+    }
+
+    @Override
+    protected boolean versioned() {
+        return false;
+    }
+
+    @Override
+    protected Long versionOf(JournalTombstone tombstone) {
+        return null;
+    }
+
+    @Override
+    protected void setVersion(JournalTombstone tombstone, Long version) {
+    }
+
+    @Override
+    protected JournalTombstone copy(JournalTombstone tombstone) {
+        return new JournalTombstone(tombstone.getId(), tombstone.getUserId(), tombstone.getModSeq(), tombstone.getDeletedAt());
+    }
+
+    @Override
+    protected void index(JournalTombstone tombstone) {
+        byUser.computeIfAbsent(tombstone.getUserId(), userId -> new ConcurrentSkipListMap<>(SyncToken.ORDER))
+                .put(SyncToken.of(tombstone), tombstone);
+    }
+
+    @Override
+    protected void unindex(JournalTombstone tombstone) {
+        byUser.computeIfPresent(tombstone.getUserId(), (userId, index) -> {
+            index.remove(SyncToken.of(tombstone));
+            return index.isEmpty() ? null : index;
+        });
+    }
+
+    @Override
+    public List<JournalTombstone> findChangedSince(String userId, SyncToken after, int limit) {
+        NavigableMap<SyncToken, JournalTombstone> changes = byUser.get(userId);
+        if (changes == null) {
+            return List.of();
+        }
+        if (!after.isStart()) {
+            changes = changes.tailMap(after, false);
+        }
+        return changes.values().stream().limit(limit).map(this::copy).toList();
+    }
+
+    @Override
+    public long deleteByUserId(String userId) {
+        List<String> ids = byUser.getOrDefault(userId, Collections.emptyNavigableMap()).values().stream()
+                .map(JournalTombstone::getId)
+                .toList();
+        ids.forEach(this::remove);
+        return ids.size();
+    }
+}
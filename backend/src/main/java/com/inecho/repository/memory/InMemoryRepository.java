@@ -0,0 +1,512 @@
+package com.inecho.repository.memory;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+
+/**
+ * Base of the in-memory storage engine: a concurrent map of documents by id that implements the
+ * MongoRepository contract, including @Version checks, so services can't tell it apart from MongoDB.
+ * Subclasses keep their secondary indexes up to date in {@link #index} and {@link #unindex}.
+ *
+ * Reads are lock-free and always return copies; writes are serialized so a document and its index
+ * entries change together. Query by example matches top-level properties of the probe.
+ */
+public abstract class InMemoryRepository<T> implements MongoRepository<T, String> {
+
+    // Order ids the way MongoDB orders _id values: plain strings before ObjectIds, each by their natural order
+    protected static final Comparator<String> ID_ORDER = Comparator
+            .comparing((String id) -> ObjectId.isValid(id))
+            .thenComparing(Comparator.naturalOrder());
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    private final Map<String, T> documents = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+
+    protected abstract String idOf(T document);
+
+    protected abstract void setId(T document, String id);
+
+    protected abstract Long versionOf(T document);
+
+    protected abstract void setVersion(T document, Long version);
+
+    protected abstract T copy(T document);
+
+    // Add a stored document to the secondary indexes
+    protected abstract void index(T document);
+
+    // Remove a stored document from the secondary indexes
+    protected abstract void unindex(T document);
+
+    // Reject a write that would violate a unique index; previous is the version being replaced, if any
+    protected void checkUnique(T document, T previous) {
+    }
+
+    // False for documents without a @Version property, which save() overwrites like MongoDB does
+    protected boolean versioned() {
+        return true;
+    }
+
+    // Ids are generated like MongoDB's so they sort by creation time and keyset cursors work the same way
+    protected static String newId() {
+        return new ObjectId().toHexString();
+    }
+
+    // Replace the contents, e.g. from a snapshot
+    public void restore(Collection<T> snapshot) {
+        synchronized (writeLock) {
+            documents.values().forEach(this::unindex);
+            documents.clear();
+            for (T document : snapshot) {
+                T stored = copy(document);
+                documents.put(idOf(stored), stored);
+                index(stored);
+            }
+        }
+    }
+
+    // Copies of all documents, e.g. for a snapshot
+    public List<T> snapshot() {
+        return copies(documents.values());
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        synchronized (writeLock) {
+            if (idOf(entity) == null) {
+                setId(entity, newId());
+            }
+            T previous = documents.get(idOf(entity));
+            Long version = versionOf(entity);
+            if (!versioned()) {
+                store(copy(entity), previous);
+                return entity;
+            }
+            if (version == null) {
+                // New document, inserted like Spring Data inserts unversioned entities
+                if (previous != null) {
+                    throw new DuplicateKeyException("Duplicate id " + idOf(entity));
+                }
+                setVersion(entity, 0L);
+            } else {
+                if (previous == null || !version.equals(versionOf(previous))) {
+                    throw new OptimisticLockingFailureException(
+                            "Document " + idOf(entity) + " was modified after version " + version);
+                }
+                setVersion(entity, version + 1);
+            }
+            store(copy(entity), previous);
+            return entity;
+        }
+    }
+
+    @Override
+    public <S extends T> S insert(S entity) {
+        synchronized (writeLock) {
+            if (idOf(entity) == null) {
+                setId(entity, newId());
+            }
+            T previous = documents.get(idOf(entity));
+            if (previous != null) {
+                throw new DuplicateKeyException("Duplicate id " + idOf(entity));
+            }
+            if (versionOf(entity) == null) {
+                setVersion(entity, 0L);
+            }
+            store(copy(entity), null);
+            return entity;
+        }
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        entities.forEach(entity -> inserted.add(insert(entity)));
+        return inserted;
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(entity -> saved.add(save(entity)));
+        return saved;
+    }
+
+    // Apply changes to a copy of the stored document and bump its version, all under the write lock.
+    // Empty when there is no such document or its version no longer matches expectedVersion.
+    protected Optional<T> modify(String id, Long expectedVersion, Consumer<T> changes) {
+        return apply(id, expectedVersion, changes).map(modification -> copy(modification.updated()));
+    }
+
+    // Like modify, but returns the document as it was before the changes
+    protected Optional<T> findAndModify(String id, Long expectedVersion, Consumer<T> changes) {
+        return apply(id, expectedVersion, changes).map(Modification::previous);
+    }
+
+    private Optional<Modification<T>> apply(String id, Long expectedVersion, Consumer<T> changes) {
+        synchronized (writeLock) {
+            T previous = documents.get(id);
+            if (previous == null || (expectedVersion != null && !expectedVersion.equals(versionOf(previous)))) {
+                return Optional.empty();
+            }
+            T updated = copy(previous);
+            changes.accept(updated);
+            setVersion(updated, versionOf(previous) == null ? 1L : versionOf(previous) + 1);
+            store(updated, previous);
+            return Optional.of(new Modification<>(previous, updated));
+        }
+    }
+
+    // The replaced document is no longer stored, so it can be handed out without copying
+    private record Modification<T>(T previous, T updated) {
+    }
+
+    private void store(T document, T previous) {
+        checkUnique(document, previous);
+        if (previous != null) {
+            unindex(previous);
+        }
+        documents.put(idOf(document), document);
+        index(document);
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        T document = documents.get(id);
+        return document != null ? Optional.of(copy(document)) : Optional.empty();
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return documents.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return copies(documents.values());
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        List<T> found = new ArrayList<>();
+        ids.forEach(id -> findById(id).ifPresent(found::add));
+        return found;
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        List<T> all = findAll();
+        all.sort(comparator(sort));
+        return all;
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        return page(findAll(pageable.getSort()), pageable);
+    }
+
+    @Override
+    public long count() {
+        return documents.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        remove(id);
+    }
+
+    // Remove a document and return it; null when there was none
+    protected T remove(String id) {
+        synchronized (writeLock) {
+            T removed = documents.remove(id);
+            if (removed != null) {
+                unindex(removed);
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public void delete(T entity) {
+        remove(idOf(entity));
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        restore(List.of());
+    }
+
+    protected List<T> copies(Collection<T> stored) {
+        List<T> copies = new ArrayList<>(stored.size());
+        for (T document : stored) {
+            copies.add(copy(document));
+        }
+        return copies;
+    }
+
+    // Compare by the sort's properties, nulls first in ascending order as MongoDB does
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Comparator<T> comparator(Sort sort) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<T> byProperty = Comparator.comparing(
+                    document -> (Comparable) new BeanWrapperImpl(document).getPropertyValue(order.getProperty()),
+                    Comparator.nullsFirst(Comparator.<Comparable>naturalOrder()));
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        return Optional.ofNullable(findBy(example, FluentQuery.FetchableFluentQuery::oneValue));
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        return matching(example, Sort.unsorted());
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        return matching(example, sort);
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return page(matching(example, pageable.getSort()), pageable);
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        return documents.values().stream().filter(matcher(example)).count();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        return documents.values().stream().anyMatch(matcher(example));
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(new ExampleQuery<>(example, Sort.unsorted(), 0, example.getProbeType()));
+    }
+
+    // Copies of the documents matching the example, in the order of the sort
+    @SuppressWarnings("unchecked")
+    private <S extends T> List<S> matching(Example<S> example, Sort sort) {
+        List<S> found = new ArrayList<>();
+        Predicate<T> matches = matcher(example);
+        for (T document : documents.values()) {
+            if (matches.test(document)) {
+                found.add((S) copy(document));
+            }
+        }
+        found.sort(comparator(sort));
+        return found;
+    }
+
+    // Matches the top-level properties of the probe as MongoDB's query by example does: strings by the
+    // matcher's string matching, other values by equality, nulls only with NullHandler.INCLUDE
+    private Predicate<T> matcher(Example<?> example) {
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(example.getMatcher());
+        BeanWrapperImpl probe = new BeanWrapperImpl(example.getProbe());
+        List<Predicate<BeanWrapperImpl>> conditions = new ArrayList<>();
+        for (PropertyDescriptor property : probe.getPropertyDescriptors()) {
+            String path = property.getName();
+            if (property.getReadMethod() == null || path.equals("class") || accessor.isIgnoredPath(path)) {
+                continue;
+            }
+            Optional<Object> expected = accessor.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(probe.getPropertyValue(path)));
+            if (expected.isEmpty() && accessor.getNullHandler() == ExampleMatcher.NullHandler.IGNORE) {
+                continue;
+            }
+            Predicate<Object> matchesValue = expected
+                    .map(value -> valueMatcher(value, accessor.getStringMatcherForPath(path),
+                            accessor.isIgnoreCaseForPath(path)))
+                    .orElse(Objects::isNull);
+            conditions.add(document -> matchesValue.test(document.getPropertyValue(path)));
+        }
+        boolean all = example.getMatcher().isAllMatching();
+        return document -> {
+            BeanWrapperImpl properties = new BeanWrapperImpl(document);
+            return all || conditions.isEmpty()
+                    ? conditions.stream().allMatch(condition -> condition.test(properties))
+                    : conditions.stream().anyMatch(condition -> condition.test(properties));
+        };
+    }
+
+    private static Predicate<Object> valueMatcher(Object expected, ExampleMatcher.StringMatcher stringMatcher,
+            boolean ignoreCase) {
+        if (!(expected instanceof String probe)) {
+            return expected::equals;
+        }
+        if (stringMatcher == ExampleMatcher.StringMatcher.REGEX) {
+            Pattern pattern = Pattern.compile(probe, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+            return value -> value instanceof String string && pattern.matcher(string).find();
+        }
+        String wanted = ignoreCase ? probe.toLowerCase(Locale.ROOT) : probe;
+        return value -> {
+            if (!(value instanceof String string)) {
+                return false;
+            }
+            String actual = ignoreCase ? string.toLowerCase(Locale.ROOT) : string;
+            return switch (stringMatcher) {
+                case STARTING -> actual.startsWith(wanted);
+                case ENDING -> actual.endsWith(wanted);
+                case CONTAINING -> actual.contains(wanted);
+                default -> actual.equals(wanted);
+            };
+        };
+    }
+
+    private static <S> Page<S> page(List<S> all, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(new ArrayList<>(all.subList(from, to)), pageable, all.size());
+    }
+
+    // The fluent query of findBy. Interface projections are proxies over the whole document; property
+    // projections are ignored, since they would only narrow what MongoDB sends. Scrolling isn't supported.
+    private final class ExampleQuery<S extends T, R> implements FluentQuery.FetchableFluentQuery<R> {
+
+        private final Example<S> example;
+        private final Sort sort;
+        private final int limit;  // 0 for all
+        private final Class<R> resultType;
+
+        ExampleQuery(Example<S> example, Sort sort, int limit, Class<R> resultType) {
+            this.example = example;
+            this.sort = sort;
+            this.limit = limit;
+            this.resultType = resultType;
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> sortBy(Sort sort) {
+            return new ExampleQuery<>(example, this.sort.and(sort), limit, resultType);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> limit(int limit) {
+            return new ExampleQuery<>(example, sort, limit, resultType);
+        }
+
+        @Override
+        public <N> FluentQuery.FetchableFluentQuery<N> as(Class<N> resultType) {
+            return new ExampleQuery<>(example, sort, limit, resultType);
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> project(Collection<String> properties) {
+            return this;
+        }
+
+        @Override
+        public R oneValue() {
+            List<R> found = results(matching(example, sort), 2);
+            if (found.size() > 1) {
+                throw new IncorrectResultSizeDataAccessException(1, found.size());
+            }
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        @Override
+        public R firstValue() {
+            List<R> found = results(matching(example, sort), 1);
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        @Override
+        public List<R> all() {
+            return results(matching(example, sort), limit);
+        }
+
+        @Override
+        public Page<R> page(Pageable pageable) {
+            return InMemoryRepository.page(results(matching(example, sort.and(pageable.getSort())), limit), pageable);
+        }
+
+        @Override
+        public Stream<R> stream() {
+            return all().stream();
+        }
+
+        @Override
+        public long count() {
+            long count = InMemoryRepository.this.count(example);
+            return limit > 0 ? Math.min(count, limit) : count;
+        }
+
+        @Override
+        public boolean exists() {
+            return InMemoryRepository.this.exists(example);
+        }
+
+        private List<R> results(List<S> documents, int max) {
+            List<S> kept = max > 0 && documents.size() > max ? documents.subList(0, max) : documents;
+            List<R> results = new ArrayList<>(kept.size());
+            for (S document : kept) {
+                results.add(convert(document));
+            }
+            return results;
+        }
+
+        private R convert(S document) {
+            if (resultType.isInstance(document)) {
+                return resultType.cast(document);
+            }
+            if (resultType.isInterface()) {
+                return PROJECTIONS.createProjection(resultType, document);
+            }
+            throw new IllegalArgumentException("Can't convert " + document.getClass().getSimpleName() + " to "
+                    + resultType.getSimpleName() + " in the in-memory store; use an interface projection");
+        }
+    }
+}
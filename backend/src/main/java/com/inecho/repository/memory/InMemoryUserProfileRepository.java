@@ -0,0 +1,118 @@
+package com.inecho.repository.memory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import com.inecho.model.UserProfile;
+import com.inecho.repository.UserProfileRepository;
+
+/**
+ * In-memory UserProfileRepository for the 'memory' profile. Profiles are indexed in id order for keyset
+ * pages and by email, which is unique like the sparse unique index on UserProfile.
+ */
+@Repository
+@Profile("memory")
+public class InMemoryUserProfileRepository extends InMemoryRepository<UserProfile> implements UserProfileRepository {
+
+    private final NavigableMap<String, UserProfile> byId = new ConcurrentSkipListMap<>(ID_ORDER);
+
+    private final Map<String, UserProfile> byEmail = new ConcurrentHashMap<>();
+
+    @Override
+    protected String idOf(UserProfile profile) {
+        return profile.getId();
+    }
+
+    @Override
+    protected void setId(UserProfile profile, String id) {
+        profile.setId(id);
+    }
+
+    @Override
+    protected Long versionOf(UserProfile profile) {
+        return profile.getVersion();
+    }
+
+    @Override
+    protected void setVersion(UserProfile profile, Long version) {
+        profile.setVersion(version);
+    }
+
+    @Override
+    protected UserProfile copy(UserProfile profile) {
+        UserProfile copy = new UserProfile(profile.getName(), profile.getEmail());
+        copy.setId(profile.getId());
+        copy.setVersion(profile.getVersion());
+        return copy;
+    }
+
+    @Override
+    protected void index(UserProfile profile) {
+        byId.put(profile.getId(), profile);
+        if (profile.getEmail() != null) {
+            byEmail.put(profile.getEmail(), profile);
+        }
+    }
+
+    @Override
+    protected void unindex(UserProfile profile) {
+        byId.remove(profile.getId());
+        if (profile.getEmail() != null) {
+            byEmail.remove(profile.getEmail(), profile);
+        }
+    }
+
+    @Override
+    protected void checkUnique(UserProfile profile, UserProfile previous) {
+        UserProfile owner = profile.getEmail() != null ? byEmail.get(profile.getEmail()) : null;
+        if (owner != null && !owner.getId().equals(profile.getId())) {
+            throw new DuplicateKeyException("Duplicate email " + profile.getEmail());
+        }
+    }
+
+    @Override
+    public Optional<UserProfile> findByEmail(String email) {
+        UserProfile profile = email != null ? byEmail.get(email) : null;
+        return profile != null ? Optional.of(copy(profile)) : Optional.empty();
+    }
+
+    @Override
+    public List<UserProfile> findAllByOrderByIdAsc(Pageable pageable) {
+        return page(byId, pageable);
+    }
+
+    @Override
+    public List<UserProfile> findByIdGreaterThanOrderByIdAsc(ObjectId id, Pageable pageable) {
+        return page(byId.tailMap(id.toHexString(), false), pageable);
+    }
+
+    @Override
+    public Optional<UserProfile> updateFields(String id, Long expectedVersion, UserProfile changes, boolean replace) {
+        return modify(id, expectedVersion, profile -> {
+            if (changes.getName() != null || replace) {
+                profile.setName(changes.getName());
+            }
+            if (changes.getEmail() != null || replace) {
+                profile.setEmail(changes.getEmail());
+            }
+        });
+    }
+
+    private List<UserProfile> page(NavigableMap<String, UserProfile> profiles, Pageable pageable) {
+        return profiles.values().stream()
+                .skip(pageable.isPaged() ? pageable.getOffset() : 0)
+                .limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+                .map(this::copy)
+                .toList();
+    }
+}
@@ -0,0 +1,167 @@
+package com.inecho.repository.memory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalStats;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.UserProfile;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional persistence for the in-memory store: when inecho.memory.snapshot-path is set, the data is
+ * loaded from that file at startup and written back periodically and on shutdown. The file is read and
+ * written through a memory-mapped buffer, and replaced atomically so a crash mid-write keeps the last
+ * complete snapshot.
+ */
+@Component
+@Profile("memory")
+@RegisterReflectionForBinding({ MemorySnapshots.Snapshot.class, MemorySnapshots.FullPrecisionDates.class })
+public class MemorySnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(MemorySnapshots.class);
+
+    @Autowired
+    private InMemoryJournalEntryRepository journalEntries;
+
+    @Autowired
+    private InMemoryUserProfileRepository userProfiles;
+
+    @Autowired
+    private InMemoryJournalTombstoneRepository journalTombstones;
+
+    @Autowired
+    private InMemoryJournalStatsRepository journalStats;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${inecho.memory.snapshot-path:}")
+    private String snapshotPath;
+
+    @Value("${inecho.memory.snapshot-interval:5m}")
+    private Duration snapshotInterval;
+
+    private ObjectMapper snapshotMapper;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (snapshotPath.isBlank()) {
+            return;
+        }
+        // Keep full date precision; the API's @JsonFormat drops fractions of a second
+        snapshotMapper = objectMapper.copy().addMixIn(JournalEntry.class, FullPrecisionDates.class);
+        load(Path.of(snapshotPath));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inecho-memory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = snapshotInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::saveQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            saveQuietly();
+        }
+    }
+
+    void load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            log.info("No snapshot at {}, starting with an empty in-memory store", path);
+            return;
+        }
+        Snapshot snapshot;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try (InputStream in = new ByteBufferBackedInputStream(buffer)) {
+                snapshot = snapshotMapper.readValue(in, Snapshot.class);
+            }
+        }
+        journalEntries.restore(snapshot.journalEntries);
+        userProfiles.restore(snapshot.userProfiles);
+        journalTombstones.restore(snapshot.journalTombstones);
+        journalStats.restore(snapshot.journalStats);
+        log.info("Loaded {} journal entries and {} user profiles from {}",
+                snapshot.journalEntries.size(), snapshot.userProfiles.size(), path);
+    }
+
+    void save(Path path) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.takenAt = LocalDateTime.now();
+        snapshot.journalEntries = journalEntries.snapshot();
+        snapshot.userProfiles = userProfiles.snapshot();
+        snapshot.journalTombstones = journalTombstones.snapshot();
+        snapshot.journalStats = journalStats.snapshot();
+        byte[] bytes = snapshotMapper.writeValueAsBytes(snapshot);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes.length);
+            buffer.put(bytes);
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveQuietly() {
+        try {
+            save(Path.of(snapshotPath));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Writing the in-memory store snapshot to {} failed", snapshotPath, e);
+        }
+    }
+
+    static class Snapshot {
+        public LocalDateTime takenAt;
+        public List<JournalEntry> journalEntries = new ArrayList<>();
+        public List<UserProfile> userProfiles = new ArrayList<>();
+        // Kept so sync clients still learn about deletions after a restart
+        public List<JournalTombstone> journalTombstones = new ArrayList<>();
+        // Empty in snapshots from before rollups were kept; those are rebuilt from the journal on first read
+        public List<JournalStats> journalStats = new ArrayList<>();
+    }
+
+    // Lombok copies @JsonFormat onto the generated setter, so that needs overriding as well
+    abstract static class FullPrecisionDates {
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        private LocalDateTime date;
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING)
+        abstract void setDate(LocalDateTime date);
+    }
+}
@@ -0,0 +1,187 @@
+package com.inecho.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+// Admission control in front of the API, applied per request by the web layer of either stack. A request
+// takes a slot in the bulkhead of its cost (a full one is a 503), then tokens from the bucket of its remote
+// address and from that of its user under the address (too few is a 429); both come with Retry-After. A
+// request costs one token, an expensive one expensive-cost. The userId is the caller's say-so, so it only
+// splits an address's budget between the users behind it and never adds to it. It is only read from the
+// query, so writes carrying the user in their body are limited per address alone.
+@Component
+public class AdmissionControl {
+
+    public static final String REJECTED = "inecho.admission.rejected";
+    public static final String IN_FLIGHT = "inecho.admission.in-flight";
+
+    // What a request costs. STREAM is for long-lived subscriptions, which are rate limited but hold no
+    // bulkhead slot since they mostly wait. EXPORT costs as many tokens as EXPENSIVE but holds its slot for
+    // as long as the export is downloading, so it mustn't take the slots searches and listings need.
+    public enum Cost { CHEAP, EXPENSIVE, STREAM, EXPORT }
+
+    // Why a request was turned away and how many seconds to wait before retrying
+    public record Rejection(HttpStatus status, long retryAfterSeconds) { }
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${inecho.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inecho.admission.rate:20}")
+    private double rate;
+
+    @Value("${inecho.admission.burst:100}")
+    private double burst;
+
+    @Value("${inecho.admission.address-rate:200}")
+    private double addressRate;
+
+    @Value("${inecho.admission.address-burst:1000}")
+    private double addressBurst;
+
+    @Value("${inecho.admission.expensive-cost:10}")
+    private int expensiveCost;
+
+    @Value("${inecho.admission.cheap-concurrency:150}")
+    private int cheapConcurrency;
+
+    @Value("${inecho.admission.expensive-concurrency:16}")
+    private int expensiveConcurrency;
+
+    @Value("${inecho.admission.export-concurrency:4}")
+    private int exportConcurrency;
+
+    private LongSupplier clock = System::nanoTime;
+
+    private Cache<String, TokenBucket> buckets;
+
+    private final Map<Cost, Semaphore> bulkheads = new EnumMap<>(Cost.class);
+
+    @PostConstruct
+    void start() {
+        if (expensiveCost > Math.min(burst, addressBurst)) {
+            throw new IllegalArgumentException("inecho.admission.expensive-cost is larger than a burst, "
+                    + "so expensive requests could never be admitted");
+        }
+        // A bucket left alone this long is full again, the same as a new one
+        double refillSeconds = Math.max(burst / rate, addressBurst / addressRate);
+        Duration refill = Duration.ofNanos((long) (refillSeconds * TimeUnit.SECONDS.toNanos(1)));
+        buckets = Caffeine.newBuilder()
+                .expireAfterAccess(refill.plusMinutes(1))
+                .build();
+
+        bulkheads.put(Cost.CHEAP, bulkhead(Cost.CHEAP, cheapConcurrency));
+        bulkheads.put(Cost.EXPENSIVE, bulkhead(Cost.EXPENSIVE, expensiveConcurrency));
+        bulkheads.put(Cost.EXPORT, bulkhead(Cost.EXPORT, exportConcurrency));
+    }
+
+    // Admit a request from the remote address, for the user it names if any; null when admitted, and
+    // release(cost) must then follow once the request completes
+    public Rejection admit(String address, String userId, Cost cost) {
+        if (!enabled) {
+            return null;
+        }
+        Semaphore bulkhead = bulkheads.get(cost);
+        if (bulkhead != null && !bulkhead.tryAcquire()) {
+            rejected("bulkhead", cost);
+            return new Rejection(HttpStatus.SERVICE_UNAVAILABLE, 1);
+        }
+        int tokens = tokens(cost);
+        TokenBucket addressBucket = buckets.get("address:" + address,
+                key -> new TokenBucket(addressRate, addressBurst));
+        long wait = addressBucket.take(tokens);
+        if (wait == 0 && userId != null && !userId.isBlank()) {
+            wait = buckets.get("user:" + address + "/" + userId, key -> new TokenBucket(rate, burst)).take(tokens);
+            if (wait > 0) {
+                addressBucket.refund(tokens);
+            }
+        }
+        if (wait > 0) {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+            rejected("rate", cost);
+            // Whole seconds, rounded up
+            return new Rejection(HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1);
+        }
+        return null;
+    }
+
+    public void release(Cost cost) {
+        Semaphore bulkhead = bulkheads.get(cost);
+        if (enabled && bulkhead != null) {
+            bulkhead.release();
+        }
+    }
+
+    private int tokens(Cost cost) {
+        return cost == Cost.EXPENSIVE || cost == Cost.EXPORT ? expensiveCost : 1;
+    }
+
+    private Semaphore bulkhead(Cost cost, int concurrency) {
+        Semaphore bulkhead = new Semaphore(concurrency);
+        Gauge.builder(IN_FLIGHT, bulkhead, permits -> concurrency - permits.availablePermits())
+                .description("Requests holding a slot of the bulkhead")
+                .tag("cost", name(cost))
+                .register(registry);
+        return bulkhead;
+    }
+
+    private void rejected(String reason, Cost cost) {
+        registry.counter(REJECTED, "reason", reason, "cost", name(cost)).increment();
+    }
+
+    private static String name(Cost cost) {
+        return cost.name().toLowerCase(Locale.ROOT);
+    }
+
+    private final class TokenBucket {
+
+        private final double rate;
+        private final double burst;
+        private double tokens;
+        private long refilled = clock.getAsLong();
+
+        TokenBucket(double rate, double burst) {
+            this.rate = rate;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        // Take the tokens if there are enough; otherwise nanoseconds until there will be
+        synchronized long take(int wanted) {
+            long now = clock.getAsLong();
+            tokens = Math.min(burst, tokens + (now - refilled) * rate / TimeUnit.SECONDS.toNanos(1));
+            refilled = now;
+            if (tokens >= wanted) {
+                tokens -= wanted;
+                return 0;
+            }
+            return (long) Math.ceil((wanted - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        // Give back tokens taken for a request that was turned away after all
+        synchronized void refund(int taken) {
+            tokens = Math.min(burst, tokens + taken);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.inecho.service;
+
+// Thrown when a request is turned away because the server is at capacity for its kind of work, e.g. too many
+// imports running; controllers answer it with 503 and Retry-After
+public class CapacityExceededException extends RuntimeException {
+
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+
+    public CapacityExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
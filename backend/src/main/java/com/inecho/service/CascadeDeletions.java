@@ -0,0 +1,36 @@
+package com.inecho.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.inecho.model.CascadeDeletion;
+
+// Cascade deletions of this instance by user ID, kept for an hour after they finish so clients can poll the outcome.
+// Progress isn't shared between instances: a poll reaching another one gets a 404, and repeating the cascading
+// delete there, which is safe, resumes the deletion and reports its progress from then on.
+@Component
+public class CascadeDeletions {
+
+    private static final long RETAIN_FINISHED_HOURS = 1;
+
+    private final Map<String, CascadeDeletion> deletions = new ConcurrentHashMap<>();
+
+    // Register a new deletion for the user; null if one is already running
+    public CascadeDeletion begin(String userId) {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(RETAIN_FINISHED_HOURS);
+        deletions.values().removeIf(deletion -> deletion.getFinishedAt() != null && deletion.getFinishedAt().isBefore(cutoff));
+
+        CascadeDeletion started = new CascadeDeletion(userId);
+        CascadeDeletion current = deletions.compute(userId, (key, existing) ->
+                existing != null && existing.getState() == CascadeDeletion.State.RUNNING ? existing : started);
+        return current == started ? started : null;
+    }
+
+    public Optional<CascadeDeletion> get(String userId) {
+        return Optional.ofNullable(deletions.get(userId));
+    }
+}
@@ -0,0 +1,25 @@
+package com.inecho.service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Modification sequence numbers for delta sync: microseconds since the epoch, strictly increasing within
+// this process. Across instances they are only as ordered as the clocks; the sync settle window covers that.
+public final class ChangeSequence {
+
+    private static final AtomicLong last = new AtomicLong();
+
+    private ChangeSequence() {
+    }
+
+    // The sequence number for a write happening now
+    public static long next() {
+        long now = at(Instant.now());
+        return last.updateAndGet(previous -> Math.max(previous + 1, now));
+    }
+
+    // The sequence numbers writes got at the given time start from here
+    public static long at(Instant time) {
+        return Math.multiplyExact(time.getEpochSecond(), 1_000_000L) + time.getNano() / 1_000;
+    }
+}
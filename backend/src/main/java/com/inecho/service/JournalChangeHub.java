@@ -0,0 +1,285 @@
+package com.inecho.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.inecho.model.JournalChange;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Fans the changes read from the change stream out to the push subscribers of each user. Every subscriber
+// gets a bounded buffer drained on the hub's own sender pool, so slow clients never hold up other work: once
+// a buffer is full, or no sender is free, the subscriber is disconnected and reconnects with the id of the last
+// change it got. The most recent changes are kept to replay to reconnecting clients; one that missed more is
+// told to delta-sync instead.
+@Component
+public class JournalChangeHub {
+
+    public static final String SUBSCRIBERS = "inecho.changes.subscribers";
+    public static final String DROPPED = "inecho.changes.dropped";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${inecho.changes.send-threads:16}")
+    private int sendThreads;
+
+    @Value("${inecho.changes.send-queue:1000}")
+    private int sendQueue;
+
+    @Value("${inecho.changes.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${inecho.changes.replay-size:10000}")
+    private int replaySize;
+
+    @Value("${inecho.changes.heartbeat:30s}")
+    private Duration heartbeat;
+
+    // Recent changes in stream order; also guards subscribing against publishing, so a reconnecting
+    // client gets every change exactly once across replay and live delivery
+    private final Deque<JournalChange> recent = new ArrayDeque<>();
+
+    private final Map<String, Set<Subscription>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private ScheduledExecutorService heartbeats;
+
+    private ExecutorService senderPool;
+
+    // Where subscriber buffers are drained; the sender pool outside tests
+    private Executor senders;
+
+    private Counter dropped;
+
+    // Writes one change to a subscriber's connection; may block until the client has read it
+    @FunctionalInterface
+    public interface Sender {
+        void send(JournalChange change) throws IOException;
+    }
+
+    @PostConstruct
+    void start() {
+        Gauge.builder(SUBSCRIBERS, subscriberCount, AtomicInteger::get)
+                .description("Open push subscriptions")
+                .register(registry);
+        dropped = Counter.builder(DROPPED)
+                .description("Push subscribers disconnected because they fell behind or their connection failed")
+                .register(registry);
+
+        AtomicInteger senderCount = new AtomicInteger();
+        senderPool = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(sendQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "inecho-change-sender-" + senderCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        senders = senderPool;
+
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inecho-change-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleAtFixedRate(this::sendHeartbeats, heartbeat.toMillis(), heartbeat.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(userSubscriptions -> userSubscriptions.forEach(Subscription::close));
+        senderPool.shutdownNow();
+    }
+
+    // Subscribe to the changes of a user. With the id of the last change the client got (Last-Event-ID),
+    // the changes after it are replayed first, or a reset is sent when they are no longer all known.
+    // onDropped is called when the hub disconnects the subscriber; close the subscription when the
+    // client goes away.
+    public Subscription subscribe(String userId, String lastEventId, Sender sender, Runnable onDropped) {
+        Subscription subscription = new Subscription(userId, sender, onDropped);
+        synchronized (recent) {
+            subscriberCount.incrementAndGet();
+            subscribers.compute(userId, (key, userSubscriptions) -> {
+                Set<Subscription> added = userSubscriptions != null ? userSubscriptions : ConcurrentHashMap.newKeySet();
+                added.add(subscription);
+                return added;
+            });
+            if (lastEventId != null) {
+                List<JournalChange> missed = changesAfter(userId, lastEventId);
+                if (missed == null || missed.size() > subscriberBuffer) {
+                    subscription.offer(JournalChange.reset(userId));
+                } else {
+                    missed.forEach(subscription::offer);
+                }
+            }
+        }
+        return subscription;
+    }
+
+    // Deliver a change to the subscribers of its user and keep it for replay. Entries without a user have no
+    // subscribers and are skipped.
+    public void publish(JournalChange change) {
+        if (change.getUserId() == null) {
+            return;
+        }
+        synchronized (recent) {
+            if (change.getId() != null) {
+                recent.addLast(change);
+                while (recent.size() > replaySize) {
+                    recent.removeFirst();
+                }
+            }
+            Set<Subscription> userSubscriptions = subscribers.get(change.getUserId());
+            if (userSubscriptions != null) {
+                userSubscriptions.forEach(subscription -> subscription.offer(change));
+            }
+        }
+    }
+
+    // The change stream lost its place, so changes may have been missed: tell every subscriber to
+    // delta-sync, and reconnecting ones too since the ids they send are no longer known
+    public void resetAll() {
+        synchronized (recent) {
+            recent.clear();
+            subscribers.forEach((userId, userSubscriptions) ->
+                    userSubscriptions.forEach(subscription -> subscription.offer(JournalChange.reset(userId))));
+        }
+    }
+
+    // The user's changes after the one with the given id, oldest first; null when that id is unknown
+    private List<JournalChange> changesAfter(String userId, String lastEventId) {
+        List<JournalChange> missed = new ArrayList<>();
+        Iterator<JournalChange> newestFirst = recent.descendingIterator();
+        while (newestFirst.hasNext()) {
+            JournalChange change = newestFirst.next();
+            if (change.getId().equals(lastEventId)) {
+                return missed.reversed();
+            }
+            if (userId.equals(change.getUserId())) {
+                missed.add(change);
+            }
+        }
+        return null;
+    }
+
+    private void sendHeartbeats() {
+        JournalChange ping = JournalChange.heartbeat();
+        subscribers.values().forEach(userSubscriptions -> userSubscriptions.forEach(subscription -> subscription.offer(ping)));
+    }
+
+    private void remove(Subscription subscription) {
+        subscribers.computeIfPresent(subscription.userId, (userId, userSubscriptions) -> {
+            userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    // One connected client. Changes are queued here and written by at most one sender at a time.
+    public final class Subscription implements AutoCloseable {
+
+        private final String userId;
+        private final Sender sender;
+        private final Runnable onDropped;
+        private final BlockingQueue<JournalChange> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(String userId, Sender sender, Runnable onDropped) {
+            this.userId = userId;
+            this.sender = sender;
+            this.onDropped = onDropped;
+            this.queue = new ArrayBlockingQueue<>(subscriberBuffer);
+        }
+
+        private void offer(JournalChange change) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(change)) {
+                drop();
+                return;
+            }
+            drainLater();
+        }
+
+        private void drainLater() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    drop();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                JournalChange change;
+                while (!closed.get() && (change = queue.poll()) != null) {
+                    sender.send(change);
+                }
+            } catch (IOException | RuntimeException e) {
+                drop();
+            } finally {
+                draining.set(false);
+            }
+            // A change queued after the last poll but before draining was reset still needs a drain
+            if (!closed.get() && !queue.isEmpty()) {
+                drainLater();
+            }
+        }
+
+        private void drop() {
+            if (closeQuietly()) {
+                dropped.increment();
+                onDropped.run();
+            }
+        }
+
+        private boolean closeQuietly() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            queue.clear();
+            remove(this);
+            return true;
+        }
+
+        // Stop delivering changes, e.g. because the client disconnected
+        @Override
+        public void close() {
+            closeQuietly();
+        }
+    }
+}
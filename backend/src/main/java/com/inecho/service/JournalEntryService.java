@@ -1,34 +1,183 @@
 package com.inecho.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import com.inecho.config.CacheConfig;
+import com.inecho.model.CursorPage;
 import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.PageCursor;
 import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.ReadRoute;
 
 @Service
+@Profile("!reactive")
 public class JournalEntryService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Relevance-ordered results can't be keyset paged, so search paging is offset based and capped
+    public static final int MAX_SEARCH_HITS = 1000;
+
+    public static final int DEFAULT_RELATED = 5;
+    public static final int MAX_RELATED = 20;
+
+    // Listings and search may lag the latest writes by up to inecho.reads.secondary.max-staleness, so they
+    // can be served by secondaries. Lookups by id, sync and writes stay on the primary and see a caller's
+    // own writes straight away.
+    public static final ReadRoute LISTING_READS = ReadRoute.SECONDARY;
+
     @Autowired
     private JournalEntryRepository repository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JournalMetrics metrics;
+
+    @Autowired
+    private JournalStatsService journalStatsService;
+
+    @Autowired
+    private JournalSimilarity journalSimilarity;
+
+    @Autowired
+    private JournalSyncService journalSyncService;
+
+    // Only present with inecho.write-batching.enabled=true
+    @Autowired(required = false)
+    private JournalWriteBatcher writeBatcher;
+
     // Get all journal entries
     public List<JournalEntry> getAllJournalEntries() {
-        return repository.findAll();
+        return recorded("all", repository.findEntries(null, null, LISTING_READS));
     }
 
     // Get journal entries for a specific user
     public List<JournalEntry> getJournalEntriesByUserId(String userId) {
-        return repository.findByUserId(userId);
+        return recorded("user", repository.findEntries(userId, null, LISTING_READS));
+    }
+
+    // Get summaries (no body) of journal entries, optionally filtered by user and/or tag
+    public List<JournalEntrySummary> getJournalEntrySummaries(String userId, String tag) {
+        List<JournalEntrySummary> summaries = repository.findEntrySummaries(userId, tag, LISTING_READS);
+        metrics.recordQuery(JournalMetrics.queryType(userId, tag) + "_summary", summaries.size());
+        return summaries;
+    }
+
+    // Stream journal entries straight from a Mongo cursor, optionally filtered by user and/or tag.
+    // The caller must close the stream.
+    public Stream<JournalEntry> streamJournalEntries(String userId, String tag) {
+        return repository.streamEntries(userId, tag, LISTING_READS);
+    }
+
+    // Stream all of a user's journal entries for an export, newest first, straight from a Mongo cursor and
+    // starting after the given position (null for all of them). The caller must close the stream.
+    public Stream<JournalEntry> streamJournalExport(String userId, PageCursor after) {
+        return repository.streamExport(userId, after, LISTING_READS);
+    }
+
+    // Where an export resumed after the given entry of the user continues; throws IllegalArgumentException
+    // when the user has no such entry (any more)
+    public PageCursor exportPositionAfter(String userId, String entryId) {
+        return getJournalEntryById(entryId)
+                .filter(entry -> userId.equals(entry.getUserId()))
+                .map(PageCursor::of)
+                .orElseThrow(() -> new IllegalArgumentException("No entry " + entryId + " to resume the export after"));
+    }
+
+    // Get one keyset page of journal entries, newest first, optionally filtered by user and/or tag
+    public CursorPage<JournalEntry> getJournalEntriesPage(String userId, String tag, String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+
+        // Fetch one extra row to learn whether another page follows without a count query
+        CursorPage<JournalEntry> page = keysetPage(repository.findPage(userId, tag, after, pageSize + 1, LISTING_READS), pageSize);
+        metrics.recordQuery(JournalMetrics.queryType(userId, tag) + "_page", page.getItems().size());
+        return page;
+    }
+
+    // Same keyset page as getJournalEntriesPage, with summaries (no body) instead of full entries
+    public CursorPage<JournalEntrySummary> getJournalEntrySummariesPage(String userId, String tag, String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+
+        CursorPage<JournalEntrySummary> page = keysetPage(repository.findSummaryPage(userId, tag, after, pageSize + 1, LISTING_READS),
+                pageSize, PageCursor::of);
+        metrics.recordQuery(JournalMetrics.queryType(userId, tag) + "_summary_page", page.getItems().size());
+        return page;
+    }
+
+    // Build a page from up to pageSize + 1 fetched entries; the extra entry only signals that more follow
+    static CursorPage<JournalEntry> keysetPage(List<JournalEntry> fetched, int pageSize) {
+        return keysetPage(fetched, pageSize, PageCursor::of);
+    }
+
+    static <T> CursorPage<T> keysetPage(List<T> fetched, int pageSize, Function<T, PageCursor> position) {
+        if (fetched.size() <= pageSize) {
+            return new CursorPage<>(fetched, null);
+        }
+
+        List<T> page = fetched.subList(0, pageSize);
+        return new CursorPage<>(page, position.apply(page.get(pageSize - 1)).encode());
+    }
+
+    // Clamp a requested page size to the supported range
+    public static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("offset:" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int decodeOffset(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith("offset:")) {
+                int offset = Integer.parseInt(raw.substring("offset:".length()));
+                if (offset >= 0 && offset < MAX_SEARCH_HITS) {
+                    return offset;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Fall through to the common error below
+        }
+        throw new IllegalArgumentException("Malformed cursor: " + cursor);
     }
 
-    // Get a specific journal entry by ID
+    // Get a specific journal entry by ID, served from the cache when possible. Writes evict the entry rather
+    // than caching what they wrote, and callers get a copy of the cached one.
     public Optional<JournalEntry> getJournalEntryById(String id) {
-        return repository.findById(id);
+        return CacheConfig.readThrough(entryCache(), id, () -> repository.findById(id)).map(JournalEntry::copy);
     }
 
     // Create a new journal entry
@@ -37,47 +186,168 @@ public class JournalEntryService {
         if (journalEntry.getDate() == null) {
             journalEntry.setDate(LocalDateTime.now());
         }
-        return repository.save(journalEntry);
+        // A new entry always starts at the first version, whatever the client sent. It's inserted, so an ID
+        // that's already taken fails with a DuplicateKeyException instead of overwriting that entry.
+        journalEntry.setVersion(null);
+        journalEntry.setModSeq(ChangeSequence.next());
+        if (writeBatcher != null) {
+            // The batcher records the whole batch in the stats and the similarity index at once
+            return awaitWrite(writeBatcher.insert(journalEntry));
+        }
+        JournalEntry savedEntry = repository.save(journalEntry);
+        journalStatsService.recordChange(null, savedEntry);
+        journalSimilarity.recordChange(null, savedEntry);
+        return savedEntry;
+    }
+
+    // Wait for a batched write, rethrowing its failure as is. Only writes still queued time out, so one that
+    // timed out wasn't made.
+    private static JournalEntry awaitWrite(CompletableFuture<JournalEntry> write) {
+        try {
+            return write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof TimeoutException) {
+                throw new CapacityExceededException("Journal entry not written in time", e.getCause());
+            }
+            throw e;
+        }
     }
 
-    // Update an existing journal entry
+    // Update an existing journal entry, replacing its title, body and tags
     public Optional<JournalEntry> updateJournalEntry(String id, JournalEntry journalEntry) {
-        Optional<JournalEntry> existingEntry = repository.findById(id);
-        
-        if (existingEntry.isPresent()) {
-            JournalEntry updatedEntry = existingEntry.get();
-            updatedEntry.setTitle(journalEntry.getTitle());
-            updatedEntry.setBody(journalEntry.getBody());
-            updatedEntry.setTags(journalEntry.getTags());
-            // Don't update the date or userId
-            
-            return Optional.of(repository.save(updatedEntry));
-        }
-        
+        return applyChanges(id, journalEntry, true);
+    }
+
+    // Partially update an existing journal entry; only the fields present in the request are changed
+    public Optional<JournalEntry> patchJournalEntry(String id, JournalEntry changes) {
+        return applyChanges(id, changes, false);
+    }
+
+    // Update in a single findAndModify rather than read-modify-write, so edits of different fields from two
+    // devices both survive. If the request carries a version, the update is rejected with an
+    // OptimisticLockingFailureException when the entry has changed since that version.
+    private Optional<JournalEntry> applyChanges(String id, JournalEntry changes, boolean replace) {
+        changes.setModSeq(ChangeSequence.next());
+        Optional<JournalEntry> previousEntry = repository.findAndUpdateFields(id, changes.getVersion(), changes, replace);
+        if (previousEntry.isPresent()) {
+            // The previous state tells the stats which tags were removed
+            JournalEntry updatedEntry = previousEntry.get().withChanges(changes, replace);
+            entryCache().evict(id);
+            journalStatsService.recordChange(previousEntry.get(), updatedEntry);
+            journalSimilarity.recordChange(previousEntry.get(), updatedEntry);
+            return Optional.of(updatedEntry);
+        }
+
+        entryCache().evict(id);
+        // Only a failed version check needs the extra round trip to tell a conflict from a missing entry
+        if (changes.getVersion() != null && repository.existsById(id)) {
+            throw new OptimisticLockingFailureException(
+                    "Journal entry " + id + " was modified after version " + changes.getVersion());
+        }
         return Optional.empty();
     }
 
-    // Delete a journal entry
+    // Delete a journal entry; false if it didn't exist
     public boolean deleteJournalEntry(String id) {
-        if (repository.existsById(id)) {
-            repository.deleteById(id);
-            return true;
+        Optional<JournalEntry> deletedEntry = repository.findAndDelete(id);
+        entryCache().evict(id);
+        deletedEntry.ifPresent(entry -> {
+            journalStatsService.recordChange(entry, null);
+            journalSimilarity.recordChange(entry, null);
+            journalSyncService.recordDeleted(entry);
+        });
+        return deletedEntry.isPresent();
+    }
+
+    private Cache entryCache() {
+        return cacheManager.getCache(CacheConfig.JOURNAL_ENTRIES);
+    }
+
+    // Full-text search over title, body and tags, best matches first, optionally limited to one user
+    public CursorPage<JournalEntry> searchJournalEntries(String searchText, String userId, String cursor, Integer limit) {
+        if (searchText == null || searchText.isBlank()) {
+            throw new IllegalArgumentException("query must not be blank");
+        }
+        int pageSize = pageSize(limit);
+        int offset = cursor != null ? decodeOffset(cursor) : 0;
+
+        CursorPage<JournalEntry> page = searchPage(repository.searchText(userId, searchText, offset, pageSize + 1, LISTING_READS), offset, pageSize);
+        metrics.recordSearch(page.getItems().size());
+        return page;
+    }
+
+    // The best MAX_SEARCH_HITS matches of an unpaged search, best first
+    public List<JournalEntry> searchJournalEntries(String searchText, String userId) {
+        if (searchText == null || searchText.isBlank()) {
+            throw new IllegalArgumentException("query must not be blank");
         }
-        return false;
+        List<JournalEntry> hits = repository.searchText(userId, searchText, 0, MAX_SEARCH_HITS, LISTING_READS);
+        metrics.recordSearch(hits.size());
+        return hits;
     }
 
-    // Search journal entries by text in title or body
-    public List<JournalEntry> searchJournalEntries(String searchText) {
-        return repository.findByTitleContainingIgnoreCaseOrBodyContainingIgnoreCase(searchText, searchText);
+    // Build a search page from up to pageSize + 1 hits starting at offset
+    static CursorPage<JournalEntry> searchPage(List<JournalEntry> hits, int offset, int pageSize) {
+        if (hits.size() <= pageSize || offset + pageSize >= MAX_SEARCH_HITS) {
+            return new CursorPage<>(hits.subList(0, Math.min(hits.size(), pageSize)), null);
+        }
+        return new CursorPage<>(hits.subList(0, pageSize), encodeOffset(offset + pageSize));
+    }
+
+    // Summaries of the entries of the same user most similar to the given one by their title, body and tags,
+    // most similar first; empty when there's no such entry. The first request for a user indexes their journal.
+    public Optional<List<JournalEntrySummary>> getRelatedEntries(String id, Integer limit) {
+        int count = relatedCount(limit);
+        Optional<JournalEntry> entry = getJournalEntryById(id);
+        if (entry.isEmpty() || entry.get().getUserId() == null) {
+            return entry.map(unowned -> List.of());
+        }
+        String userId = entry.get().getUserId();
+        if (!journalSimilarity.isIndexed(userId)) {
+            try (Stream<JournalEntry> entries = repository.streamExport(userId, null, ReadRoute.PRIMARY)) {
+                journalSimilarity.index(userId, entries::iterator);
+            }
+        }
+        List<String> ids = journalSimilarity.related(entry.get(), count);
+        List<JournalEntrySummary> related = ids.isEmpty() ? List.of()
+                : inRankOrder(ids, repository.findSummariesByIdIn(ids));
+        metrics.recordQuery("related", related.size());
+        return Optional.of(related);
+    }
+
+    // Clamp a requested number of related entries to the supported range
+    static int relatedCount(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_RELATED;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, MAX_RELATED);
+    }
+
+    // The summaries in the order of the ranked ids; ids of entries deleted meanwhile have no summary
+    static List<JournalEntrySummary> inRankOrder(List<String> ids, List<JournalEntrySummary> summaries) {
+        Map<String, JournalEntrySummary> byId = new HashMap<>();
+        summaries.forEach(summary -> byId.put(summary.getId(), summary));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
     }
 
     // Find journal entries with a specific tag
     public List<JournalEntry> getJournalEntriesByTag(String tag) {
-        return repository.findByTagsContaining(tag);
+        return recorded("tag", repository.findEntries(null, tag, LISTING_READS));
     }
 
     // Find journal entries for a specific user with a specific tag
     public List<JournalEntry> getJournalEntriesByUserIdAndTag(String userId, String tag) {
-        return repository.findByUserIdAndTagsContaining(userId, tag);
+        return recorded("user_tag", repository.findEntries(userId, tag, LISTING_READS));
+    }
+
+    private List<JournalEntry> recorded(String type, List<JournalEntry> entries) {
+        metrics.recordQuery(type, entries.size());
+        return entries;
     }
 }
@@ -0,0 +1,213 @@
+package com.inecho.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inecho.model.ImportResult;
+import com.inecho.model.JournalEntry;
+import com.inecho.repository.JournalEntryRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+@Service
+@Profile("!reactive")
+public class JournalImportService {
+
+    // Failures listed individually in a result; further ones are only counted
+    public static final int MAX_REPORTED_FAILURES = 1000;
+
+    @Autowired
+    private JournalEntryRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JournalStatsService journalStatsService;
+
+    @Autowired
+    private JournalSimilarity journalSimilarity;
+
+    @Value("${inecho.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${inecho.import.max-concurrent:2}")
+    private int maxConcurrentImports;
+
+    private Semaphore importPermits;
+
+    @PostConstruct
+    void init() {
+        importPermits = new Semaphore(maxConcurrentImports);
+    }
+
+    // Import journal entries from a JSON array or newline-delimited JSON, inserting them in unordered batches.
+    // Input is only read as fast as batches are written, so TCP flow control slows a fast client down to
+    // the database's pace and at most one batch is held in memory.
+    // If userId is given it is applied to every entry. Throws CapacityExceededException when too many imports
+    // are already running.
+    public ImportResult importJournalEntries(InputStream input, String userId) throws IOException {
+        if (!importPermits.tryAcquire()) {
+            throw new CapacityExceededException("Too many imports in progress");
+        }
+        try {
+            return runImport(input, userId);
+        } finally {
+            importPermits.release();
+        }
+    }
+
+    private ImportResult runImport(InputStream input, String userId) throws IOException {
+        ImportResult result = new ImportResult();
+        List<JournalEntry> batch = new ArrayList<>(batchSize);
+        List<Integer> positions = new ArrayList<>(batchSize);
+
+        try (MappingIterator<JournalEntry> items = objectMapper.readerFor(JournalEntry.class).readValues(input)) {
+            int index = 0;
+            while (true) {
+                JournalEntry entry;
+                try {
+                    if (!items.hasNextValue()) {
+                        break;
+                    }
+                    entry = items.nextValue();
+                } catch (DatabindException e) {
+                    // Well-formed JSON that doesn't map onto an entry; the iterator skips past it
+                    recordFailure(result, index++, "Unreadable entry: " + e.getOriginalMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    // Malformed JSON: there is no reliable way to find the next entry
+                    recordFailure(result, index, "Malformed input: " + e.getOriginalMessage());
+                    result.setAborted(true);
+                    break;
+                }
+
+                String problem = prepare(entry, userId, validator);
+                if (problem != null) {
+                    recordFailure(result, index++, problem);
+                    continue;
+                }
+
+                batch.add(entry);
+                positions.add(index++);
+                if (batch.size() >= batchSize) {
+                    flush(batch, positions, result);
+                }
+            }
+            result.setReceived(index);
+        } catch (IOException | RuntimeException e) {
+            // Still write the entries read before the input failed, without losing why it failed
+            try {
+                flushRest(batch, positions, result);
+            } catch (RuntimeException flushFailure) {
+                e.addSuppressed(flushFailure);
+            }
+            throw e;
+        }
+        flushRest(batch, positions, result);
+        result.getFailures().sort(Comparator.comparingInt(ImportResult.Failure::getIndex));
+        return result;
+    }
+
+    private void flushRest(List<JournalEntry> batch, List<Integer> positions, ImportResult result) {
+        if (!batch.isEmpty()) {
+            flush(batch, positions, result);
+        }
+    }
+
+    // Normalizes an entry for insertion; returns why it can't be imported, or null if it can
+    static String prepare(JournalEntry entry, String userId, Validator validator) {
+        if (entry == null) {
+            return "Entry must be a JSON object";
+        }
+        if (userId != null) {
+            entry.setUserId(userId);
+        }
+        if (entry.getUserId() == null || entry.getUserId().isBlank()) {
+            return "userId is required";
+        }
+        if (isBlank(entry.getTitle()) && isBlank(entry.getBody())) {
+            return "title or body is required";
+        }
+
+        Set<ConstraintViolation<JournalEntry>> violations = validator.validate(entry);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<JournalEntry> violation = violations.iterator().next();
+            return violation.getPropertyPath() + " " + violation.getMessage();
+        }
+
+        // Imports always create new entries
+        entry.setId(null);
+        entry.setScore(null);
+        entry.setVersion(0L);
+        if (entry.getDate() == null) {
+            entry.setDate(LocalDateTime.now());
+        }
+        return null;
+    }
+
+    private void flush(List<JournalEntry> batch, List<Integer> positions, ImportResult result) {
+        assignModSeqs(batch);
+        Map<Integer, DataAccessException> failures = repository.insertUnordered(batch);
+        result.setInserted(result.getInserted() + batch.size() - failures.size());
+        failures.forEach((position, failure) -> recordFailure(result, positions.get(position), failure.getMessage()));
+        List<JournalEntry> inserted = inserted(batch, failures);
+        journalStatsService.recordInserted(inserted);
+        journalSimilarity.recordInserted(inserted);
+        batch.clear();
+        positions.clear();
+    }
+
+    // Sequence numbers are assigned right before the write rather than as entries are read, so a slow
+    // import can't write changes older than the sync settle window
+    static void assignModSeqs(List<JournalEntry> batch) {
+        batch.forEach(entry -> entry.setModSeq(ChangeSequence.next()));
+    }
+
+    // The entries of a batch that were written, i.e. all but the failed positions
+    static List<JournalEntry> inserted(List<JournalEntry> batch, Map<Integer, ?> failures) {
+        if (failures.isEmpty()) {
+            return batch;
+        }
+        List<JournalEntry> inserted = new ArrayList<>(batch.size() - failures.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (!failures.containsKey(i)) {
+                inserted.add(batch.get(i));
+            }
+        }
+        return inserted;
+    }
+
+    static void recordFailure(ImportResult result, int index, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getFailures().size() < MAX_REPORTED_FAILURES) {
+            result.getFailures().add(new ImportResult.Failure(index, message));
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
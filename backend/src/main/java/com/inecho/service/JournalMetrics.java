@@ -0,0 +1,60 @@
+package com.inecho.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Result sizes of journal listings and searches, to tell slow queries from big ones
+@Component
+public class JournalMetrics {
+
+    public static final String QUERY_RESULTS = "inecho.journal.query.results";
+    public static final String SEARCH_RESULTS = "inecho.journal.search.results";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, DistributionSummary> queryResults = new ConcurrentHashMap<>();
+
+    private final DistributionSummary searchResults;
+
+    public JournalMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.searchResults = DistributionSummary.builder(SEARCH_RESULTS)
+                .description("Hits returned per search page")
+                .baseUnit("entries")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    // Record the number of entries a listing returned; type names the filter, e.g. "user" or "page"
+    public void recordQuery(String type, int size) {
+        queryResults.computeIfAbsent(type, t -> DistributionSummary.builder(QUERY_RESULTS)
+                .description("Entries returned per journal listing")
+                .baseUnit("entries")
+                .tag("query", t)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry))
+                .record(size);
+    }
+
+    // Record the number of hits a search page returned
+    public void recordSearch(int hits) {
+        searchResults.record(hits);
+    }
+
+    // Filter name of a listing, used as the query tag
+    static String queryType(String userId, String tag) {
+        if (userId != null && tag != null) {
+            return "user_tag";
+        } else if (userId != null) {
+            return "user";
+        } else if (tag != null) {
+            return "tag";
+        }
+        return "all";
+    }
+}
@@ -0,0 +1,332 @@
+package com.inecho.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.Words;
+
+import jakarta.annotation.PostConstruct;
+
+// "Related entries": in-memory TF-IDF vectors of each user's journal, compared by cosine similarity. Built on
+// first use, kept current by writes and the change watcher, and rebuilt after refresh to heal missed updates.
+@Component
+public class JournalSimilarity {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalSimilarity.class);
+
+    // Term frequency multipliers of the fields, the weights of the text index
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TAG_WEIGHT = 2;
+    private static final int BODY_WEIGHT = 1;
+
+    @Value("${inecho.related.max-entries:50000}")
+    private long maxEntries;
+
+    @Value("${inecho.related.refresh:10m}")
+    private Duration refresh;
+
+    private Cache<String, UserIndex> indexes;
+
+    @PostConstruct
+    void start() {
+        // An index is weighed by its entries, and weighed again with each change (see reweigh). Only building
+        // it starts its refresh period, so changes don't keep postponing the rebuild.
+        indexes = Caffeine.newBuilder()
+                .maximumWeight(maxEntries)
+                .weigher((String userId, UserIndex index) -> Math.max(1, index.size()))
+                .expireAfter(new Expiry<String, UserIndex>() {
+                    @Override
+                    public long expireAfterCreate(String userId, UserIndex index, long currentTime) {
+                        return refresh.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String userId, UserIndex index, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String userId, UserIndex index, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Whether the user's journal is indexed; if not, index it before asking for related entries
+    public boolean isIndexed(String userId) {
+        return indexes.getIfPresent(userId) != null;
+    }
+
+    // (Re)index the user's journal from all of their entries
+    public void index(String userId, Iterable<JournalEntry> entries) {
+        UserIndex index = new UserIndex();
+        for (JournalEntry entry : entries) {
+            index.put(entry.getId(), termFrequencies(entry));
+        }
+        // A rebuild starts a new refresh period
+        indexes.invalidate(userId);
+        indexes.put(userId, index);
+    }
+
+    // Ids of up to limit entries of the user most similar to the given one, most similar first. Entries
+    // sharing no weighted term with it aren't related. The entry is (re)indexed first, so it's found even when
+    // its write hasn't reached the index yet; the user's journal must be indexed.
+    public List<String> related(JournalEntry entry, int limit) {
+        UserIndex index = indexes.getIfPresent(entry.getUserId());
+        if (index == null) {
+            return List.of();
+        }
+        index.put(entry.getId(), termFrequencies(entry));
+        reweigh(entry.getUserId(), index);
+        return index.related(entry.getId(), limit);
+    }
+
+    // Record an entry change in the index of its user, if indexed; before is null for a created entry, after
+    // for a deleted one. The entry is already written, so a failure here only drops the index for a rebuild.
+    public void recordChange(JournalEntry before, JournalEntry after) {
+        JournalEntry entry = after != null ? after : before;
+        UserIndex index = entry.getUserId() != null ? indexes.getIfPresent(entry.getUserId()) : null;
+        if (index == null) {
+            return;
+        }
+        try {
+            if (after != null) {
+                index.put(after.getId(), termFrequencies(after));
+            } else {
+                index.remove(before.getId());
+            }
+            reweigh(entry.getUserId(), index);
+        } catch (RuntimeException e) {
+            log.warn("Updating the similarity index of user {} failed, dropping it for a rebuild",
+                    entry.getUserId(), e);
+            indexes.invalidate(entry.getUserId());
+        }
+    }
+
+    public void recordInserted(List<JournalEntry> entries) {
+        entries.forEach(entry -> recordChange(null, entry));
+    }
+
+    // Record a deletion known only by id and user, e.g. from a tombstone
+    public void recordDeleted(String userId, String id) {
+        JournalEntry entry = new JournalEntry();
+        entry.setId(id);
+        entry.setUserId(userId);
+        recordChange(entry, null);
+    }
+
+    // Drop the user's index, e.g. with their journal
+    public void forget(String userId) {
+        indexes.invalidate(userId);
+    }
+
+    // Drop all indexes, e.g. when changes may have been missed
+    public void forgetAll() {
+        indexes.invalidateAll();
+    }
+
+    // Caffeine only weighs an index when it's stored, so store it again after it grew or shrank, unless it was
+    // dropped or replaced meanwhile
+    private void reweigh(String userId, UserIndex index) {
+        indexes.asMap().replace(userId, index, index);
+    }
+
+    // Field-weighted counts of the lowercased words of the entry's title, tags and body
+    static Map<String, Integer> termFrequencies(JournalEntry entry) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        count(frequencies, entry.getTitle(), TITLE_WEIGHT);
+        if (entry.getTags() != null) {
+            entry.getTags().forEach(tag -> count(frequencies, tag, TAG_WEIGHT));
+        }
+        count(frequencies, entry.getBody(), BODY_WEIGHT);
+        return frequencies;
+    }
+
+    private static void count(Map<String, Integer> frequencies, String text, int weight) {
+        for (String word : Words.of(text)) {
+            if (word.length() > 1) {
+                frequencies.merge(word, weight, Integer::sum);
+            }
+        }
+    }
+
+    // The term vectors of one user's entries as sorted term numbers and log-scaled frequencies in primitive
+    // arrays, so a query is one merge per entry. IDF changes with every write, so it's applied at query time.
+    static final class UserIndex {
+
+        private final Map<String, Integer> termNumbers = new HashMap<>();
+        private int[] documentFrequencies = new int[256];
+
+        private final Map<String, Integer> slots = new HashMap<>();
+        private String[] ids = new String[16];
+        private int[][] terms = new int[16][];
+        private float[][] frequencies = new float[16][];
+        private int slotCount;
+        private int[] freeSlots = new int[4];
+        private int freeSlotCount;
+
+        synchronized int size() {
+            return slots.size();
+        }
+
+        synchronized void put(String id, Map<String, Integer> termFrequencies) {
+            Integer existing = slots.get(id);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                forgetTerms(slot);
+            } else {
+                slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : newSlot();
+                slots.put(id, slot);
+                ids[slot] = id;
+            }
+
+            // Term number in the high half and frequency in the low one, so sorting orders by term number
+            long[] packed = new long[termFrequencies.size()];
+            int count = 0;
+            for (Map.Entry<String, Integer> term : termFrequencies.entrySet()) {
+                packed[count++] = (long) termNumber(term.getKey()) << 32 | term.getValue();
+            }
+            Arrays.sort(packed);
+            int[] numbers = new int[packed.length];
+            float[] weights = new float[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                numbers[i] = (int) (packed[i] >>> 32);
+                weights[i] = (float) (1 + Math.log((int) packed[i]));
+                documentFrequencies[numbers[i]]++;
+            }
+            terms[slot] = numbers;
+            frequencies[slot] = weights;
+        }
+
+        synchronized void remove(String id) {
+            Integer slot = slots.remove(id);
+            if (slot == null) {
+                return;
+            }
+            forgetTerms(slot);
+            ids[slot] = null;
+            terms[slot] = null;
+            frequencies[slot] = null;
+            if (freeSlotCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+            }
+            freeSlots[freeSlotCount++] = slot;
+        }
+
+        // Cosine similarity of TF-IDF vectors, with idf = ln((1 + entries) / (1 + entries with the term)), so
+        // terms every entry has weigh nothing
+        synchronized List<String> related(String id, int limit) {
+            Integer query = slots.get(id);
+            if (query == null || limit <= 0) {
+                return List.of();
+            }
+            float[] idf = new float[termNumbers.size()];
+            double entries = slots.size();
+            for (int term = 0; term < idf.length; term++) {
+                idf[term] = (float) Math.log((1 + entries) / (1 + documentFrequencies[term]));
+            }
+
+            int[] queryTerms = terms[query];
+            float[] queryWeights = new float[queryTerms.length];
+            double queryNorm = 0;
+            for (int i = 0; i < queryTerms.length; i++) {
+                queryWeights[i] = frequencies[query][i] * idf[queryTerms[i]];
+                queryNorm += queryWeights[i] * queryWeights[i];
+            }
+            if (queryNorm == 0) {
+                return List.of();
+            }
+
+            // The best limit so far, best first
+            int[] best = new int[limit];
+            float[] bestScores = new float[limit];
+            int found = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (slot == query || ids[slot] == null) {
+                    continue;
+                }
+                float score = cosine(queryTerms, queryWeights, terms[slot], frequencies[slot], idf);
+                if (score <= 0 || (found == limit && score <= bestScores[limit - 1])) {
+                    continue;
+                }
+                int position = found < limit ? found++ : limit - 1;
+                while (position > 0 && bestScores[position - 1] < score) {
+                    best[position] = best[position - 1];
+                    bestScores[position] = bestScores[position - 1];
+                    position--;
+                }
+                best[position] = slot;
+                bestScores[position] = score;
+            }
+
+            List<String> related = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                related.add(ids[best[i]]);
+            }
+            return related;
+        }
+
+        // The query norm is left out: it's the same for every candidate and doesn't change their order
+        private static float cosine(int[] queryTerms, float[] queryWeights, int[] entryTerms, float[] entryFrequencies,
+                float[] idf) {
+            double dot = 0;
+            double norm = 0;
+            int q = 0;
+            for (int i = 0; i < entryTerms.length; i++) {
+                int term = entryTerms[i];
+                float weight = entryFrequencies[i] * idf[term];
+                norm += weight * weight;
+                while (q < queryTerms.length && queryTerms[q] < term) {
+                    q++;
+                }
+                if (q < queryTerms.length && queryTerms[q] == term) {
+                    dot += queryWeights[q] * weight;
+                }
+            }
+            return norm == 0 ? 0 : (float) (dot / Math.sqrt(norm));
+        }
+
+        private int termNumber(String term) {
+            Integer number = termNumbers.get(term);
+            if (number == null) {
+                number = termNumbers.size();
+                termNumbers.put(term, number);
+                if (number == documentFrequencies.length) {
+                    documentFrequencies = Arrays.copyOf(documentFrequencies, number * 2);
+                }
+            }
+            return number;
+        }
+
+        private void forgetTerms(int slot) {
+            for (int term : terms[slot]) {
+                documentFrequencies[term]--;
+            }
+        }
+
+        private int newSlot() {
+            if (slotCount == ids.length) {
+                int capacity = slotCount * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                terms = Arrays.copyOf(terms, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            return slotCount++;
+        }
+    }
+}
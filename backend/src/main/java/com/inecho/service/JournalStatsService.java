@@ -0,0 +1,114 @@
+package com.inecho.service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalStats;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.JournalStatsRepository;
+
+// Per-user journal rollups: updated with $inc on every entry change, read as a single document
+@Service
+@Profile("!reactive")
+public class JournalStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalStatsService.class);
+
+    @Autowired
+    private JournalStatsRepository repository;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    // Get the user's rollup, counting it from the journal the first time
+    public JournalStats getJournalStats(String userId) {
+        JournalStats stats = repository.findById(userId).orElseGet(() -> rebuild(userId));
+        return stats.view(LocalDate.now());
+    }
+
+    // Store an empty rollup unless another rebuild stored one first, then count the user's entries (summaries
+    // only, no bodies) and add them with one $inc, so changes made meanwhile land on the rollup instead of being
+    // lost. Only needed for journals written before rollups existed or whose rollup was dropped; an entry changed
+    // while the journal is being read may be miscounted until the next rebuild.
+    public JournalStats rebuild(String userId) {
+        try {
+            repository.insert(new JournalStats(userId));
+        } catch (DuplicateKeyException e) {
+            return repository.findById(userId).orElseGet(() -> new JournalStats(userId));
+        }
+        JournalStats stats = new JournalStats(userId);
+        try {
+            journalEntryRepository.findSummariesByUserId(userId)
+                    .forEach(summary -> stats.count(summary.getDate(), summary.getTags(), 1));
+            repository.increment(userId, stats.totals());
+        } catch (DataAccessException e) {
+            // Don't leave the empty rollup behind as the user's counts
+            drop(userId);
+            throw e;
+        }
+        return repository.findById(userId).orElse(stats);
+    }
+
+    // Record an entry change in its user's rollup; before is null for a created entry, after for a deleted one.
+    // The entry itself is already written, so a failure here drops the rollup to have it rebuilt on next read.
+    public void recordChange(JournalEntry before, JournalEntry after) {
+        String userId = (before != null ? before : after).getUserId();
+        if (userId == null) {
+            return;
+        }
+        try {
+            repository.increment(userId, JournalStats.changes(before, after));
+        } catch (DataAccessException e) {
+            log.warn("Updating the journal stats of user {} failed, dropping them for a rebuild", userId, e);
+            drop(userId);
+        }
+    }
+
+    // Record newly imported entries with one bulk write for all their users
+    public void recordInserted(List<JournalEntry> entries) {
+        Map<String, Map<String, Long>> changes = changesByUser(entries);
+        try {
+            repository.incrementAll(changes);
+        } catch (DataAccessException e) {
+            log.warn("Updating the journal stats of {} users after an import failed, dropping them for a rebuild",
+                    changes.size(), e);
+            changes.keySet().forEach(this::drop);
+        }
+    }
+
+    // Delete the user's rollup, e.g. with their journal
+    public void deleteJournalStats(String userId) {
+        repository.deleteById(userId);
+    }
+
+    private void drop(String userId) {
+        try {
+            repository.deleteById(userId);
+        } catch (DataAccessException e) {
+            log.error("Dropping the journal stats of user {} failed; they stay wrong until rebuilt", userId, e);
+        }
+    }
+
+    // Rollup changes for newly created entries, summed per user
+    static Map<String, Map<String, Long>> changesByUser(List<JournalEntry> entries) {
+        Map<String, Map<String, Long>> changesByUser = new HashMap<>();
+        for (JournalEntry entry : entries) {
+            if (entry.getUserId() != null) {
+                Map<String, Long> changes = changesByUser.computeIfAbsent(entry.getUserId(), userId -> new HashMap<>());
+                JournalStats.changes(null, entry).forEach((path, delta) -> changes.merge(path, delta, Long::sum));
+            }
+        }
+        return changesByUser;
+    }
+}
@@ -0,0 +1,159 @@
+package com.inecho.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncPage;
+import com.inecho.model.SyncToken;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.JournalTombstoneRepository;
+
+// Delta sync: the entries of a user created, updated or deleted since a change token. Both reads are range
+// scans of a userId_modSeq index, so a sync costs what changed rather than the size of the journal.
+@Service
+@Profile("!reactive")
+public class JournalSyncService {
+
+    public static final int DEFAULT_SYNC_SIZE = 200;
+    public static final int MAX_SYNC_SIZE = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(JournalSyncService.class);
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private JournalTombstoneRepository tombstoneRepository;
+
+    @Value("${inecho.sync.settle-window:5s}")
+    private Duration settleWindow;
+
+    // Get the changes after the token (null for a first sync), oldest first
+    public SyncPage sync(String userId, String since, Integer limit) {
+        int pageSize = syncSize(limit);
+        SyncToken after = since != null ? SyncToken.decode(since) : SyncToken.START;
+        Instant now = Instant.now();
+        boolean reset = expired(after, now);
+        if (reset) {
+            after = SyncToken.START;
+        }
+
+        // Fetch one extra change of each kind to learn whether another page follows
+        List<JournalEntry> changed = journalEntryRepository.findChangedSince(userId, after, pageSize + 1);
+        // A client syncing from scratch has nothing to delete
+        List<JournalTombstone> deleted = after.isStart()
+                ? List.of()
+                : tombstoneRepository.findChangedSince(userId, after, pageSize + 1);
+        return syncPage(after, changed, deleted, pageSize, settledBefore(now, settleWindow), reset);
+    }
+
+    // Leave a tombstone for a deleted entry. The entry is already gone, so a failure is only logged;
+    // clients keep their copy of it until they next sync from scratch.
+    public void recordDeleted(JournalEntry entry) {
+        if (entry.getUserId() == null) {
+            return;
+        }
+        try {
+            tombstoneRepository.save(tombstone(entry));
+        } catch (DataAccessException e) {
+            log.error("Writing the tombstone of journal entry {} failed; synced clients keep it", entry.getId(), e);
+        }
+    }
+
+    // Delete the user's tombstones, e.g. with their journal
+    public void deleteTombstones(String userId) {
+        tombstoneRepository.deleteByUserId(userId);
+    }
+
+    static JournalTombstone tombstone(JournalEntry entry) {
+        return new JournalTombstone(entry.getId(), entry.getUserId(), ChangeSequence.next(), LocalDateTime.now());
+    }
+
+    // Clamp a requested sync page size to the supported range
+    static int syncSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_SYNC_SIZE;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(limit, MAX_SYNC_SIZE);
+    }
+
+    // Tokens from before the oldest tombstones may have missed deletions and have to start over
+    static boolean expired(SyncToken after, Instant now) {
+        return after.getModSeq() > 0
+                && after.getModSeq() < ChangeSequence.at(now.minus(Duration.ofDays(JournalTombstone.RETENTION_DAYS)));
+    }
+
+    // Writes with a sequence number below this have committed, as far as the settle window can tell
+    static long settledBefore(Instant now, Duration settleWindow) {
+        return ChangeSequence.at(now.minus(settleWindow));
+    }
+
+    // Merge up to pageSize + 1 changed entries and tombstones, each in change order, into a page of at most
+    // pageSize changes
+    static SyncPage syncPage(SyncToken after, List<JournalEntry> changed, List<JournalTombstone> deleted,
+            int pageSize, long settled, boolean reset) {
+        // Latest change per id, in change order: an entry deleted and created again with the same id is only
+        // reported as changed, and the other way round
+        Map<String, Object> latest = new LinkedHashMap<>();
+        SyncToken last = after;
+        int e = 0;
+        int t = 0;
+        while (e + t < pageSize && (e < changed.size() || t < deleted.size())) {
+            boolean nextIsEntry = t >= deleted.size() || (e < changed.size()
+                    && SyncToken.ORDER.compare(SyncToken.of(changed.get(e)), SyncToken.of(deleted.get(t))) < 0);
+            if (nextIsEntry) {
+                JournalEntry entry = changed.get(e++);
+                latest.remove(entry.getId());
+                latest.put(entry.getId(), entry);
+                last = SyncToken.of(entry);
+            } else {
+                JournalTombstone tombstone = deleted.get(t++);
+                latest.remove(tombstone.getId());
+                latest.put(tombstone.getId(), tombstone);
+                last = SyncToken.of(tombstone);
+            }
+        }
+        boolean more = e < changed.size() || t < deleted.size();
+
+        // Tokens never pass the settle window, so the next sync rereads writes that may not be visible yet. Once
+        // everything is read the token moves up to it, so a dormant journal's token doesn't expire.
+        SyncToken settledToken = new SyncToken(settled - 1, null);
+        SyncToken next;
+        if (last.getModSeq() < settled && more) {
+            next = last;
+        } else {
+            next = SyncToken.ORDER.compare(after, settledToken) > 0 ? after : settledToken;
+            // What follows inside the window comes with the next sync
+            more = false;
+        }
+
+        List<JournalEntry> pageChanged = new ArrayList<>();
+        List<String> pageDeleted = new ArrayList<>();
+        latest.forEach((id, change) -> {
+            if (change instanceof JournalEntry entry) {
+                pageChanged.add(entry);
+            } else {
+                pageDeleted.add(id);
+            }
+        });
+        return new SyncPage(pageChanged, pageDeleted, next.encode(), more, reset);
+    }
+}
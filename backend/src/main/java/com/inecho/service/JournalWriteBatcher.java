@@ -0,0 +1,247 @@
+package com.inecho.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.repository.JournalEntryRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Coalesces concurrently created journal entries into unordered bulk inserts: one round trip per batch
+// instead of one per request. A batch is flushed when it is full or its oldest entry has waited max-delay.
+// Only created when inecho.write-batching.enabled=true; JournalEntryService saves directly otherwise.
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(name = "inecho.write-batching.enabled", havingValue = "true")
+public class JournalWriteBatcher {
+
+    public static final String BATCH_SIZE = "inecho.journal.write.batch.size";
+    public static final String FLUSH_LATENCY = "inecho.journal.write.flush";
+    public static final String QUEUE_DEPTH = "inecho.journal.write.queue.depth";
+    public static final String REJECTED = "inecho.journal.write.rejected";
+
+    private static final Logger log = LoggerFactory.getLogger(JournalWriteBatcher.class);
+
+    @Autowired
+    private JournalEntryRepository repository;
+
+    @Autowired
+    private JournalStatsService journalStatsService;
+
+    @Autowired
+    private JournalSimilarity journalSimilarity;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${inecho.write-batching.batch-size:100}")
+    private int batchSize;
+
+    @Value("${inecho.write-batching.max-delay:5ms}")
+    private Duration maxDelay;
+
+    @Value("${inecho.write-batching.queue-capacity:2000}")
+    private int queueCapacity;
+
+    @Value("${inecho.write-batching.enqueue-timeout:100ms}")
+    private Duration enqueueTimeout;
+
+    @Value("${inecho.write-batching.write-timeout:5s}")
+    private Duration writeTimeout;
+
+    private BlockingQueue<PendingWrite> queue;
+
+    private Thread flusher;
+
+    private volatile boolean running;
+
+    // Held shared while queueing and exclusively to shut down, so nothing is queued after the flusher's last drain
+    private final ReadWriteLock shutdown = new ReentrantReadWriteLock();
+
+    private DistributionSummary batchSizes;
+
+    private Timer flushLatency;
+
+    private Counter rejected;
+
+    // deadline is in System.nanoTime() terms
+    private record PendingWrite(JournalEntry entry, CompletableFuture<JournalEntry> result, long deadline) {
+
+        boolean expired(long now) {
+            return now - deadline >= 0;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        batchSizes = DistributionSummary.builder(BATCH_SIZE)
+                .description("Journal entries written per coalesced insert")
+                .baseUnit("entries")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        flushLatency = Timer.builder(FLUSH_LATENCY)
+                .description("Time to write one coalesced insert")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        rejected = Counter.builder(REJECTED)
+                .description("Journal entries turned away because the write queue stayed full")
+                .register(registry);
+        Gauge.builder(QUEUE_DEPTH, queue, BlockingQueue::size)
+                .description("Journal entries waiting to be written")
+                .register(registry);
+
+        running = true;
+        flusher = new Thread(this::run, "inecho-write-batcher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // Queue an entry for the next batch. The future completes with the stored entry, including its id,
+    // once its batch is written, or exceptionally if the write failed. Waits up to enqueue-timeout for
+    // room in the queue, then throws CapacityExceededException so callers shed load instead of piling up.
+    // An entry still queued after write-timeout is dropped unwritten and its future fails with a
+    // TimeoutException; once taken into a batch, it waits for that write.
+    public CompletableFuture<JournalEntry> insert(JournalEntry entry) {
+        // Ids and versions are assigned here because a bulk insert doesn't report them back. An id sent by the
+        // client is kept, so a taken one fails with a DuplicateKeyException as without batching.
+        if (entry.getId() == null) {
+            entry.setId(new ObjectId().toHexString());
+        }
+        entry.setVersion(0L);
+        PendingWrite pending = new PendingWrite(entry, new CompletableFuture<>(), System.nanoTime() + writeTimeout.toNanos());
+        shutdown.readLock().lock();
+        try {
+            if (!running) {
+                throw new CapacityExceededException("Journal write batcher is shut down");
+            }
+            if (!queue.offer(pending, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new CapacityExceededException("Too many journal entries waiting to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a journal entry", e);
+        } finally {
+            shutdown.readLock().unlock();
+        }
+        return pending.result();
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Give concurrent requests up to max-delay to join the batch
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: write whatever is queued before exiting
+                running = false;
+                queue.drainTo(batch);
+            }
+            // Entries that waited past their deadline are left unwritten, and their callers told so
+            long now = System.nanoTime();
+            batch.removeIf(pending -> pending.expired(now) && pending.result().completeExceptionally(
+                    new TimeoutException("Journal entry waited longer than " + writeTimeout + " to be written")));
+            if (!batch.isEmpty()) {
+                try {
+                    flush(batch);
+                } catch (RuntimeException e) {
+                    // Keep the only flusher alive; whatever the batch's callers weren't told yet, they are now
+                    log.error("Flushing a batch of {} journal entries failed", batch.size(), e);
+                    batch.forEach(pending -> pending.result().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        List<JournalEntry> entries = batch.stream().map(PendingWrite::entry).toList();
+        Map<Integer, DataAccessException> failures;
+        long start = System.nanoTime();
+        try {
+            failures = repository.insertUnordered(entries);
+        } catch (RuntimeException e) {
+            log.warn("Writing a batch of {} journal entries failed", batch.size(), e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        } finally {
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+        }
+
+        try {
+            List<JournalEntry> inserted = JournalImportService.inserted(entries, failures);
+            journalStatsService.recordInserted(inserted);
+            journalSimilarity.recordInserted(inserted);
+        } catch (RuntimeException e) {
+            // The entries are written; a stats or index failure must not fail their requests
+            log.warn("Recording {} written journal entries in the stats failed", entries.size(), e);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            PendingWrite pending = batch.get(i);
+            DataAccessException failure = failures.get(i);
+            if (failure == null) {
+                pending.result().complete(pending.entry());
+            } else {
+                pending.result().completeExceptionally(failure);
+            }
+        }
+    }
+
+    // Stop taking entries and write the ones already queued
+    @PreDestroy
+    void stop() throws InterruptedException {
+        shutdown.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            shutdown.writeLock().unlock();
+        }
+        flusher.join(Duration.ofSeconds(10).toMillis());
+    }
+}
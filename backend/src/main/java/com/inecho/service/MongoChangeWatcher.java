@@ -0,0 +1,246 @@
+package com.inecho.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.model.JournalChange;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.UserProfile;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Watches journal entries, their tombstones and user profiles through one change stream per instance.
+// Every change evicts the cached copy, so caches stay coherent with writes made by other instances, and
+// is published to the push subscribers of its user. Deletions of entries reach them through tombstones,
+// since a delete event only carries the _id. Change streams need a replica set; a single-node one will
+// do. Used by both stacks: the blocking client is also started with the 'reactive' profile.
+@Component
+@Profile("!memory")
+@ConditionalOnProperty(name = "inecho.changes.enabled", havingValue = "true", matchIfMissing = true)
+public class MongoChangeWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoChangeWatcher.class);
+
+    // The server doesn't support change streams: not a replica set
+    private static final int NOT_A_REPLICA_SET = 40573;
+    // The resume token is gone from the oplog or no longer valid, so the stream can't continue where it was
+    private static final Set<Integer> HISTORY_LOST = Set.of(260, 280, 286);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JournalChangeHub journalChangeHub;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JournalSimilarity journalSimilarity;
+
+    @Value("${inecho.changes.retry-delay:5s}")
+    private Duration retryDelay;
+
+    private String entries;
+    private String tombstones;
+    private String profiles;
+
+    private Thread watcher;
+
+    private volatile boolean running;
+
+    // Where to continue after a failure; only touched by the watcher thread
+    private BsonDocument resumeToken;
+
+    @PostConstruct
+    void start() {
+        entries = mongoTemplate.getCollectionName(JournalEntry.class);
+        tombstones = mongoTemplate.getCollectionName(JournalTombstone.class);
+        profiles = mongoTemplate.getCollectionName(UserProfile.class);
+
+        running = true;
+        watcher = new Thread(this::run, "inecho-change-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        watcher.interrupt();
+        watcher.join(Duration.ofSeconds(5).toMillis());
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                watch();
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == NOT_A_REPLICA_SET) {
+                    log.warn("MongoDB is not a replica set, so changes aren't pushed and cached entries and "
+                            + "profiles are only refreshed by this instance's own writes or expiry");
+                    return;
+                }
+                if (HISTORY_LOST.contains(e.getErrorCode())) {
+                    restart(e);
+                } else {
+                    retryLater(e);
+                }
+            } catch (MongoException e) {
+                retryLater(e);
+            }
+        }
+    }
+
+    private void watch() {
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.in("ns.coll", entries, tombstones, profiles)),
+                Aggregates.match(Filters.in("operationType", "insert", "update", "replace", "delete")));
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb().watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            log.info("Watching {}, {} and {} for changes", entries, tombstones, profiles);
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    handleQuietly(change);
+                }
+                // Advances even while nothing changes, so a restart doesn't scan the oplog from far back
+                BsonDocument position = cursor.getResumeToken();
+                if (position != null) {
+                    resumeToken = position;
+                }
+            }
+        }
+    }
+
+    // A change that can't be handled, e.g. a document that doesn't map, is skipped rather than ending the stream
+    private void handleQuietly(ChangeStreamDocument<Document> change) {
+        try {
+            handle(change);
+        } catch (RuntimeException e) {
+            log.error("Handling change {} failed, skipping it", change.getDocumentKey(), e);
+        }
+    }
+
+    private void handle(ChangeStreamDocument<Document> change) {
+        if (change.getNamespace() == null || change.getDocumentKey() == null) {
+            return;
+        }
+        String collection = change.getNamespace().getCollectionName();
+        String id = idOf(change.getDocumentKey().get("_id"));
+        String eventId = change.getResumeToken().getString("_data").getValue();
+        // Null for deletions, and for updates to documents deleted before the lookup
+        Document document = change.getFullDocument();
+
+        if (collection.equals(entries)) {
+            evict(CacheConfig.JOURNAL_ENTRIES, id);
+            if (document != null) {
+                JournalEntry entry = mongoTemplate.getConverter().read(JournalEntry.class, document);
+                journalSimilarity.recordChange(null, entry);
+                journalChangeHub.publish(new JournalChange(eventId, JournalChange.ENTRY, entry.getUserId(), entry));
+            }
+        } else if (collection.equals(tombstones)) {
+            if (document != null) {
+                JournalTombstone tombstone = mongoTemplate.getConverter().read(JournalTombstone.class, document);
+                evict(CacheConfig.JOURNAL_ENTRIES, tombstone.getId());
+                journalSimilarity.recordDeleted(tombstone.getUserId(), tombstone.getId());
+                journalChangeHub.publish(
+                        new JournalChange(eventId, JournalChange.ENTRY_DELETED, tombstone.getUserId(), tombstone));
+            }
+        } else if (collection.equals(profiles)) {
+            // The email cache checks every mapping against the loaded profile, so only the profile is evicted
+            evict(CacheConfig.USER_PROFILES, id);
+            if (change.getOperationType() == OperationType.DELETE) {
+                journalSimilarity.forget(id);
+                journalChangeHub.publish(new JournalChange(eventId, JournalChange.PROFILE_DELETED, id, Map.of("id", id)));
+            } else if (document != null) {
+                UserProfile profile = mongoTemplate.getConverter().read(UserProfile.class, document);
+                journalChangeHub.publish(new JournalChange(eventId, JournalChange.PROFILE, id, profile));
+            }
+        }
+    }
+
+    // Start a new stream from now. Whatever changed in between is unknown, so drop the caches and have
+    // subscribers delta-sync.
+    private void restart(MongoException e) {
+        log.warn("Change stream can't resume ({}); starting over and clearing caches", e.getMessage());
+        resumeToken = null;
+        clear(CacheConfig.JOURNAL_ENTRIES);
+        clear(CacheConfig.USER_PROFILES);
+        journalSimilarity.forgetAll();
+        journalChangeHub.resetAll();
+    }
+
+    private void retryLater(MongoException e) {
+        if (!running) {
+            return;
+        }
+        log.warn("Change stream failed, resuming in {}: {}", retryDelay, e.getMessage());
+        try {
+            Thread.sleep(retryDelay.toMillis());
+        } catch (InterruptedException interrupted) {
+            running = false;
+        }
+    }
+
+    private void evict(String cacheName, String id) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && id != null) {
+            cache.evict(id);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    // Cache keys are the string ids the repositories use
+    private static String idOf(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
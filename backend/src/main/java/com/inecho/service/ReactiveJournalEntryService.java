@@ -0,0 +1,431 @@
+package com.inecho.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.model.CursorPage;
+import com.inecho.model.ImportResult;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.JournalStats;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncPage;
+import com.inecho.model.SyncToken;
+import com.inecho.repository.ReactiveJournalEntryRepository;
+import com.inecho.repository.ReactiveJournalStatsRepository;
+import com.inecho.repository.ReactiveJournalTombstoneRepository;
+import com.inecho.repository.ReadRoute;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.Validator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of JournalEntryService and JournalImportService, used by the 'reactive' profile
+@Service
+@Profile("reactive")
+public class ReactiveJournalEntryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveJournalEntryService.class);
+
+    @Autowired
+    private ReactiveJournalEntryRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JournalMetrics metrics;
+
+    @Autowired
+    private ReactiveJournalStatsRepository statsRepository;
+
+    @Autowired
+    private ReactiveJournalTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private JournalSimilarity journalSimilarity;
+
+    @Value("${inecho.sync.settle-window:5s}")
+    private Duration settleWindow;
+
+    @Value("${inecho.import.batch-size:1000}")
+    private int importBatchSize;
+
+    @Value("${inecho.import.max-concurrent:2}")
+    private int maxConcurrentImports;
+
+    private Semaphore importPermits;
+
+    @PostConstruct
+    void init() {
+        importPermits = new Semaphore(maxConcurrentImports);
+    }
+
+    // All of a user's journal entries for an export, newest first, as they arrive from the cursor, starting
+    // after the given position (null for all of them)
+    public Flux<JournalEntry> getJournalExport(String userId, PageCursor after) {
+        return repository.findExport(userId, after, JournalEntryService.LISTING_READS);
+    }
+
+    // Where an export resumed after the given entry of the user continues; fails with IllegalArgumentException
+    // when the user has no such entry (any more)
+    public Mono<PageCursor> exportPositionAfter(String userId, String entryId) {
+        return getJournalEntryById(entryId)
+                .filter(entry -> userId.equals(entry.getUserId()))
+                .map(PageCursor::of)
+                .switchIfEmpty(Mono.error(() ->
+                        new IllegalArgumentException("No entry " + entryId + " to resume the export after")));
+    }
+
+    // Get journal entries, optionally filtered by user and/or tag, as they arrive from the cursor
+    public Flux<JournalEntry> getJournalEntries(String userId, String tag) {
+        return Flux.defer(() -> {
+            AtomicInteger count = new AtomicInteger();
+            return repository.findEntries(userId, tag, JournalEntryService.LISTING_READS)
+                    .doOnNext(entry -> count.incrementAndGet())
+                    .doOnComplete(() -> metrics.recordQuery(JournalMetrics.queryType(userId, tag), count.get()));
+        });
+    }
+
+    // Get summaries (no body) of journal entries, optionally filtered by user and/or tag
+    public Flux<JournalEntrySummary> getJournalEntrySummaries(String userId, String tag) {
+        return Flux.defer(() -> {
+            AtomicInteger count = new AtomicInteger();
+            return repository.findEntrySummaries(userId, tag, JournalEntryService.LISTING_READS)
+                    .doOnNext(summary -> count.incrementAndGet())
+                    .doOnComplete(() -> metrics.recordQuery(JournalMetrics.queryType(userId, tag) + "_summary", count.get()));
+        });
+    }
+
+    // Same keyset page as getJournalEntriesPage, with summaries (no body) instead of full entries
+    public Mono<CursorPage<JournalEntrySummary>> getJournalEntrySummariesPage(String userId, String tag, String cursor, Integer limit) {
+        return Mono.defer(() -> {
+            int pageSize = JournalEntryService.pageSize(limit);
+            PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+            return repository.findSummaryPage(userId, tag, after, pageSize + 1, JournalEntryService.LISTING_READS)
+                    .collectList()
+                    .map(summaries -> JournalEntryService.keysetPage(summaries, pageSize, PageCursor::of))
+                    .doOnNext(page -> metrics.recordQuery(JournalMetrics.queryType(userId, tag) + "_summary_page", page.getItems().size()));
+        });
+    }
+
+    // Get one keyset page of journal entries, newest first, optionally filtered by user and/or tag
+    public Mono<CursorPage<JournalEntry>> getJournalEntriesPage(String userId, String tag, String cursor, Integer limit) {
+        return Mono.defer(() -> {
+            int pageSize = JournalEntryService.pageSize(limit);
+            PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+            return repository.findPage(userId, tag, after, pageSize + 1, JournalEntryService.LISTING_READS)
+                    .collectList()
+                    .map(entries -> JournalEntryService.keysetPage(entries, pageSize))
+                    .doOnNext(page -> metrics.recordQuery(JournalMetrics.queryType(userId, tag) + "_page", page.getItems().size()));
+        });
+    }
+
+    // Get a specific journal entry by ID, served from the cache when possible. Writes evict the entry, and the
+    // cache only holds and hands out copies. A load can't hold the key while it waits for the database, so one
+    // that read before a concurrent write may still cache what it read; the change watcher evicts the entry
+    // again once the write's event arrives.
+    public Mono<JournalEntry> getJournalEntryById(String id) {
+        return Mono.defer(() -> {
+            Cache cache = entryCache();
+            JournalEntry cached = cache.get(id, JournalEntry.class);
+            if (cached != null) {
+                return Mono.just(cached.copy());
+            }
+            return repository.findById(id).doOnNext(entry -> cache.putIfAbsent(id, entry.copy()));
+        });
+    }
+
+    // Create a new journal entry
+    public Mono<JournalEntry> createJournalEntry(JournalEntry journalEntry) {
+        // Set the creation date if not provided
+        if (journalEntry.getDate() == null) {
+            journalEntry.setDate(LocalDateTime.now());
+        }
+        // A new entry always starts at the first version, whatever the client sent
+        journalEntry.setVersion(null);
+        journalEntry.setModSeq(ChangeSequence.next());
+        return repository.save(journalEntry)
+                .flatMap(savedEntry -> recordChange(null, savedEntry).thenReturn(savedEntry));
+    }
+
+    // Update an existing journal entry, replacing its title, body and tags; empty if it doesn't exist
+    public Mono<JournalEntry> updateJournalEntry(String id, JournalEntry journalEntry) {
+        return applyChanges(id, journalEntry, true);
+    }
+
+    // Partially update an existing journal entry; only the fields present in the request are changed
+    public Mono<JournalEntry> patchJournalEntry(String id, JournalEntry changes) {
+        return applyChanges(id, changes, false);
+    }
+
+    // See JournalEntryService#applyChanges
+    private Mono<JournalEntry> applyChanges(String id, JournalEntry changes, boolean replace) {
+        return Mono.defer(() -> {
+            changes.setModSeq(ChangeSequence.next());
+            return repository.findAndUpdateFields(id, changes.getVersion(), changes, replace);
+        })
+                .flatMap(previousEntry -> {
+                    JournalEntry updatedEntry = previousEntry.withChanges(changes, replace);
+                    entryCache().evict(id);
+                    return recordChange(previousEntry, updatedEntry).thenReturn(updatedEntry);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    entryCache().evict(id);
+                    if (changes.getVersion() == null) {
+                        return Mono.empty();
+                    }
+                    return repository.existsById(id)
+                            .flatMap(exists -> exists
+                                    ? Mono.error(new OptimisticLockingFailureException(
+                                            "Journal entry " + id + " was modified after version " + changes.getVersion()))
+                                    : Mono.empty());
+                }));
+    }
+
+    // Delete a journal entry; emits whether it existed
+    public Mono<Boolean> deleteJournalEntry(String id) {
+        return repository.findAndDelete(id)
+                .flatMap(deletedEntry -> recordChange(deletedEntry, null)
+                        .then(recordDeleted(deletedEntry))
+                        .thenReturn(true))
+                .defaultIfEmpty(false)
+                .doOnNext(deleted -> entryCache().evict(id));
+    }
+
+    // See JournalSyncService#sync
+    public Mono<SyncPage> sync(String userId, String since, Integer limit) {
+        return Mono.defer(() -> {
+            int pageSize = JournalSyncService.syncSize(limit);
+            SyncToken token = since != null ? SyncToken.decode(since) : SyncToken.START;
+            Instant now = Instant.now();
+            boolean reset = JournalSyncService.expired(token, now);
+            SyncToken after = reset ? SyncToken.START : token;
+
+            Mono<List<JournalEntry>> changed = repository.findChangedSince(userId, after, pageSize + 1).collectList();
+            Mono<List<JournalTombstone>> deleted = after.isStart()
+                    ? Mono.just(List.of())
+                    : tombstoneRepository.findChangedSince(userId, after, pageSize + 1).collectList();
+            return Mono.zip(changed, deleted, (entries, tombstones) -> JournalSyncService.syncPage(after, entries, tombstones,
+                    pageSize, JournalSyncService.settledBefore(now, settleWindow), reset));
+        });
+    }
+
+    // See JournalSyncService#recordDeleted
+    private Mono<Void> recordDeleted(JournalEntry entry) {
+        if (entry.getUserId() == null) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> tombstoneRepository.save(JournalSyncService.tombstone(entry)))
+                .onErrorResume(DataAccessException.class, e -> {
+                    log.error("Writing the tombstone of journal entry {} failed; synced clients keep it", entry.getId(), e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Get the user's rollup, counting it from the journal the first time
+    public Mono<JournalStats> getJournalStats(String userId) {
+        return statsRepository.findById(userId)
+                .switchIfEmpty(Mono.defer(() -> rebuildJournalStats(userId)))
+                .map(stats -> stats.view(LocalDate.now()));
+    }
+
+    // See JournalStatsService#rebuild
+    public Mono<JournalStats> rebuildJournalStats(String userId) {
+        Mono<JournalStats> counted = repository.findSummariesByUserId(userId)
+                .collect(() -> new JournalStats(userId), (stats, summary) -> stats.count(summary.getDate(), summary.getTags(), 1))
+                .flatMap(stats -> statsRepository.increment(userId, stats.totals())
+                        .then(statsRepository.findById(userId))
+                        .defaultIfEmpty(stats))
+                .onErrorResume(DataAccessException.class, e -> dropJournalStats(userId).then(Mono.error(e)));
+        return statsRepository.insert(new JournalStats(userId))
+                .thenReturn(true)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(false))
+                .flatMap(inserted -> inserted ? counted
+                        : statsRepository.findById(userId).defaultIfEmpty(new JournalStats(userId)));
+    }
+
+    // See JournalStatsService#recordChange
+    private Mono<Void> recordChange(JournalEntry before, JournalEntry after) {
+        String userId = (before != null ? before : after).getUserId();
+        if (userId == null) {
+            return Mono.empty();
+        }
+        journalSimilarity.recordChange(before, after);
+        return statsRepository.increment(userId, JournalStats.changes(before, after))
+                .onErrorResume(DataAccessException.class, e -> {
+                    log.warn("Updating the journal stats of user {} failed, dropping them for a rebuild", userId, e);
+                    return dropJournalStats(userId);
+                });
+    }
+
+    private Mono<Void> dropJournalStats(String userId) {
+        return statsRepository.deleteById(userId)
+                .onErrorResume(DataAccessException.class, e -> {
+                    log.error("Dropping the journal stats of user {} failed; they stay wrong until rebuilt", userId, e);
+                    return Mono.empty();
+                });
+    }
+
+    // See JournalEntryService#getRelatedEntries; empty when there's no such entry
+    public Mono<List<JournalEntrySummary>> getRelatedEntries(String id, Integer limit) {
+        return Mono.defer(() -> {
+            int count = JournalEntryService.relatedCount(limit);
+            return getJournalEntryById(id).flatMap(entry -> {
+                String userId = entry.getUserId();
+                if (userId == null) {
+                    return Mono.just(List.<JournalEntrySummary>of());
+                }
+                Mono<Void> indexed = journalSimilarity.isIndexed(userId) ? Mono.empty()
+                        : repository.findExport(userId, null, ReadRoute.PRIMARY)
+                                .collectList()
+                                .doOnNext(entries -> journalSimilarity.index(userId, entries))
+                                .then();
+                return indexed.then(Mono.fromSupplier(() -> journalSimilarity.related(entry, count)))
+                        .flatMap(ids -> ids.isEmpty() ? Mono.just(List.<JournalEntrySummary>of())
+                                : repository.findSummariesByIdIn(ids).collectList()
+                                        .map(summaries -> JournalEntryService.inRankOrder(ids, summaries)))
+                        .doOnNext(related -> metrics.recordQuery("related", related.size()));
+            });
+        });
+    }
+
+    // Full-text search over title, body and tags, best matches first, optionally limited to one user
+    public Mono<CursorPage<JournalEntry>> searchJournalEntries(String searchText, String userId, String cursor, Integer limit) {
+        return Mono.defer(() -> {
+            if (searchText == null || searchText.isBlank()) {
+                return Mono.error(new IllegalArgumentException("query must not be blank"));
+            }
+            int pageSize = JournalEntryService.pageSize(limit);
+            int offset = cursor != null ? JournalEntryService.decodeOffset(cursor) : 0;
+            return repository.searchText(userId, searchText, offset, pageSize + 1, JournalEntryService.LISTING_READS)
+                    .collectList()
+                    .map(hits -> JournalEntryService.searchPage(hits, offset, pageSize))
+                    .doOnNext(page -> metrics.recordSearch(page.getItems().size()));
+        });
+    }
+
+    // See JournalEntryService#searchJournalEntries(String, String)
+    public Mono<List<JournalEntry>> searchJournalEntries(String searchText, String userId) {
+        return Mono.defer(() -> {
+            if (searchText == null || searchText.isBlank()) {
+                return Mono.error(new IllegalArgumentException("query must not be blank"));
+            }
+            return repository.searchText(userId, searchText, 0, JournalEntryService.MAX_SEARCH_HITS,
+                            JournalEntryService.LISTING_READS)
+                    .collectList()
+                    .doOnNext(hits -> metrics.recordSearch(hits.size()));
+        });
+    }
+
+    // Import journal entries decoded from the request body, inserting them in unordered batches.
+    // Only one batch is requested from the body at a time, so the client is held to the database's pace.
+    // Errors with CapacityExceededException when too many imports are already running.
+    public Mono<ImportResult> importJournalEntries(Flux<JournalEntry> entries, String userId) {
+        return Mono.defer(() -> {
+            if (!importPermits.tryAcquire()) {
+                return Mono.error(new CapacityExceededException("Too many imports in progress"));
+            }
+
+            ImportResult result = new ImportResult();
+            AtomicInteger received = new AtomicInteger();
+            return entries
+                    .map(entry -> new IndexedEntry(received.getAndIncrement(), entry))
+                    .filter(item -> {
+                        String problem = JournalImportService.prepare(item.entry(), userId, validator);
+                        if (problem != null) {
+                            update(result, tally -> JournalImportService.recordFailure(tally, item.index(), problem));
+                        }
+                        return problem == null;
+                    })
+                    .buffer(importBatchSize)
+                    .concatMap(batch -> insertBatch(batch, result), 1)
+                    .onErrorResume(DecodingException.class, e -> {
+                        // Malformed JSON: there is no reliable way to find the next entry
+                        update(result, tally -> {
+                            JournalImportService.recordFailure(tally, received.get(),
+                                    "Malformed input: " + e.getMessage());
+                            tally.setAborted(true);
+                        });
+                        return Mono.empty();
+                    })
+                    .then(Mono.fromCallable(() -> {
+                        update(result, tally -> {
+                            tally.setReceived(received.get());
+                            tally.getFailures().sort(Comparator.comparingInt(ImportResult.Failure::getIndex));
+                        });
+                        return result;
+                    }))
+                    .doFinally(signal -> importPermits.release());
+        });
+    }
+
+    private Mono<Void> insertBatch(List<IndexedEntry> batch, ImportResult result) {
+        List<JournalEntry> entries = new ArrayList<>(batch.size());
+        batch.forEach(item -> entries.add(item.entry()));
+        JournalImportService.assignModSeqs(entries);
+        return repository.insertUnordered(entries)
+                .doOnNext(failures -> update(result, tally -> {
+                    tally.setInserted(tally.getInserted() + entries.size() - failures.size());
+                    failures.forEach((position, failure) -> JournalImportService.recordFailure(tally,
+                            batch.get(position).index(), failure.getMessage()));
+                }))
+                .flatMap(failures -> recordInserted(JournalImportService.inserted(entries, failures)));
+    }
+
+    // Entries are validated on the thread decoding the body while batches complete on driver threads, so the
+    // result of an import is only changed under its lock
+    private static void update(ImportResult result, Consumer<ImportResult> change) {
+        synchronized (result) {
+            change.accept(result);
+        }
+    }
+
+    // See JournalStatsService#recordInserted
+    private Mono<Void> recordInserted(List<JournalEntry> entries) {
+        journalSimilarity.recordInserted(entries);
+        Map<String, Map<String, Long>> changes = JournalStatsService.changesByUser(entries);
+        return statsRepository.incrementAll(changes)
+                .onErrorResume(DataAccessException.class, e -> {
+                    log.warn("Updating the journal stats of {} users after an import failed, dropping them for a rebuild",
+                            changes.size(), e);
+                    return Flux.fromIterable(changes.keySet()).concatMap(this::dropJournalStats).then();
+                });
+    }
+
+    private Cache entryCache() {
+        return cacheManager.getCache(CacheConfig.JOURNAL_ENTRIES);
+    }
+
+    private record IndexedEntry(int index, JournalEntry entry) {
+    }
+}
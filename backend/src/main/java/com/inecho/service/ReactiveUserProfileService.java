@@ -0,0 +1,216 @@
+package com.inecho.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.model.CascadeDeletion;
+import com.inecho.model.CursorPage;
+import com.inecho.model.UserProfile;
+import com.inecho.repository.ReactiveJournalEntryRepository;
+import com.inecho.repository.ReactiveJournalStatsRepository;
+import com.inecho.repository.ReactiveJournalTombstoneRepository;
+import com.inecho.repository.ReactiveUserProfileRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of UserProfileService, used by the 'reactive' profile
+@Service
+@Profile("reactive")
+public class ReactiveUserProfileService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveUserProfileService.class);
+
+    @Autowired
+    private ReactiveUserProfileRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ReactiveJournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private CascadeDeletions cascadeDeletions;
+
+    @Autowired
+    private ReactiveJournalStatsRepository journalStatsRepository;
+
+    @Autowired
+    private ReactiveJournalTombstoneRepository journalTombstoneRepository;
+
+    @Autowired
+    private JournalSimilarity journalSimilarity;
+
+    @Value("${inecho.cascade-delete.batch-size:500}")
+    private int cascadeBatchSize;
+
+    @Value("${inecho.cascade-delete.pause:100ms}")
+    private Duration cascadePause;
+
+    // Save a new user profile
+    public Mono<UserProfile> saveUserProfile(UserProfile userProfile) {
+        // A new profile always starts at the first version, whatever the client sent
+        userProfile.setVersion(null);
+        return repository.save(userProfile).doOnNext(this::cacheEmail);
+    }
+
+    // Get all user profiles
+    public Flux<UserProfile> getAllUserProfiles() {
+        return repository.findAll();
+    }
+
+    // Get one keyset page of user profiles in id order
+    public Mono<CursorPage<UserProfile>> getUserProfilesPage(String cursor, Integer limit) {
+        return Mono.defer(() -> {
+            int pageSize = JournalEntryService.pageSize(limit);
+            PageRequest fetch = PageRequest.of(0, pageSize + 1);
+            Flux<UserProfile> profiles = cursor == null
+                    ? repository.findAllByOrderByIdAsc(fetch)
+                    : repository.findByIdGreaterThanOrderByIdAsc(UserProfileService.decodeProfileCursor(cursor), fetch);
+            return profiles.collectList().map(fetched -> UserProfileService.keysetPage(fetched, pageSize));
+        });
+    }
+
+    // Get a user profile by ID, served from the cache when possible; see
+    // ReactiveJournalEntryService#getJournalEntryById
+    public Mono<UserProfile> getUserProfileById(String id) {
+        return Mono.defer(() -> {
+            Cache cache = profileCache();
+            UserProfile cached = cache.get(id, UserProfile.class);
+            if (cached != null) {
+                return Mono.just(cached.copy());
+            }
+            return repository.findById(id).doOnNext(profile -> cache.putIfAbsent(id, profile.copy()));
+        });
+    }
+
+    // Update an existing user profile, replacing its name and email; empty if it doesn't exist
+    public Mono<UserProfile> updateUserProfile(String id, UserProfile userProfile) {
+        return applyChanges(id, userProfile, true);
+    }
+
+    // Partially update an existing user profile; only the fields present in the request are changed
+    public Mono<UserProfile> patchUserProfile(String id, UserProfile changes) {
+        return applyChanges(id, changes, false);
+    }
+
+    // See UserProfileService#applyChanges
+    private Mono<UserProfile> applyChanges(String id, UserProfile changes, boolean replace) {
+        return repository.updateFields(id, changes.getVersion(), changes, replace)
+                .doOnNext(updatedProfile -> {
+                    profileCache().evict(id);
+                    cacheEmail(updatedProfile);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    profileCache().evict(id);
+                    if (changes.getVersion() == null) {
+                        return Mono.empty();
+                    }
+                    return repository.existsById(id)
+                            .flatMap(exists -> exists
+                                    ? Mono.error(new OptimisticLockingFailureException(
+                                            "User profile " + id + " was modified after version " + changes.getVersion()))
+                                    : Mono.empty());
+                }));
+    }
+
+    // Delete a user profile by ID
+    public Mono<Void> deleteUserProfile(String id) {
+        return repository.deleteById(id)
+                .then(Mono.fromRunnable(() -> profileCache().evict(id)));
+    }
+
+    // Delete a user profile and, in the background, every journal entry of that user. Emits the progress
+    // of the entry deletion, which may already have been running on this instance.
+    public Mono<CascadeDeletion> deleteUserProfileCascade(String id) {
+        return deleteUserProfile(id)
+                .then(Mono.fromSupplier(() -> {
+                    CascadeDeletion deletion = cascadeDeletions.begin(id);
+                    if (deletion == null) {
+                        return cascadeDeletions.get(id).orElseThrow();
+                    }
+                    deleteJournalEntries(deletion).subscribe();
+                    return deletion;
+                }));
+    }
+
+    // Get the progress of the cascade deletion of a user's journal entries, if it ran on this instance
+    public Mono<CascadeDeletion> getCascadeDeletion(String id) {
+        return Mono.justOrEmpty(cascadeDeletions.get(id));
+    }
+
+    // See UserProfileService#deleteJournalEntries; the next batch is only requested after the pause
+    private Mono<Void> deleteJournalEntries(CascadeDeletion deletion) {
+        Cache entryCache = cacheManager.getCache(CacheConfig.JOURNAL_ENTRIES);
+        Mono<List<String>> batch = Mono.defer(() ->
+                journalEntryRepository.deleteBatchByUserId(deletion.getUserId(), cascadeBatchSize));
+        return batch
+                .expand(ids -> ids.isEmpty() ? Mono.empty() : Mono.delay(cascadePause).then(batch))
+                .doOnNext(ids -> {
+                    ids.forEach(entryCache::evict);
+                    deletion.addDeleted(ids.size());
+                })
+                .then(Mono.defer(() -> journalStatsRepository.deleteById(deletion.getUserId())))
+                .then(Mono.fromRunnable(() -> journalSimilarity.forget(deletion.getUserId())))
+                .then(Mono.defer(() -> journalTombstoneRepository.deleteByUserId(deletion.getUserId())))
+                .doOnSuccess(done -> deletion.complete())
+                .doOnError(e -> {
+                    log.warn("Deleting journal entries of user {} failed after {} entries", deletion.getUserId(),
+                            deletion.getDeletedEntries(), e);
+                    deletion.fail(e.getMessage());
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    // Find user profile by email
+    public Mono<UserProfile> getUserProfileByEmail(String email) {
+        return Mono.defer(() -> {
+            String cachedId = emailCache().get(email, String.class);
+            Mono<UserProfile> fromDatabase = repository.findByEmail(email).doOnNext(this::cacheEmail);
+            if (cachedId == null) {
+                return fromDatabase;
+            }
+            return getUserProfileById(cachedId)
+                    .filter(profile -> email.equals(profile.getEmail()))
+                    // The profile was deleted or its email changed since the mapping was cached
+                    .switchIfEmpty(Mono.defer(() -> {
+                        emailCache().evict(email);
+                        return fromDatabase;
+                    }));
+        });
+    }
+
+    // Find the current user's profile by their unique ID or email
+    public Mono<UserProfile> getCurrentUserProfile(String uniqueIdentifier) {
+        return getUserProfileByEmail(uniqueIdentifier)
+                .switchIfEmpty(getUserProfileById(uniqueIdentifier));
+    }
+
+    private void cacheEmail(UserProfile userProfile) {
+        if (userProfile.getEmail() != null) {
+            emailCache().put(userProfile.getEmail(), userProfile.getId());
+        }
+    }
+
+    private Cache profileCache() {
+        return cacheManager.getCache(CacheConfig.USER_PROFILES);
+    }
+
+    private Cache emailCache() {
+        return cacheManager.getCache(CacheConfig.USER_PROFILE_IDS_BY_EMAIL);
+    }
+}
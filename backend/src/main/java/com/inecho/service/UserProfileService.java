@@ -1,23 +1,99 @@
 package com.inecho.service;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import com.inecho.config.CacheConfig;
+import com.inecho.model.CascadeDeletion;
+import com.inecho.model.CursorPage;
+import com.inecho.model.PageCursor;
 import com.inecho.model.UserProfile;
+import com.inecho.repository.JournalEntryRepository;
 import com.inecho.repository.UserProfileRepository;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
 @Service
+@Profile("!reactive")
 public class UserProfileService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserProfileService.class);
+
     @Autowired
     private UserProfileRepository repository;
 
-    // Save or update a user profile
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private CascadeDeletions cascadeDeletions;
+
+    @Autowired
+    private JournalStatsService journalStatsService;
+
+    @Autowired
+    private JournalSimilarity journalSimilarity;
+
+    @Autowired
+    private JournalSyncService journalSyncService;
+
+    @Value("${inecho.cascade-delete.batch-size:500}")
+    private int cascadeBatchSize;
+
+    @Value("${inecho.cascade-delete.pause:100ms}")
+    private Duration cascadePause;
+
+    @Value("${inecho.cascade-delete.threads:2}")
+    private int cascadeThreads;
+
+    // Cascades sleep between batches for as long as a journal takes, so they get their own threads rather than
+    // holding the shared pool that also runs streamed responses; more cascades than threads wait their turn
+    private ExecutorService cascadePool;
+
+    private final AtomicInteger cascadeThreadCount = new AtomicInteger();
+
+    @PostConstruct
+    void start() {
+        cascadePool = Executors.newFixedThreadPool(cascadeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "inecho-cascade-delete-" + cascadeThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Interrupts running cascades, which fail and are resumed by deleting the profile with cascade again
+    @PreDestroy
+    void stop() {
+        cascadePool.shutdownNow();
+    }
+
+    // Save a new user profile
     public UserProfile saveUserProfile(UserProfile userProfile) {
-        return repository.save(userProfile);  // Uses save from MongoRepository
+        // A new profile always starts at the first version, whatever the client sent
+        userProfile.setVersion(null);
+        UserProfile savedProfile = repository.save(userProfile);  // Uses save from MongoRepository
+        cacheEmail(savedProfile);
+        return savedProfile;
     }
 
     // Get all user profiles
@@ -25,31 +101,165 @@ public class UserProfileService {
         return repository.findAll();  // Uses findAll from MongoRepository
     }
 
-    // Get a user profile by ID
+    // Get one keyset page of user profiles in id order
+    public CursorPage<UserProfile> getUserProfilesPage(String cursor, Integer limit) {
+        int pageSize = JournalEntryService.pageSize(limit);
+        PageRequest fetch = PageRequest.of(0, pageSize + 1);
+
+        List<UserProfile> profiles;
+        if (cursor == null) {
+            profiles = repository.findAllByOrderByIdAsc(fetch);
+        } else {
+            profiles = repository.findByIdGreaterThanOrderByIdAsc(decodeProfileCursor(cursor), fetch);
+        }
+
+        return keysetPage(profiles, pageSize);
+    }
+
+    // Decode a profile page cursor into the ObjectId to seek past
+    static ObjectId decodeProfileCursor(String cursor) {
+        String afterId = PageCursor.decode(cursor).getId();
+        if (!ObjectId.isValid(afterId)) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        return new ObjectId(afterId);
+    }
+
+    // Build a page from up to pageSize + 1 fetched profiles; the extra profile only signals that more follow
+    static CursorPage<UserProfile> keysetPage(List<UserProfile> fetched, int pageSize) {
+        if (fetched.size() <= pageSize) {
+            return new CursorPage<>(fetched, null);
+        }
+
+        List<UserProfile> page = fetched.subList(0, pageSize);
+        return new CursorPage<>(page, PageCursor.ofId(page.get(pageSize - 1).getId()).encode());
+    }
+
+    // Get a user profile by ID, served from the cache when possible; see JournalEntryService#getJournalEntryById
     public Optional<UserProfile> getUserProfileById(String id) {
-        return repository.findById(id);  // Uses findById from MongoRepository
+        return CacheConfig.readThrough(profileCache(), id, () -> repository.findById(id)).map(UserProfile::copy);
+    }
+
+    // Update an existing user profile, replacing its name and email
+    public Optional<UserProfile> updateUserProfile(String id, UserProfile userProfile) {
+        return applyChanges(id, userProfile, true);
+    }
+
+    // Partially update an existing user profile; only the fields present in the request are changed
+    public Optional<UserProfile> patchUserProfile(String id, UserProfile changes) {
+        return applyChanges(id, changes, false);
+    }
+
+    // Update in a single findAndModify rather than read-modify-write. If the request carries a version, the
+    // update is rejected with an OptimisticLockingFailureException when the profile has changed since.
+    private Optional<UserProfile> applyChanges(String id, UserProfile changes, boolean replace) {
+        Optional<UserProfile> updatedProfile = repository.updateFields(id, changes.getVersion(), changes, replace);
+        if (updatedProfile.isPresent()) {
+            // The old email mapping, if the email changed, fails validation on its next read
+            profileCache().evict(id);
+            cacheEmail(updatedProfile.get());
+            return updatedProfile;
+        }
+
+        profileCache().evict(id);
+        if (changes.getVersion() != null && repository.existsById(id)) {
+            throw new OptimisticLockingFailureException(
+                    "User profile " + id + " was modified after version " + changes.getVersion());
+        }
+        return Optional.empty();
     }
 
     // Delete a user profile by ID
     public void deleteUserProfile(String id) {
         repository.deleteById(id);  // Uses deleteById from MongoRepository
+        profileCache().evict(id);
+        // Any email mapping still pointing at this ID fails validation on its next read
+    }
+
+    // Delete a user profile and, in the background, every journal entry of that user. Returns the progress
+    // of the entry deletion, which may already have been running on this instance.
+    public CascadeDeletion deleteUserProfileCascade(String id) {
+        deleteUserProfile(id);
+
+        CascadeDeletion deletion = cascadeDeletions.begin(id);
+        if (deletion == null) {
+            return cascadeDeletions.get(id).orElseThrow();
+        }
+        cascadePool.execute(() -> deleteJournalEntries(deletion));
+        return deletion;
+    }
+
+    // Get the progress of the cascade deletion of a user's journal entries, if it ran on this instance
+    public Optional<CascadeDeletion> getCascadeDeletion(String id) {
+        return cascadeDeletions.get(id);
+    }
+
+    // Delete the user's entries in bounded batches with a pause in between, so a heavy user doesn't
+    // hold one huge delete on the primary or starve other writes
+    void deleteJournalEntries(CascadeDeletion deletion) {
+        Cache entryCache = cacheManager.getCache(CacheConfig.JOURNAL_ENTRIES);
+        try {
+            List<String> ids;
+            while (!(ids = journalEntryRepository.deleteBatchByUserId(deletion.getUserId(), cascadeBatchSize)).isEmpty()) {
+                ids.forEach(entryCache::evict);
+                deletion.addDeleted(ids.size());
+                Thread.sleep(cascadePause.toMillis());
+            }
+            journalStatsService.deleteJournalStats(deletion.getUserId());
+            journalSimilarity.forget(deletion.getUserId());
+            journalSyncService.deleteTombstones(deletion.getUserId());
+            deletion.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deletion.fail("Interrupted");
+        } catch (RuntimeException e) {
+            log.warn("Deleting journal entries of user {} failed after {} entries", deletion.getUserId(),
+                    deletion.getDeletedEntries(), e);
+            deletion.fail(e.getMessage());
+        }
     }
 
     // Find user profile by email
     public Optional<UserProfile> getUserProfileByEmail(String email) {
-        return repository.findByEmail(email);  // Custom query to find by email
+        String cachedId = emailCache().get(email, String.class);
+        if (cachedId != null) {
+            Optional<UserProfile> userProfile = getUserProfileById(cachedId);
+            if (userProfile.isPresent() && email.equals(userProfile.get().getEmail())) {
+                return userProfile;
+            }
+            // The profile was deleted or its email changed since the mapping was cached
+            emailCache().evict(email);
+        }
+
+        Optional<UserProfile> userProfile = repository.findByEmail(email);  // Custom query to find by email
+        userProfile.ifPresent(this::cacheEmail);
+        return userProfile;
     }
 
     // Find the current user's profile by their unique ID or email
     public Optional<UserProfile> getCurrentUserProfile(String uniqueIdentifier) {
         // Try finding the profile by email first
-        Optional<UserProfile> userProfile = repository.findByEmail(uniqueIdentifier);
+        Optional<UserProfile> userProfile = getUserProfileByEmail(uniqueIdentifier);
 
         // If not found by email, try finding by ID (if applicable)
         if (!userProfile.isPresent()) {
-            userProfile = repository.findById(uniqueIdentifier);
+            userProfile = getUserProfileById(uniqueIdentifier);
         }
 
         return userProfile;
     }
+
+    private void cacheEmail(UserProfile userProfile) {
+        if (userProfile.getEmail() != null) {
+            emailCache().put(userProfile.getEmail(), userProfile.getId());
+        }
+    }
+
+    private Cache profileCache() {
+        return cacheManager.getCache(CacheConfig.USER_PROFILES);
+    }
+
+    private Cache emailCache() {
+        return cacheManager.getCache(CacheConfig.USER_PROFILE_IDS_BY_EMAIL);
+    }
 }
@@ -0,0 +1,124 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inecho.service.AdmissionControl;
+import com.inecho.service.AdmissionControl.Cost;
+import com.inecho.service.AdmissionControl.Rejection;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AdmissionControlTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+    private AdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        admissionControl = new AdmissionControl();
+        ReflectionTestUtils.setField(admissionControl, "registry", registry);
+        ReflectionTestUtils.setField(admissionControl, "enabled", true);
+        ReflectionTestUtils.setField(admissionControl, "rate", 2.0);
+        ReflectionTestUtils.setField(admissionControl, "burst", 4.0);
+        ReflectionTestUtils.setField(admissionControl, "addressRate", 4.0);
+        ReflectionTestUtils.setField(admissionControl, "addressBurst", 8.0);
+        ReflectionTestUtils.setField(admissionControl, "expensiveCost", 3);
+        ReflectionTestUtils.setField(admissionControl, "cheapConcurrency", 10);
+        ReflectionTestUtils.setField(admissionControl, "expensiveConcurrency", 1);
+        ReflectionTestUtils.setField(admissionControl, "exportConcurrency", 1);
+        ReflectionTestUtils.setField(admissionControl, "clock", (LongSupplier) now::get);
+        ReflectionTestUtils.invokeMethod(admissionControl, "start");
+    }
+
+    @Test
+    void admit_OverTheRate_ShouldRejectWith429UntilTokensRefill() {
+        for (int request = 0; request < 4; request++) {
+            assertNull(admissionControl.admit("a1", "u1", Cost.CHEAP));
+            admissionControl.release(Cost.CHEAP);
+        }
+
+        Rejection rejection = admissionControl.admit("a1", "u1", Cost.CHEAP);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejection.status());
+        assertEquals(1, rejection.retryAfterSeconds());
+        // Other clients have their own budget
+        assertNull(admissionControl.admit("a1", "u2", Cost.CHEAP));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertNull(admissionControl.admit("a1", "u1", Cost.CHEAP));
+        assertEquals(1, registry.get(AdmissionControl.REJECTED).tag("reason", "rate").counter().count());
+    }
+
+    @Test
+    void admit_OverTheRateOfTheAddress_ShouldRejectWhateverUserIsNamed() {
+        for (int request = 0; request < 8; request++) {
+            assertNull(admissionControl.admit("a1", "u" + request, Cost.CHEAP));
+            admissionControl.release(Cost.CHEAP);
+        }
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, admissionControl.admit("a1", "u8", Cost.CHEAP).status());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, admissionControl.admit("a1", null, Cost.CHEAP).status());
+        assertNull(admissionControl.admit("a2", "u1", Cost.CHEAP));
+    }
+
+    @Test
+    void admit_ExpensiveRequest_ShouldCostMoreTokens() {
+        assertNull(admissionControl.admit("a1", "u1", Cost.EXPENSIVE));
+        admissionControl.release(Cost.EXPENSIVE);
+
+        Rejection rejection = admissionControl.admit("a1", "u1", Cost.EXPENSIVE);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejection.status());
+        // One token left, two more come in one second
+        assertEquals(1, rejection.retryAfterSeconds());
+        assertNull(admissionControl.admit("a1", "u1", Cost.CHEAP));
+    }
+
+    @Test
+    void admit_WithFullBulkhead_ShouldRejectWith503AndLeaveCheapRequestsAlone() {
+        assertNull(admissionControl.admit("a1", "u1", Cost.EXPENSIVE));
+
+        Rejection rejection = admissionControl.admit("a1", "u2", Cost.EXPENSIVE);
+        assertNotNull(rejection);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection.status());
+        assertNull(admissionControl.admit("a1", "u2", Cost.CHEAP));
+        assertEquals(1, registry.get(AdmissionControl.IN_FLIGHT).tag("cost", "expensive").gauge().value());
+
+        admissionControl.release(Cost.EXPENSIVE);
+        assertNull(admissionControl.admit("a1", "u3", Cost.EXPENSIVE));
+    }
+
+    @Test
+    void admit_WithFullBulkhead_ShouldNotSpendTokens() {
+        assertNull(admissionControl.admit("a1", "u1", Cost.EXPENSIVE));
+        for (int request = 0; request < 5; request++) {
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, admissionControl.admit("a1", "u2", Cost.EXPENSIVE).status());
+        }
+        admissionControl.release(Cost.EXPENSIVE);
+
+        assertNull(admissionControl.admit("a1", "u2", Cost.EXPENSIVE));
+    }
+
+    @Test
+    void admit_Export_ShouldTakeItsOwnBulkheadNotTheExpensiveOne() {
+        assertNull(admissionControl.admit("a1", "u1", Cost.EXPORT));
+        assertNull(admissionControl.admit("a2", "u2", Cost.EXPENSIVE));
+
+        Rejection rejection = admissionControl.admit("a3", "u3", Cost.EXPORT);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejection.status());
+        assertEquals(1, registry.get(AdmissionControl.IN_FLIGHT).tag("cost", "export").gauge().value());
+
+        admissionControl.release(Cost.EXPORT);
+        assertNull(admissionControl.admit("a4", "u4", Cost.EXPORT));
+    }
+}
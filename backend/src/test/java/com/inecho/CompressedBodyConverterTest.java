@@ -0,0 +1,107 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.inecho.config.CompressedBodyConverter;
+import com.inecho.config.MongoConfig;
+import com.inecho.model.CompressedBody;
+import com.inecho.model.JournalEntry;
+
+public class CompressedBodyConverterTest {
+
+    private MappingMongoConverter converter;
+
+    @BeforeEach
+    void setUp() {
+        MongoCustomConversions conversions = new MongoConfig().mongoCustomConversions(DataSize.ofBytes(256));
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+    }
+
+    @Test
+    void write_LongBody_ShouldStoreItCompressedWithItsTerms() {
+        String body = "Walked to the lake again. ".repeat(40) + "Saw a Heron!";
+
+        Document stored = write(body);
+
+        Document compressed = assertInstanceOf(Document.class, stored.get("body"));
+        assertTrue(compressed.get(CompressedBodyConverter.DEFLATED, Binary.class).length() < body.length() / 4);
+        // Stop words aren't indexed anyway
+        assertEquals("walked lake saw heron", compressed.get(CompressedBodyConverter.TERMS));
+        assertEquals(body, converter.read(JournalEntry.class, stored).getBody());
+    }
+
+    @Test
+    void update_SettingLongBody_ShouldStoreItCompressed() {
+        String body = "Walked to the lake again. ".repeat(40);
+        Update update = new Update().set("body", body).set("title", "Lake");
+
+        Document mapped = new UpdateMapper(converter).getMappedObject(update.getUpdateObject(),
+                converter.getMappingContext().getPersistentEntity(JournalEntry.class));
+
+        Document set = mapped.get("$set", Document.class);
+        Document compressed = assertInstanceOf(Document.class, set.get("body"));
+        assertEquals("walked lake", compressed.get(CompressedBodyConverter.TERMS));
+        assertEquals("Lake", set.get("title"));
+        assertEquals(body, converter.read(JournalEntry.class, new Document("body", compressed)).getBody());
+    }
+
+    @Test
+    void read_CompressedBody_ShouldInflateItOnlyWhenAskedFor() {
+        String body = "Walked to the lake again. ".repeat(40);
+        Document stored = write(body);
+
+        JournalEntry entry = converter.read(JournalEntry.class, stored);
+        CompressedBody compressed = assertInstanceOf(CompressedBody.class, ReflectionTestUtils.getField(entry, "body"));
+
+        // Written back unchanged, the stored body is reused rather than compressed again
+        Document rewritten = new Document();
+        converter.write(entry, rewritten);
+        assertSame(compressed.stored(), rewritten.get("body"));
+        assertEquals(body, entry.getBody());
+    }
+
+    @Test
+    void write_ShortBody_ShouldStoreItAsIs() {
+        Document stored = write("A quiet day.");
+
+        assertEquals("A quiet day.", stored.get("body"));
+        assertEquals("A quiet day.", converter.read(JournalEntry.class, stored).getBody());
+    }
+
+    @Test
+    void read_DocumentWrittenBeforeCompression_ShouldReturnThePlainBody() {
+        String body = "Written before bodies were compressed. ".repeat(20);
+        Document stored = new Document("_id", "e1").append("title", "Old").append("body", body);
+
+        assertEquals(body, converter.read(JournalEntry.class, stored).getBody());
+    }
+
+    private Document write(String body) {
+        JournalEntry entry = new JournalEntry();
+        entry.setTitle("Entry");
+        entry.setBody(body);
+        Document stored = new Document();
+        converter.write(entry, stored);
+        return stored;
+    }
+}
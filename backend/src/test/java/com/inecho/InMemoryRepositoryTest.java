@@ -0,0 +1,222 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalStats;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+import com.inecho.model.UserProfile;
+import com.inecho.repository.ReadRoute;
+import com.inecho.repository.memory.InMemoryJournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalStatsRepository;
+import com.inecho.repository.memory.InMemoryJournalTombstoneRepository;
+import com.inecho.repository.memory.InMemoryUserProfileRepository;
+import com.inecho.repository.memory.MemorySnapshots;
+
+public class InMemoryRepositoryTest {
+
+    private InMemoryJournalEntryRepository journalEntries;
+    private InMemoryUserProfileRepository userProfiles;
+
+    @BeforeEach
+    void setUp() {
+        journalEntries = new InMemoryJournalEntryRepository();
+        userProfiles = new InMemoryUserProfileRepository();
+    }
+
+    @Test
+    void findPage_ShouldWalkTheTagIndexNewestFirst() {
+        for (int hour = 0; hour < 5; hour++) {
+            journalEntries.save(entry("u1", hour, hour % 2 == 0 ? "work" : "home"));
+        }
+        journalEntries.save(entry("u2", 9, "work"));
+
+        List<JournalEntry> first = journalEntries.findPage("u1", "work", null, 2, ReadRoute.PRIMARY);
+        assertEquals(List.of(4, 2), hours(first));
+
+        List<JournalEntry> second = journalEntries.findPage("u1", "work", PageCursor.of(first.get(1)), 2, ReadRoute.PRIMARY);
+        assertEquals(List.of(0), hours(second));
+        assertEquals(4, journalEntries.findEntries(null, "work", ReadRoute.PRIMARY).size());
+    }
+
+    @Test
+    void findAndUpdateFields_ShouldRejectStaleVersionAndKeepIndexesInStep() {
+        JournalEntry saved = journalEntries.save(entry("u1", 1, "work"));
+        assertEquals(0L, saved.getVersion());
+
+        JournalEntry changes = new JournalEntry();
+        changes.setTags(List.of("home"));
+        JournalEntry previous = journalEntries.findAndUpdateFields(saved.getId(), 0L, changes, false).orElseThrow();
+        JournalEntry updated = journalEntries.findById(saved.getId()).orElseThrow();
+
+        assertEquals(List.of("work"), previous.getTags());
+        assertEquals(previous.withChanges(changes, false), updated);
+        assertEquals(1L, updated.getVersion());
+        assertEquals("Entry 1", updated.getTitle());
+        assertTrue(journalEntries.findEntries(null, "work", ReadRoute.PRIMARY).isEmpty());
+        assertEquals(1, journalEntries.findEntries("u1", "home", ReadRoute.PRIMARY).size());
+        assertFalse(journalEntries.findAndUpdateFields(saved.getId(), 0L, changes, false).isPresent());
+        assertThrows(OptimisticLockingFailureException.class, () -> journalEntries.save(saved));
+    }
+
+    @Test
+    void searchText_ShouldRankTitleMatchesFirst() {
+        JournalEntry inBody = entry("u1", 1, "work");
+        inBody.setBody("a long walk");
+        JournalEntry inTitle = entry("u1", 2, "work");
+        inTitle.setTitle("Walk");
+        journalEntries.save(inBody);
+        journalEntries.save(inTitle);
+        journalEntries.save(entry("u1", 3, "work"));
+
+        List<JournalEntry> hits = journalEntries.searchText("u1", "walk", 0, 10, ReadRoute.PRIMARY);
+
+        assertEquals(List.of(2, 1), hours(hits));
+        assertEquals(3f, hits.get(0).getScore());
+    }
+
+    @Test
+    void deleteBatchByUserId_ShouldOnlyRemoveThatUsersEntries() {
+        for (int hour = 0; hour < 5; hour++) {
+            journalEntries.save(entry("u1", hour, "work"));
+        }
+        journalEntries.save(entry("u2", 1, "work"));
+
+        assertEquals(3, journalEntries.deleteBatchByUserId("u1", 3).size());
+        assertEquals(2, journalEntries.deleteBatchByUserId("u1", 3).size());
+        assertTrue(journalEntries.deleteBatchByUserId("u1", 3).isEmpty());
+        assertEquals(1, journalEntries.findEntries(null, "work", ReadRoute.PRIMARY).size());
+    }
+
+    @Test
+    void userProfiles_ShouldEnforceUniqueEmailAndPageInIdOrder() {
+        UserProfile first = userProfiles.save(new UserProfile("A", "a@example.com"));
+        UserProfile second = userProfiles.save(new UserProfile("B", null));
+        userProfiles.save(new UserProfile("C", null));
+
+        assertThrows(DuplicateKeyException.class, () -> userProfiles.save(new UserProfile("D", "a@example.com")));
+        assertEquals("A", userProfiles.findByEmail("a@example.com").orElseThrow().getName());
+
+        List<UserProfile> page = userProfiles.findByIdGreaterThanOrderByIdAsc(new ObjectId(first.getId()), PageRequest.of(0, 1));
+        assertEquals(List.of(second.getId()), page.stream().map(UserProfile::getId).toList());
+    }
+
+    @Test
+    void queryByExample_ShouldMatchProbePropertiesLikeMongo() {
+        journalEntries.save(entry("u1", 1, "work"));
+        JournalEntry evening = entry("u1", 20, "home");
+        evening.setTitle("Evening walk");
+        journalEntries.save(evening);
+        journalEntries.save(entry("u2", 3, "work"));
+
+        JournalEntry byUser = new JournalEntry();
+        byUser.setUserId("u1");
+        assertEquals(2, journalEntries.count(Example.of(byUser)));
+        assertEquals(List.of(20, 1), hours(journalEntries.findAll(Example.of(byUser), Sort.by(Sort.Direction.DESC, "date"))));
+
+        JournalEntry byTitle = new JournalEntry();
+        byTitle.setTitle("evening");
+        ExampleMatcher containing = ExampleMatcher.matching().withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
+                .withIgnoreCase();
+        assertEquals("Evening walk", journalEntries.findOne(Example.of(byTitle, containing)).orElseThrow().getTitle());
+        assertFalse(journalEntries.exists(Example.of(byTitle)));
+
+        JournalEntry either = new JournalEntry();
+        either.setUserId("u2");
+        either.setTitle("Evening walk");
+        assertEquals(2, journalEntries.findAll(Example.of(either, ExampleMatcher.matchingAny())).size());
+
+        assertThrows(IncorrectResultSizeDataAccessException.class, () -> journalEntries.findOne(Example.of(byUser)));
+        assertEquals(List.of(1), journalEntries.findBy(Example.of(byUser), query -> hours(query
+                .sortBy(Sort.by("date")).limit(1).all())));
+        assertEquals(1, journalEntries.findAll(Example.of(byUser), PageRequest.of(1, 1)).getContent().size());
+    }
+
+    @Test
+    void snapshot_ShouldRoundTripThroughTheMappedFile(@TempDir Path dir) throws Exception {
+        JournalEntry withFraction = entry("u1", 1, "work");
+        withFraction.setDate(withFraction.getDate().plusNanos(123_456_789));
+        JournalEntry saved = journalEntries.save(withFraction);
+        userProfiles.save(new UserProfile("A", "a@example.com"));
+        InMemoryJournalTombstoneRepository tombstones = new InMemoryJournalTombstoneRepository();
+        tombstones.save(new JournalTombstone("gone", "u1", 42L, LocalDateTime.of(2024, 1, 2, 0, 0)));
+        InMemoryJournalStatsRepository stats = new InMemoryJournalStatsRepository();
+        JournalStats rollup = new JournalStats("u1");
+        rollup.count(saved.getDate(), saved.getTags(), 1);
+        stats.save(rollup);
+
+        // Written on shutdown, loaded on startup
+        Path file = dir.resolve("store.json");
+        MemorySnapshots snapshots = snapshots(journalEntries, userProfiles, tombstones, stats, file);
+        ReflectionTestUtils.invokeMethod(snapshots, "start");
+        ReflectionTestUtils.invokeMethod(snapshots, "stop");
+
+        InMemoryJournalEntryRepository restoredEntries = new InMemoryJournalEntryRepository();
+        InMemoryUserProfileRepository restoredProfiles = new InMemoryUserProfileRepository();
+        InMemoryJournalTombstoneRepository restoredTombstones = new InMemoryJournalTombstoneRepository();
+        InMemoryJournalStatsRepository restoredStats = new InMemoryJournalStatsRepository();
+        MemorySnapshots restored = snapshots(restoredEntries, restoredProfiles, restoredTombstones, restoredStats, file);
+        ReflectionTestUtils.invokeMethod(restored, "start");
+        ReflectionTestUtils.invokeMethod(restored, "stop");
+
+        assertEquals(journalEntries.findById(saved.getId()), restoredEntries.findById(saved.getId()));
+        assertEquals(1, restoredEntries.findEntries("u1", "work", ReadRoute.PRIMARY).size());
+        assertTrue(restoredProfiles.findByEmail("a@example.com").isPresent());
+        assertEquals(List.of("gone"), restoredTombstones.findChangedSince("u1", SyncToken.START, 10).stream()
+                .map(JournalTombstone::getId).toList());
+        JournalStats restoredRollup = restoredStats.findById("u1").orElseThrow();
+        assertEquals(1, restoredRollup.getEntryCount());
+        assertEquals(rollup.getTagCounts(), restoredRollup.getTagCounts());
+    }
+
+    private static MemorySnapshots snapshots(InMemoryJournalEntryRepository entries, InMemoryUserProfileRepository profiles,
+            InMemoryJournalTombstoneRepository tombstones, InMemoryJournalStatsRepository stats, Path file) {
+        MemorySnapshots snapshots = new MemorySnapshots();
+        ReflectionTestUtils.setField(snapshots, "journalEntries", entries);
+        ReflectionTestUtils.setField(snapshots, "userProfiles", profiles);
+        ReflectionTestUtils.setField(snapshots, "journalTombstones", tombstones);
+        ReflectionTestUtils.setField(snapshots, "journalStats", stats);
+        ReflectionTestUtils.setField(snapshots, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(snapshots, "snapshotPath", file.toString());
+        ReflectionTestUtils.setField(snapshots, "snapshotInterval", Duration.ofHours(1));
+        return snapshots;
+    }
+
+    private static JournalEntry entry(String userId, int hour, String tag) {
+        JournalEntry entry = new JournalEntry();
+        entry.setTitle("Entry " + hour);
+        entry.setBody("Body");
+        entry.setDate(LocalDateTime.of(2024, 1, 1, hour, 0));
+        entry.setTags(List.of(tag));
+        entry.setUserId(userId);
+        return entry;
+    }
+
+    private static List<Integer> hours(List<JournalEntry> entries) {
+        return entries.stream().map(entry -> entry.getDate().getHour()).toList();
+    }
+}
@@ -0,0 +1,45 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import com.inecho.config.InechoRuntimeHints;
+import com.inecho.controller.UserProfileController;
+import com.inecho.model.CursorPage;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.UserProfile;
+
+public class InechoRuntimeHintsTest {
+
+    private RuntimeHints hints;
+
+    @BeforeEach
+    void setUp() {
+        hints = new RuntimeHints();
+        new InechoRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registerHints_MongoDocuments_ShouldBeConstructibleWithFieldAccess() {
+        for (Class<?> type : new Class<?>[] { JournalEntry.class, UserProfile.class }) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(type)
+                    .withMemberCategories(MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)
+                    .test(hints), type.getSimpleName());
+        }
+    }
+
+    @Test
+    void registerHints_ResponseBodies_ShouldBindTheirProperties() throws Exception {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onMethod(JournalEntry.class.getMethod("getTitle")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onMethod(CursorPage.class.getMethod("getNext")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onType(UserProfileController.ApiErrorResponse.class).test(hints));
+    }
+}
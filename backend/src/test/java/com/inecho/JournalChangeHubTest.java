@@ -0,0 +1,157 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inecho.model.JournalChange;
+import com.inecho.service.JournalChangeHub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JournalChangeHubTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private JournalChangeHub hub;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(hub, "stop");
+    }
+
+    @Test
+    void publish_ShouldOnlyReachTheSubscribersOfTheUser() {
+        hub = hub(Runnable::run, 10);
+        List<JournalChange> first = new ArrayList<>();
+        List<JournalChange> second = new ArrayList<>();
+        List<JournalChange> other = new ArrayList<>();
+        hub.subscribe("u1", null, first::add, () -> { });
+        hub.subscribe("u1", null, second::add, () -> { });
+        JournalChangeHub.Subscription closed = hub.subscribe("u2", null, other::add, () -> { });
+        closed.close();
+
+        hub.publish(change("c1", "u1"));
+        hub.publish(change("c2", "u2"));
+
+        assertEquals(List.of("c1"), ids(first));
+        assertEquals(List.of("c1"), ids(second));
+        assertTrue(other.isEmpty());
+        assertEquals(2, registry.get(JournalChangeHub.SUBSCRIBERS).gauge().value());
+    }
+
+    @Test
+    void publish_WithoutUser_ShouldBeSkipped() {
+        hub = hub(Runnable::run, 10);
+        List<JournalChange> received = new ArrayList<>();
+        hub.subscribe("u1", null, received::add, () -> { });
+
+        hub.publish(change("c1", null));
+        hub.publish(change("c2", "u1"));
+
+        assertEquals(List.of("c2"), ids(received));
+        // Not kept for replay either
+        List<JournalChange> replayed = new ArrayList<>();
+        hub.subscribe("u1", "c1", replayed::add, () -> { });
+        assertEquals(JournalChange.RESET, replayed.get(0).getType());
+    }
+
+    @Test
+    void subscribe_WithLastEventId_ShouldReplayTheChangesMissed() {
+        hub = hub(Runnable::run, 10);
+        hub.publish(change("c1", "u1"));
+        hub.publish(change("c2", "u2"));
+        hub.publish(change("c3", "u1"));
+        hub.publish(change("c4", "u1"));
+
+        List<JournalChange> received = new ArrayList<>();
+        hub.subscribe("u1", "c1", received::add, () -> { });
+        hub.publish(change("c5", "u1"));
+
+        assertEquals(List.of("c3", "c4", "c5"), ids(received));
+    }
+
+    @Test
+    void subscribe_WithLastEventIdNoLongerKept_ShouldSendReset() {
+        hub = hub(Runnable::run, 10);
+        ReflectionTestUtils.setField(hub, "replaySize", 2);
+        hub.publish(change("c1", "u1"));
+        hub.publish(change("c2", "u1"));
+        hub.publish(change("c3", "u1"));
+
+        List<JournalChange> received = new ArrayList<>();
+        hub.subscribe("u1", "c1", received::add, () -> { });
+
+        assertEquals(1, received.size());
+        assertEquals(JournalChange.RESET, received.get(0).getType());
+    }
+
+    @Test
+    void publish_ShouldDisconnectSubscribersThatFallBehind() {
+        // Nothing is ever drained, as if the client stopped reading
+        List<Runnable> pending = new ArrayList<>();
+        hub = hub(pending::add, 2);
+        AtomicBoolean dropped = new AtomicBoolean();
+        hub.subscribe("u1", null, change -> { }, () -> dropped.set(true));
+
+        hub.publish(change("c1", "u1"));
+        hub.publish(change("c2", "u1"));
+        assertFalse(dropped.get());
+        hub.publish(change("c3", "u1"));
+
+        assertTrue(dropped.get());
+        assertEquals(1, registry.get(JournalChangeHub.DROPPED).counter().count());
+        assertEquals(0, registry.get(JournalChangeHub.SUBSCRIBERS).gauge().value());
+
+        // Reconnecting with the last change it got resumes after it
+        List<JournalChange> received = new ArrayList<>();
+        ReflectionTestUtils.setField(hub, "senders", (Executor) Runnable::run);
+        hub.subscribe("u1", "c1", received::add, () -> { });
+        assertEquals(List.of("c2", "c3"), ids(received));
+    }
+
+    @Test
+    void resetAll_ShouldTellEverySubscriberToSync() {
+        hub = hub(Runnable::run, 10);
+        hub.publish(change("c1", "u1"));
+        List<JournalChange> received = new ArrayList<>();
+        hub.subscribe("u1", null, received::add, () -> { });
+
+        hub.resetAll();
+        List<JournalChange> reconnected = new ArrayList<>();
+        hub.subscribe("u1", "c1", reconnected::add, () -> { });
+
+        assertEquals(JournalChange.RESET, received.get(0).getType());
+        assertEquals(JournalChange.RESET, reconnected.get(0).getType());
+    }
+
+    private JournalChangeHub hub(Executor executor, int subscriberBuffer) {
+        JournalChangeHub changeHub = new JournalChangeHub();
+        ReflectionTestUtils.setField(changeHub, "registry", registry);
+        ReflectionTestUtils.setField(changeHub, "sendThreads", 1);
+        ReflectionTestUtils.setField(changeHub, "sendQueue", 1);
+        ReflectionTestUtils.setField(changeHub, "subscriberBuffer", subscriberBuffer);
+        ReflectionTestUtils.setField(changeHub, "replaySize", 100);
+        ReflectionTestUtils.setField(changeHub, "heartbeat", Duration.ofHours(1));
+        ReflectionTestUtils.invokeMethod(changeHub, "start");
+        ReflectionTestUtils.setField(changeHub, "senders", executor);
+        return changeHub;
+    }
+
+    private static JournalChange change(String id, String userId) {
+        return new JournalChange(id, JournalChange.ENTRY, userId, null);
+    }
+
+    private static List<String> ids(List<JournalChange> changes) {
+        return changes.stream().map(JournalChange::getId).toList();
+    }
+}
@@ -0,0 +1,170 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.config.MongoConfig;
+import com.inecho.model.JournalChange;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.UserProfile;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.JournalTombstoneRepository;
+import com.inecho.repository.ReadRouting;
+import com.inecho.repository.UserProfileRepository;
+import com.inecho.service.JournalChangeHub;
+import com.inecho.service.MongoChangeWatcher;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the change watcher against a single-node replica set, the smallest deployment with change streams,
+ * and checks that writes reach the push subscribers of their user and evict cached copies.
+ */
+@DataMongoTest
+@Import({ MongoConfig.class, ReadRouting.class, JournalChangeHub.class, MongoChangeWatcher.class,
+        JournalChangeStreamTest.ChangeStreamConfig.class })
+@Testcontainers(disabledWithoutDocker = true)
+public class JournalChangeStreamTest {
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("inechoChangeStreamTest"));
+    }
+
+    @Autowired
+    private JournalChangeHub journalChangeHub;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private JournalTombstoneRepository journalTombstoneRepository;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void changesArePushedToTheirUserAndEvictCachedCopies() throws Exception {
+        BlockingQueue<JournalChange> received = new LinkedBlockingQueue<>();
+        journalChangeHub.subscribe("u1", null, received::add, () -> { });
+        BlockingQueue<JournalChange> others = new LinkedBlockingQueue<>();
+        journalChangeHub.subscribe("u2", null, others::add, () -> { });
+        awaitWatching("u1", received);
+
+        String id = new ObjectId().toHexString();
+        Cache entries = cacheManager.getCache(CacheConfig.JOURNAL_ENTRIES);
+        entries.put(id, new JournalEntry());
+        JournalEntry entry = new JournalEntry();
+        entry.setId(id);
+        entry.setTitle("Pushed");
+        entry.setDate(LocalDateTime.now());
+        entry.setUserId("u1");
+        journalEntryRepository.save(entry);
+
+        JournalChange created = next(received, JournalChange.ENTRY);
+        assertEquals("Pushed", ((JournalEntry) created.getData()).getTitle());
+        assertNull(entries.get(id));
+
+        journalEntryRepository.deleteById(id);
+        journalTombstoneRepository.save(new JournalTombstone(id, "u1", 1L, LocalDateTime.now()));
+        JournalChange deleted = next(received, JournalChange.ENTRY_DELETED);
+        assertEquals(id, ((JournalTombstone) deleted.getData()).getId());
+        assertNull(others.poll());
+
+        // A client reconnecting with the id of the creation gets the deletion again
+        BlockingQueue<JournalChange> resumed = new LinkedBlockingQueue<>();
+        journalChangeHub.subscribe("u1", created.getId(), resumed::add, () -> { });
+        assertEquals(deleted.getId(), next(resumed, JournalChange.ENTRY_DELETED).getId());
+    }
+
+    @Test
+    void profileChangesEvictTheCachedProfile() throws Exception {
+        BlockingQueue<JournalChange> received = new LinkedBlockingQueue<>();
+        journalChangeHub.subscribe("u3", null, received::add, () -> { });
+        awaitWatching("u3", received);
+
+        Cache profiles = cacheManager.getCache(CacheConfig.USER_PROFILES);
+        profiles.put("u3", new UserProfile("Stale", null));
+        UserProfile profile = userProfileRepository.findById("u3").orElseThrow();
+        profile.setName("Renamed");
+        userProfileRepository.save(profile);
+
+        assertEquals("Renamed", ((UserProfile) next(received, JournalChange.PROFILE).getData()).getName());
+        assertNull(profiles.get("u3"));
+
+        userProfileRepository.deleteById("u3");
+        assertNotNull(next(received, JournalChange.PROFILE_DELETED));
+    }
+
+    // The watcher opens its stream in the background; save the user's profile until its change comes through
+    private void awaitWatching(String userId, BlockingQueue<JournalChange> received) throws InterruptedException {
+        UserProfile probe = new UserProfile("Probe", null);
+        probe.setId(userId);
+        for (int attempt = 0; attempt < 60; attempt++) {
+            probe = userProfileRepository.save(probe);
+            JournalChange change = received.poll(500, TimeUnit.MILLISECONDS);
+            if (change != null && JournalChange.PROFILE.equals(change.getType())) {
+                received.clear();
+                return;
+            }
+        }
+        fail("No change arrived for " + userId + "; is the watcher running?");
+    }
+
+    private static JournalChange next(BlockingQueue<JournalChange> received, String type) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            JournalChange change = received.poll(100, TimeUnit.MILLISECONDS);
+            if (change != null && type.equals(change.getType())) {
+                return change;
+            }
+        }
+        return fail("No " + type + " change arrived");
+    }
+
+    @TestConfiguration
+    static class ChangeStreamConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheConfig.JOURNAL_ENTRIES, CacheConfig.USER_PROFILES);
+        }
+    }
+}
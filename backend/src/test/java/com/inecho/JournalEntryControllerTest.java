@@ -0,0 +1,394 @@
+package com.inecho;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.inecho.controller.JournalEntryController;
+import com.inecho.model.CursorPage;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.model.PageCursor;
+import com.inecho.service.AdmissionControl;
+import com.inecho.service.CapacityExceededException;
+import com.inecho.service.JournalChangeHub;
+import com.inecho.service.JournalEntryService;
+import com.inecho.service.JournalImportService;
+import com.inecho.service.JournalStatsService;
+import com.inecho.service.JournalSyncService;
+
+import jakarta.servlet.ServletException;
+
+@WebMvcTest(JournalEntryController.class)
+public class JournalEntryControllerTest {
+
+    private static final MediaType CBOR = MediaType.APPLICATION_CBOR;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private JournalEntryService journalEntryService;
+
+    @MockBean
+    private JournalImportService journalImportService;
+
+    @MockBean
+    private JournalStatsService journalStatsService;
+
+    @MockBean
+    private JournalSyncService journalSyncService;
+
+    @MockBean
+    private JournalChangeHub journalChangeHub;
+
+    @MockBean
+    private AdmissionControl admissionControl;
+
+    private JournalEntry entry1;
+    private JournalEntry entry2;
+
+    @BeforeEach
+    void setUp() {
+        entry1 = new JournalEntry();
+        entry1.setId("1");
+        entry1.setTitle("First");
+        entry1.setBody("Body one");
+        entry1.setDate(LocalDateTime.of(2024, 1, 2, 9, 30));
+        entry1.setUserId("u1");
+
+        entry2 = new JournalEntry();
+        entry2.setId("2");
+        entry2.setTitle("Second");
+        entry2.setBody("Body two");
+        entry2.setDate(LocalDateTime.of(2024, 1, 1, 21, 0));
+        entry2.setUserId("u1");
+    }
+
+    @Test
+    void getAllJournalEntries_WithoutPaging_ShouldReturnList() throws Exception {
+        when(journalEntryService.getJournalEntriesByUserId("u1")).thenReturn(Arrays.asList(entry1, entry2));
+
+        mockMvc.perform(get("/api/journal").param("userId", "u1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("1"))
+                .andExpect(jsonPath("$[1].id").value("2"));
+    }
+
+    @Test
+    void getAllJournalEntries_WithLimit_ShouldReturnPage() throws Exception {
+        when(journalEntryService.getJournalEntriesPage(eq("u1"), isNull(), isNull(), eq(1)))
+                .thenReturn(new CursorPage<>(Arrays.asList(entry1), "next-token"));
+
+        mockMvc.perform(get("/api/journal").param("userId", "u1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.items[0].date").value("2024-01-02T09:30:00"))
+                .andExpect(jsonPath("$.next").value("next-token"));
+    }
+
+    @Test
+    void getAllJournalEntries_WithSummaryView_ShouldLeaveOutBody() throws Exception {
+        when(journalEntryService.getJournalEntrySummariesPage(eq("u1"), isNull(), isNull(), eq(1)))
+                .thenReturn(new CursorPage<>(Arrays.asList(JournalEntrySummary.of(entry1)), "next-token"));
+
+        mockMvc.perform(get("/api/journal").param("userId", "u1").param("limit", "1").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].title").value("First"))
+                .andExpect(jsonPath("$.items[0].date").value("2024-01-02T09:30:00"))
+                .andExpect(jsonPath("$.items[0].body").doesNotExist())
+                .andExpect(jsonPath("$.next").value("next-token"));
+    }
+
+    @Test
+    void getAllJournalEntries_AcceptingCbor_ShouldReturnCbor() throws Exception {
+        when(journalEntryService.getJournalEntriesByUserId("u1")).thenReturn(Arrays.asList(entry1, entry2));
+
+        MvcResult result = mockMvc.perform(get("/api/journal").param("userId", "u1").accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CBOR))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn();
+
+        JsonNode entries = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals("1", entries.get(0).get("id").asText());
+        assertEquals("2024-01-02T09:30:00", entries.get(0).get("date").asText());
+        // Unset search scores are left out, as in JSON
+        assertNull(entries.get(0).get("score"));
+    }
+
+    @Test
+    void getRelatedJournalEntries_ShouldReturnSummariesOrNotFound() throws Exception {
+        when(journalEntryService.getRelatedEntries("1", 3)).thenReturn(Optional.of(Arrays.asList(JournalEntrySummary.of(entry2))));
+        when(journalEntryService.getRelatedEntries("missing", null)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/journal/1/related").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("2"))
+                .andExpect(jsonPath("$[0].body").doesNotExist());
+        mockMvc.perform(get("/api/journal/missing/related"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void importJournalEntries_AtCapacity_ShouldReturn503AndOtherFailuresShouldNot() throws Exception {
+        when(journalImportService.importJournalEntries(any(), isNull()))
+                .thenThrow(new CapacityExceededException("Too many imports in progress"))
+                .thenThrow(new IllegalStateException("Unrelated failure"));
+
+        mockMvc.perform(post("/api/journal/import").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"));
+        assertThrows(ServletException.class, () ->
+                mockMvc.perform(post("/api/journal/import").contentType(MediaType.APPLICATION_JSON).content("[]")));
+    }
+
+    @Test
+    void createJournalEntry_WithIdOfExistingEntry_ShouldReturn409() throws Exception {
+        when(journalEntryService.createJournalEntry(any(JournalEntry.class)))
+                .thenThrow(new DuplicateKeyException("Duplicate id 1"));
+
+        mockMvc.perform(post("/api/journal").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":\"1\",\"title\":\"Again\",\"userId\":\"u1\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void searchJournalEntries_WithoutPaging_ShouldReturnList() throws Exception {
+        when(journalEntryService.searchJournalEntries("body", "u1")).thenReturn(Arrays.asList(entry1, entry2));
+
+        mockMvc.perform(get("/api/journal/search").param("query", "body").param("userId", "u1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("1"))
+                .andExpect(jsonPath("$[1].id").value("2"));
+    }
+
+    @Test
+    void searchJournalEntries_WithCursorOrLimit_ShouldReturnPage() throws Exception {
+        when(journalEntryService.searchJournalEntries("body", null, null, 1))
+                .thenReturn(new CursorPage<>(Arrays.asList(entry1), "next-token"));
+        when(journalEntryService.searchJournalEntries("body", null, "next-token", null))
+                .thenReturn(new CursorPage<>(Arrays.asList(entry2), null));
+        when(journalEntryService.searchJournalEntries("body", null, "bad", null))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        mockMvc.perform(get("/api/journal/search").param("query", "body").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.next").value("next-token"));
+        mockMvc.perform(get("/api/journal/search").param("query", "body").param("cursor", "next-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("2"))
+                .andExpect(jsonPath("$.next").doesNotExist());
+        mockMvc.perform(get("/api/journal/search").param("query", "body").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchJournalEntries_OverTheRate_ShouldReturn429WithRetryAfter() throws Exception {
+        when(admissionControl.admit("127.0.0.1", "u1", AdmissionControl.Cost.EXPENSIVE))
+                .thenReturn(new AdmissionControl.Rejection(HttpStatus.TOO_MANY_REQUESTS, 3));
+
+        mockMvc.perform(get("/api/journal/search").param("query", "walk").param("userId", "u1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"));
+    }
+
+    @Test
+    void getAllJournalEntries_WithUnknownView_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/journal").param("view", "compact"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllJournalEntries_WithFieldsList_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/journal").param("userId", "u1").param("fields", "id,title"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getJournalEntryById_WithCurrentETag_ShouldReturn304() throws Exception {
+        entry1.setVersion(3L);
+        when(journalEntryService.getJournalEntryById("1")).thenReturn(Optional.of(entry1));
+
+        mockMvc.perform(get("/api/journal/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"3\""));
+
+        mockMvc.perform(get("/api/journal/1").header("If-None-Match", "W/\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/api/journal/1").header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    void getAllJournalEntries_WithCurrentETag_ShouldReturn304() throws Exception {
+        when(journalEntryService.getJournalEntriesPage(eq("u1"), isNull(), isNull(), eq(2)))
+                .thenReturn(new CursorPage<>(Arrays.asList(entry1, entry2), null));
+
+        String eTag = mockMvc.perform(get("/api/journal").param("userId", "u1").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/journal").param("userId", "u1").param("limit", "2").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        entry2.setVersion(1L);
+        mockMvc.perform(get("/api/journal").param("userId", "u1").param("limit", "2").header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getAllJournalEntries_WithBadCursor_ShouldReturn400() throws Exception {
+        when(journalEntryService.getJournalEntriesPage(any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Malformed cursor"));
+
+        mockMvc.perform(get("/api/journal").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportJournal_AsJsonl_ShouldStreamGzippedEntryLines() throws Exception {
+        when(journalEntryService.streamJournalExport("u1", null)).thenReturn(Stream.of(entry1, entry2));
+
+        MvcResult result = mockMvc.perform(get("/api/journal/export").param("userId", "u1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"journal.jsonl.gz\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            assertEquals(2, lines.length);
+            assertTrue(lines[0].startsWith("{\"id\":\"1\""));
+            assertTrue(lines[1].startsWith("{\"id\":\"2\""));
+        }
+    }
+
+    @Test
+    void exportJournal_AsZipResumedAfterAnEntry_ShouldStreamTheRestInOneFile() throws Exception {
+        PageCursor position = PageCursor.of(entry1);
+        when(journalEntryService.exportPositionAfter("u1", "1")).thenReturn(position);
+        when(journalEntryService.streamJournalExport("u1", position)).thenReturn(Stream.of(entry2));
+
+        MvcResult result = mockMvc.perform(get("/api/journal/export").param("userId", "u1")
+                        .param("format", "zip").param("after", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(body))) {
+            ZipEntry file = in.getNextEntry();
+            assertEquals("journal.jsonl", file.getName());
+            String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            assertEquals(1, lines.length);
+            assertTrue(lines[0].startsWith("{\"id\":\"2\""));
+            assertNull(in.getNextEntry());
+        }
+    }
+
+    @Test
+    void exportJournal_ResumedAfterUnknownEntryOrInUnknownFormat_ShouldReturnBadRequest() throws Exception {
+        when(journalEntryService.exportPositionAfter("u1", "gone"))
+                .thenThrow(new IllegalArgumentException("No entry gone to resume the export after"));
+
+        mockMvc.perform(get("/api/journal/export").param("userId", "u1").param("after", "gone"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/journal/export").param("userId", "u1").param("format", "csv"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamJournalEntries_ShouldWriteOneEntryPerLine() throws Exception {
+        when(journalEntryService.streamJournalEntries("u1", null)).thenReturn(Stream.of(entry1, entry2));
+
+        MvcResult result = mockMvc.perform(get("/api/journal").param("userId", "u1")
+                        .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":\"1\""));
+        assertTrue(lines[1].startsWith("{\"id\":\"2\""));
+    }
+
+    @Test
+    void patchJournalEntry_ShouldReturnUpdatedEntry() throws Exception {
+        entry1.setVersion(2L);
+        when(journalEntryService.patchJournalEntry(eq("1"), any(JournalEntry.class))).thenReturn(Optional.of(entry1));
+
+        mockMvc.perform(patch("/api/journal/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"First\",\"version\":1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(2));
+    }
+
+    @Test
+    void patchJournalEntry_WithStaleVersion_ShouldReturnConflict() throws Exception {
+        when(journalEntryService.patchJournalEntry(eq("1"), any(JournalEntry.class)))
+                .thenThrow(new OptimisticLockingFailureException("modified"));
+
+        mockMvc.perform(patch("/api/journal/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"First\",\"version\":1}"))
+                .andExpect(status().isConflict());
+    }
+}
@@ -0,0 +1,155 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.model.JournalEntry;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.service.JournalEntryService;
+import com.inecho.service.JournalMetrics;
+import com.inecho.service.JournalSimilarity;
+import com.inecho.service.JournalStatsService;
+import com.inecho.service.JournalSyncService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class JournalEntryServiceTest {
+
+    @Mock
+    private JournalEntryRepository repository;
+
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.JOURNAL_ENTRIES);
+
+    @Mock
+    private JournalStatsService journalStatsService;
+
+    @Mock
+    private JournalSimilarity journalSimilarity;
+
+    @Mock
+    private JournalSyncService journalSyncService;
+
+    @Spy
+    private JournalMetrics metrics = new JournalMetrics(new SimpleMeterRegistry());
+
+    @InjectMocks
+    private JournalEntryService journalEntryService;
+
+    private JournalEntry entry;
+
+    @BeforeEach
+    void setUp() {
+        entry = new JournalEntry();
+        entry.setId("1");
+        entry.setTitle("Morning");
+        entry.setBody("Slept well");
+        entry.setUserId("u1");
+    }
+
+    @Test
+    void getJournalEntryById_ShouldOnlyHitRepositoryOnce() {
+        when(repository.findById("1")).thenReturn(Optional.of(entry));
+
+        assertEquals(entry, journalEntryService.getJournalEntryById("1").get());
+        assertEquals(entry, journalEntryService.getJournalEntryById("1").get());
+
+        verify(repository, times(1)).findById("1");
+    }
+
+    @Test
+    void getJournalEntryById_ShouldHandOutCopiesOfTheCachedEntry() {
+        when(repository.findById("1")).thenReturn(Optional.of(entry));
+
+        journalEntryService.getJournalEntryById("1").get().setTitle("Changed by a caller");
+
+        assertEquals("Morning", journalEntryService.getJournalEntryById("1").get().getTitle());
+        verify(repository, times(1)).findById("1");
+    }
+
+    @Test
+    void deleteJournalEntry_ShouldEvictCachedEntry() {
+        when(repository.findById("1")).thenReturn(Optional.of(entry));
+        journalEntryService.getJournalEntryById("1");
+
+        when(repository.findAndDelete("1")).thenReturn(Optional.of(entry));
+        assertTrue(journalEntryService.deleteJournalEntry("1"));
+        verify(journalStatsService).recordChange(entry, null);
+        verify(journalSyncService).recordDeleted(entry);
+
+        when(repository.findById("1")).thenReturn(Optional.empty());
+        assertFalse(journalEntryService.getJournalEntryById("1").isPresent());
+    }
+
+    @Test
+    void patchJournalEntry_ShouldUpdateInOneCallAndEvictCachedEntry() {
+        when(repository.findById("1")).thenReturn(Optional.of(entry));
+        journalEntryService.getJournalEntryById("1");
+        JournalEntry changes = new JournalEntry();
+        changes.setTitle("Evening");
+        when(repository.findAndUpdateFields("1", null, changes, false)).thenReturn(Optional.of(entry));
+
+        JournalEntry patched = journalEntryService.patchJournalEntry("1", changes).get();
+        // The update carries a fresh modification sequence for delta sync
+        assertNotNull(changes.getModSeq());
+        JournalEntry updated = new JournalEntry("1", "Evening", "Slept well", null, null, "u1", 1L, changes.getModSeq(), null);
+        assertEquals(updated, patched);
+        verify(journalStatsService).recordChange(entry, updated);
+
+        verify(repository, times(0)).save(any(JournalEntry.class));
+
+        // The next read loads the updated entry
+        when(repository.findById("1")).thenReturn(Optional.of(updated));
+        assertEquals("Evening", journalEntryService.getJournalEntryById("1").get().getTitle());
+    }
+
+    @Test
+    void updateJournalEntry_WithStaleVersion_ShouldThrowConflict() {
+        entry.setVersion(3L);
+        when(repository.findAndUpdateFields(eq("1"), eq(3L), any(JournalEntry.class), eq(true))).thenReturn(Optional.empty());
+        when(repository.existsById("1")).thenReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> journalEntryService.updateJournalEntry("1", entry));
+    }
+
+    @Test
+    void updateJournalEntry_WithoutVersion_ShouldReportMissingEntry() {
+        when(repository.findAndUpdateFields("1", null, entry, true)).thenReturn(Optional.empty());
+
+        assertFalse(journalEntryService.updateJournalEntry("1", entry).isPresent());
+        verify(repository, times(0)).existsById("1");
+    }
+
+    @Test
+    void searchJournalEntries_ShouldRecordPageSize() {
+        when(repository.searchText(null, "slept", 0, 3, JournalEntryService.LISTING_READS)).thenReturn(List.of(entry));
+
+        journalEntryService.searchJournalEntries("slept", null, null, 2);
+
+        verify(metrics).recordSearch(1);
+    }
+}
@@ -0,0 +1,129 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inecho.model.ImportResult;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.service.JournalImportService;
+import com.inecho.service.JournalSimilarity;
+import com.inecho.service.JournalStatsService;
+
+import jakarta.validation.Validation;
+
+@ExtendWith(MockitoExtension.class)
+public class JournalImportServiceTest {
+
+    @Mock
+    private JournalEntryRepository repository;
+
+    @Mock
+    private JournalStatsService journalStatsService;
+
+    @Mock
+    private JournalSimilarity journalSimilarity;
+
+    @InjectMocks
+    private JournalImportService journalImportService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(journalImportService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(journalImportService, "validator",
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(journalImportService, "batchSize", 2);
+        ReflectionTestUtils.setField(journalImportService, "maxConcurrentImports", 1);
+        ReflectionTestUtils.invokeMethod(journalImportService, "init");
+    }
+
+    @Test
+    void importJournalEntries_ShouldBatchNdjsonAndReportFailures() throws Exception {
+        when(repository.insertUnordered(anyList())).thenReturn(Map.of());
+        String ndjson = """
+                {"title":"One","body":"a","userId":"u1"}
+                {"title":"Two","tags":"not-a-list","userId":"u1"}
+                {"title":"Three","body":"c"}
+                {"title":"Four","body":"d","userId":"u1","date":"2024-02-01T08:00:00"}
+                {"body":"e","userId":"u1"}
+                """;
+
+        ImportResult result = journalImportService.importJournalEntries(stream(ndjson), null);
+
+        assertEquals(5, result.getReceived());
+        assertEquals(3, result.getInserted());
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of(1, 2), result.getFailures().stream().map(ImportResult.Failure::getIndex).toList());
+        assertFalse(result.isAborted());
+        verify(repository, times(2)).insertUnordered(anyList());
+    }
+
+    @Test
+    void importJournalEntries_ShouldAcceptJsonArrayAndApplyUserId() throws Exception {
+        when(repository.insertUnordered(anyList())).thenReturn(Map.of(0, new DuplicateKeyException("E11000 duplicate key")));
+        String json = "[{\"title\":\"One\"},{\"title\":\"Two\"}]";
+
+        ImportResult result = journalImportService.importJournalEntries(stream(json), "u9");
+
+        assertEquals(2, result.getReceived());
+        assertEquals(1, result.getInserted());
+        assertEquals(0, result.getFailures().get(0).getIndex());
+    }
+
+    @Test
+    void importJournalEntries_ShouldAbortOnMalformedJson() throws Exception {
+        when(repository.insertUnordered(anyList())).thenReturn(Map.of());
+
+        ImportResult result = journalImportService.importJournalEntries(
+                stream("{\"title\":\"One\",\"userId\":\"u1\"}\n{\"title\":"), null);
+
+        assertTrue(result.isAborted());
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getFailed());
+    }
+
+    @Test
+    void importJournalEntries_WhenInputAndLastWriteFail_ShouldThrowTheInputFailure() {
+        when(repository.insertUnordered(anyList())).thenThrow(new DataAccessResourceFailureException("Not connected"));
+        InputStream input = new SequenceInputStream(stream("{\"title\":\"One\",\"userId\":\"u1\"}\n"), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        IOException thrown = assertThrows(IOException.class, () -> journalImportService.importJournalEntries(input, null));
+
+        assertEquals("Connection reset", thrown.getMessage());
+        assertInstanceOf(DataAccessResourceFailureException.class, thrown.getSuppressed()[0]);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
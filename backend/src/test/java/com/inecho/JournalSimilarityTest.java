@@ -0,0 +1,149 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.inecho.config.CacheConfig;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalEntrySummary;
+import com.inecho.repository.memory.InMemoryJournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalStatsRepository;
+import com.inecho.repository.memory.InMemoryJournalTombstoneRepository;
+import com.inecho.service.JournalEntryService;
+import com.inecho.service.JournalMetrics;
+import com.inecho.service.JournalSimilarity;
+import com.inecho.service.JournalStatsService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JournalSimilarityTest {
+
+    private InMemoryJournalEntryRepository entries;
+    private JournalSimilarity journalSimilarity;
+    private JournalEntryService journalEntryService;
+
+    @BeforeEach
+    void setUp() {
+        entries = new InMemoryJournalEntryRepository();
+        journalSimilarity = similarity();
+
+        JournalStatsService journalStatsService = new JournalStatsService();
+        ReflectionTestUtils.setField(journalStatsService, "repository", new InMemoryJournalStatsRepository());
+        ReflectionTestUtils.setField(journalStatsService, "journalEntryRepository", entries);
+
+        journalEntryService = new JournalEntryService();
+        ReflectionTestUtils.setField(journalEntryService, "repository", entries);
+        ReflectionTestUtils.setField(journalEntryService, "cacheManager", new ConcurrentMapCacheManager(CacheConfig.JOURNAL_ENTRIES));
+        ReflectionTestUtils.setField(journalEntryService, "metrics", new JournalMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(journalEntryService, "journalStatsService", journalStatsService);
+        ReflectionTestUtils.setField(journalEntryService, "journalSimilarity", journalSimilarity);
+        ReflectionTestUtils.setField(journalEntryService, "journalSyncService", JournalSyncServiceTest.syncService(entries,
+                new InMemoryJournalTombstoneRepository()));
+    }
+
+    // A started JournalSimilarity with the default settings, for tests wiring services by hand
+    static JournalSimilarity similarity() {
+        JournalSimilarity similarity = new JournalSimilarity();
+        ReflectionTestUtils.setField(similarity, "maxEntries", 50_000L);
+        ReflectionTestUtils.setField(similarity, "refresh", Duration.ofMinutes(10));
+        ReflectionTestUtils.invokeMethod(similarity, "start");
+        return similarity;
+    }
+
+    @Test
+    void related_ShouldRankByWeightedSharedTerms() {
+        JournalEntry run = create("u1", "Morning run", "Ran along the river before work", "exercise");
+        JournalEntry walk = create("u1", "Evening walk", "Walked along the river", "exercise");
+        JournalEntry runAgain = create("u1", "Another morning run", "Ran again, legs sore", "exercise");
+        create("u1", "Budget", "Paid rent and bills", "money");
+        create("u2", "Morning run", "Ran along the river before work", "exercise");
+
+        assertEquals(List.of(runAgain.getId(), walk.getId()), ids(journalEntryService.getRelatedEntries(run.getId(), null).orElseThrow()));
+        assertEquals(List.of(runAgain.getId()), ids(journalEntryService.getRelatedEntries(run.getId(), 1).orElseThrow()));
+        assertTrue(journalEntryService.getRelatedEntries("missing", null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> journalEntryService.getRelatedEntries(run.getId(), 0));
+    }
+
+    @Test
+    void related_ShouldFollowWritesOnceIndexed() {
+        JournalEntry run = create("u1", "Morning run", "Ran along the river", "exercise");
+        JournalEntry budget = create("u1", "Budget", "Paid rent", "money");
+        create("u1", "Groceries", "Bought bread", "shopping");
+        assertEquals(List.of(), ids(journalEntryService.getRelatedEntries(run.getId(), null).orElseThrow()));
+        assertTrue(journalSimilarity.isIndexed("u1"));
+
+        JournalEntry changes = new JournalEntry();
+        changes.setBody("Paid the rent, then a run along the river");
+        journalEntryService.patchJournalEntry(budget.getId(), changes);
+        JournalEntry walk = create("u1", "River walk", "Along the river again", "exercise");
+        assertEquals(List.of(walk.getId(), budget.getId()), ids(journalEntryService.getRelatedEntries(run.getId(), null).orElseThrow()));
+
+        journalEntryService.deleteJournalEntry(walk.getId());
+        assertEquals(List.of(budget.getId()), ids(journalEntryService.getRelatedEntries(run.getId(), null).orElseThrow()));
+
+        journalSimilarity.forget("u1");
+        assertEquals(List.of(budget.getId()), ids(journalEntryService.getRelatedEntries(run.getId(), null).orElseThrow()));
+    }
+
+    @Test
+    void related_ShouldReuseSlotsOfDeletedEntries() {
+        JournalEntry first = create("u1", "Garden", "Planted tomatoes", "garden");
+        JournalEntry second = create("u1", "Garden", "Watered the tomatoes", "garden");
+        create("u1", "Work", "Long meeting", "work");
+        journalEntryService.getRelatedEntries(first.getId(), null);
+
+        for (int i = 0; i < 50; i++) {
+            JournalEntry temporary = create("u1", "Garden " + i, "Tomatoes " + i, "garden");
+            journalEntryService.deleteJournalEntry(temporary.getId());
+        }
+        assertEquals(3, entries.count());
+        assertEquals(List.of(second.getId()), ids(journalEntryService.getRelatedEntries(first.getId(), null).orElseThrow()));
+    }
+
+    @Test
+    void index_ShouldBeWeighedAgainAsItChanges() {
+        JournalEntry first = create("u1", "Garden", "Planted tomatoes", "garden");
+        create("u1", "Garden", "Watered the tomatoes", "garden");
+        journalEntryService.getRelatedEntries(first.getId(), null);
+        assertEquals(2, indexedEntries());
+
+        create("u1", "Work", "Long meeting", "work");
+        create("u1", "Work", "Short meeting", "work");
+        assertEquals(4, indexedEntries());
+
+        journalEntryService.deleteJournalEntry(first.getId());
+        assertEquals(3, indexedEntries());
+    }
+
+    // The weight of all indexes, i.e. the entries counted against the cap
+    private long indexedEntries() {
+        Cache<?, ?> indexes = (Cache<?, ?>) ReflectionTestUtils.getField(journalSimilarity, "indexes");
+        indexes.cleanUp();
+        return indexes.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+    }
+
+    private JournalEntry create(String userId, String title, String body, String tag) {
+        JournalEntry entry = new JournalEntry();
+        entry.setUserId(userId);
+        entry.setTitle(title);
+        entry.setBody(body);
+        entry.setTags(List.of(tag));
+        entry.setDate(LocalDateTime.of(2024, 1, 1, 8, 0).plusMinutes(entries.count()));
+        return journalEntryService.createJournalEntry(entry);
+    }
+
+    private static List<String> ids(List<JournalEntrySummary> summaries) {
+        return summaries.stream().map(JournalEntrySummary::getId).toList();
+    }
+}
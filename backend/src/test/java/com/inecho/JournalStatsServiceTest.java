@@ -0,0 +1,150 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalStats;
+import com.inecho.repository.memory.InMemoryJournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalStatsRepository;
+import com.inecho.repository.memory.InMemoryJournalTombstoneRepository;
+import com.inecho.service.JournalEntryService;
+import com.inecho.service.JournalMetrics;
+import com.inecho.service.JournalStatsService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JournalStatsServiceTest {
+
+    private InMemoryJournalEntryRepository entries;
+    private InMemoryJournalStatsRepository statsRepository;
+    private JournalStatsService journalStatsService;
+    private JournalEntryService journalEntryService;
+
+    @BeforeEach
+    void setUp() {
+        entries = new InMemoryJournalEntryRepository();
+        statsRepository = new InMemoryJournalStatsRepository();
+
+        journalStatsService = new JournalStatsService();
+        ReflectionTestUtils.setField(journalStatsService, "repository", statsRepository);
+        ReflectionTestUtils.setField(journalStatsService, "journalEntryRepository", entries);
+
+        journalEntryService = new JournalEntryService();
+        ReflectionTestUtils.setField(journalEntryService, "repository", entries);
+        ReflectionTestUtils.setField(journalEntryService, "cacheManager", new ConcurrentMapCacheManager(CacheConfig.JOURNAL_ENTRIES));
+        ReflectionTestUtils.setField(journalEntryService, "metrics", new JournalMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(journalEntryService, "journalStatsService", journalStatsService);
+        ReflectionTestUtils.setField(journalEntryService, "journalSimilarity", JournalSimilarityTest.similarity());
+        ReflectionTestUtils.setField(journalEntryService, "journalSyncService", JournalSyncServiceTest.syncService(entries,
+                new InMemoryJournalTombstoneRepository()));
+    }
+
+    @Test
+    void rollup_ShouldFollowCreatesEditsAndDeletes() {
+        JournalEntry first = journalEntryService.createJournalEntry(entry(LocalDateTime.of(2024, 1, 1, 8, 0), "work", "v1.2"));
+        journalEntryService.createJournalEntry(entry(LocalDateTime.of(2024, 1, 1, 20, 0), "work"));
+        JournalEntry third = journalEntryService.createJournalEntry(entry(LocalDateTime.of(2024, 1, 8, 8, 0), "home"));
+
+        JournalEntry changes = new JournalEntry();
+        changes.setTags(List.of("home", "$pecial"));
+        journalEntryService.patchJournalEntry(first.getId(), changes);
+        journalEntryService.deleteJournalEntry(third.getId());
+
+        JournalStats stats = journalStatsService.getJournalStats("u1");
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(Map.of("work", 1L, "home", 1L, "$pecial", 1L), stats.getTagCounts());
+        assertEquals(Map.of("2024-01-01", 2L), stats.getEntriesPerDay());
+        assertEquals(Map.of("2024-W01", 2L), stats.getEntriesPerWeek());
+
+        // Counting from scratch agrees with the incremental updates
+        statsRepository.deleteAll();
+        JournalStats rebuilt = journalStatsService.getJournalStats("u1");
+        assertEquals(stats.getTagCounts(), rebuilt.getTagCounts());
+        assertEquals(stats.getEntriesPerDay(), rebuilt.getEntriesPerDay());
+    }
+
+    @Test
+    void rollup_OfJournalWrittenBeforeRollups_ShouldCountEveryEntry() {
+        entries.save(entry(LocalDateTime.of(2024, 1, 1, 8, 0), "work"));
+        entries.save(entry(LocalDateTime.of(2024, 1, 2, 8, 0), "work"));
+
+        // The first write after the rollups were introduced must not start a rollup counting only itself
+        journalEntryService.createJournalEntry(entry(LocalDateTime.of(2024, 1, 3, 8, 0), "home"));
+        assertEquals(0, statsRepository.count());
+
+        JournalStats stats = journalStatsService.getJournalStats("u1");
+        assertEquals(3, stats.getEntryCount());
+        assertEquals(Map.of("work", 2L, "home", 1L), stats.getTagCounts());
+
+        journalEntryService.createJournalEntry(entry(LocalDateTime.of(2024, 1, 4, 8, 0), "home"));
+        assertEquals(4, journalStatsService.getJournalStats("u1").getEntryCount());
+    }
+
+    @Test
+    void rebuild_WithEntryCreatedWhileCounting_ShouldCountIt() {
+        entries.save(entry(LocalDateTime.of(2024, 1, 1, 8, 0), "work"));
+        // The entry is created after the journal is read, before the counts are stored
+        InMemoryJournalEntryRepository reading = spy(entries);
+        doAnswer(invocation -> {
+            Object summaries = invocation.callRealMethod();
+            journalEntryService.createJournalEntry(entry(LocalDateTime.of(2024, 1, 2, 8, 0), "home"));
+            return summaries;
+        }).when(reading).findSummariesByUserId("u1");
+        ReflectionTestUtils.setField(journalStatsService, "journalEntryRepository", reading);
+
+        JournalStats stats = journalStatsService.getJournalStats("u1");
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(Map.of("work", 1L, "home", 1L), stats.getTagCounts());
+        assertEquals(2, journalStatsService.getJournalStats("u1").getEntryCount());
+    }
+
+    @Test
+    void create_WithIdOfExistingEntry_ShouldFailWithoutCountingOrOverwriting() {
+        JournalEntry first = journalEntryService.createJournalEntry(entry(LocalDateTime.of(2024, 1, 1, 8, 0), "work"));
+        journalStatsService.getJournalStats("u1");
+
+        JournalEntry again = entry(LocalDateTime.of(2024, 1, 2, 8, 0), "home");
+        again.setId(first.getId());
+        assertThrows(DuplicateKeyException.class, () -> journalEntryService.createJournalEntry(again));
+
+        assertEquals(List.of("work"), entries.findById(first.getId()).orElseThrow().getTags());
+        assertEquals(1, journalStatsService.getJournalStats("u1").getEntryCount());
+    }
+
+    @Test
+    void view_ShouldCountStreaksUpToYesterday() {
+        JournalStats stats = new JournalStats("u1");
+        for (String day : List.of("2024-03-01", "2024-03-02", "2024-03-03", "2024-03-10", "2024-03-11")) {
+            stats.count(LocalDate.parse(day).atTime(9, 0), null, 1);
+        }
+
+        assertEquals(3, stats.view(LocalDate.of(2024, 3, 12)).getLongestStreak());
+        assertEquals(2, stats.view(LocalDate.of(2024, 3, 12)).getCurrentStreak());
+        assertEquals(0, stats.view(LocalDate.of(2024, 3, 13)).getCurrentStreak());
+    }
+
+    private static JournalEntry entry(LocalDateTime date, String... tags) {
+        JournalEntry entry = new JournalEntry();
+        entry.setTitle("Entry");
+        entry.setBody("Body");
+        entry.setDate(date);
+        entry.setTags(List.of(tags));
+        entry.setUserId("u1");
+        return entry;
+    }
+}
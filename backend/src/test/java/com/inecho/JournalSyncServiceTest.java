@@ -0,0 +1,203 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalTombstone;
+import com.inecho.model.SyncPage;
+import com.inecho.model.SyncToken;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.JournalTombstoneRepository;
+import com.inecho.repository.memory.InMemoryJournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalStatsRepository;
+import com.inecho.repository.memory.InMemoryJournalTombstoneRepository;
+import com.inecho.service.ChangeSequence;
+import com.inecho.service.JournalEntryService;
+import com.inecho.service.JournalMetrics;
+import com.inecho.service.JournalStatsService;
+import com.inecho.service.JournalSyncService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JournalSyncServiceTest {
+
+    private InMemoryJournalEntryRepository entries;
+    private JournalSyncService journalSyncService;
+    private JournalEntryService journalEntryService;
+
+    @BeforeEach
+    void setUp() {
+        entries = new InMemoryJournalEntryRepository();
+        journalSyncService = syncService(entries, new InMemoryJournalTombstoneRepository());
+        // Nothing is too recent to be settled
+        ReflectionTestUtils.setField(journalSyncService, "settleWindow", Duration.ZERO);
+
+        JournalStatsService journalStatsService = new JournalStatsService();
+        ReflectionTestUtils.setField(journalStatsService, "repository", new InMemoryJournalStatsRepository());
+        ReflectionTestUtils.setField(journalStatsService, "journalEntryRepository", entries);
+
+        journalEntryService = new JournalEntryService();
+        ReflectionTestUtils.setField(journalEntryService, "repository", entries);
+        ReflectionTestUtils.setField(journalEntryService, "cacheManager", new ConcurrentMapCacheManager(CacheConfig.JOURNAL_ENTRIES));
+        ReflectionTestUtils.setField(journalEntryService, "metrics", new JournalMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(journalEntryService, "journalStatsService", journalStatsService);
+        ReflectionTestUtils.setField(journalEntryService, "journalSimilarity", JournalSimilarityTest.similarity());
+        ReflectionTestUtils.setField(journalEntryService, "journalSyncService", journalSyncService);
+    }
+
+    static JournalSyncService syncService(JournalEntryRepository entries, JournalTombstoneRepository tombstones) {
+        JournalSyncService journalSyncService = new JournalSyncService();
+        ReflectionTestUtils.setField(journalSyncService, "journalEntryRepository", entries);
+        ReflectionTestUtils.setField(journalSyncService, "tombstoneRepository", tombstones);
+        ReflectionTestUtils.setField(journalSyncService, "settleWindow", Duration.ofSeconds(5));
+        return journalSyncService;
+    }
+
+    @Test
+    void sync_ShouldReturnOnlyWhatChangedSinceTheToken() {
+        JournalEntry kept = journalEntryService.createJournalEntry(entry("Kept"));
+        JournalEntry edited = journalEntryService.createJournalEntry(entry("Edited"));
+        JournalEntry deleted = journalEntryService.createJournalEntry(entry("Deleted"));
+        JournalEntry other = entry("Someone else's");
+        other.setUserId("u2");
+        journalEntryService.createJournalEntry(other);
+
+        SyncPage first = journalSyncService.sync("u1", null, null);
+        assertEquals(List.of(kept.getId(), edited.getId(), deleted.getId()), ids(first.getChanged()));
+        assertFalse(first.isMore());
+
+        JournalEntry changes = new JournalEntry();
+        changes.setTitle("Edited again");
+        journalEntryService.patchJournalEntry(edited.getId(), changes);
+        journalEntryService.deleteJournalEntry(deleted.getId());
+
+        SyncPage second = journalSyncService.sync("u1", first.getNext(), null);
+        assertEquals(List.of(edited.getId()), ids(second.getChanged()));
+        assertEquals("Edited again", second.getChanged().get(0).getTitle());
+        assertEquals(List.of(deleted.getId()), second.getDeleted());
+
+        SyncPage third = journalSyncService.sync("u1", second.getNext(), null);
+        assertTrue(third.getChanged().isEmpty());
+        assertTrue(third.getDeleted().isEmpty());
+        assertTrue(SyncToken.ORDER.compare(SyncToken.decode(third.getNext()), SyncToken.decode(second.getNext())) >= 0);
+    }
+
+    @Test
+    void sync_ShouldPageThroughChangesOfBothKinds() {
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(journalEntryService.createJournalEntry(entry("Entry " + i)).getId());
+        }
+        String token = journalSyncService.sync("u1", null, null).getNext();
+        journalEntryService.deleteJournalEntry(created.get(0));
+        journalEntryService.patchJournalEntry(created.get(1), entry("Edited"));
+        journalEntryService.deleteJournalEntry(created.get(2));
+
+        List<String> seen = new ArrayList<>();
+        SyncPage page;
+        do {
+            page = journalSyncService.sync("u1", token, 1);
+            seen.addAll(ids(page.getChanged()));
+            seen.addAll(page.getDeleted());
+            token = page.getNext();
+        } while (page.isMore());
+        assertEquals(List.of(created.get(0), created.get(1), created.get(2)), seen);
+    }
+
+    @Test
+    void sync_ShouldSendChangesInsideTheSettleWindowAgain() {
+        ReflectionTestUtils.setField(journalSyncService, "settleWindow", Duration.ofMinutes(1));
+        JournalEntry recent = journalEntryService.createJournalEntry(entry("Recent"));
+
+        SyncPage first = journalSyncService.sync("u1", null, null);
+        // A write that got an earlier sequence number may still commit, so the window is read again
+        SyncPage second = journalSyncService.sync("u1", first.getNext(), null);
+        assertEquals(List.of(recent.getId()), ids(second.getChanged()));
+    }
+
+    @Test
+    void sync_ShouldNotPagePastTheSettleWindow() {
+        ReflectionTestUtils.setField(journalSyncService, "settleWindow", Duration.ofMinutes(1));
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            created.add(journalEntryService.createJournalEntry(entry("Entry " + i)).getId());
+        }
+
+        SyncPage first = journalSyncService.sync("u1", null, 1);
+        assertEquals(List.of(created.get(0)), ids(first.getChanged()));
+        // The token stays before the window, so an older write committing late isn't skipped
+        assertFalse(first.isMore());
+        SyncPage second = journalSyncService.sync("u1", first.getNext(), null);
+        assertEquals(created, ids(second.getChanged()));
+    }
+
+    @Test
+    void sync_OfDormantJournal_ShouldNotExpire() {
+        JournalEntry old = entry("Old");
+        old.setModSeq(ChangeSequence.at(Instant.now().minus(Duration.ofDays(JournalTombstone.RETENTION_DAYS + 10))));
+        entries.save(old);
+
+        SyncPage first = journalSyncService.sync("u1", null, null);
+        assertEquals(List.of(old.getId()), ids(first.getChanged()));
+        SyncPage second = journalSyncService.sync("u1", first.getNext(), null);
+        assertFalse(second.isReset());
+        assertTrue(second.getChanged().isEmpty());
+        assertFalse(journalSyncService.sync("u1", second.getNext(), null).isReset());
+    }
+
+    @Test
+    void sync_ShouldReportOnlyTheLatestChangeOfAnId() {
+        JournalEntry first = entry("First");
+        first.setId("e1");
+        journalEntryService.createJournalEntry(first);
+        String token = journalSyncService.sync("u1", null, null).getNext();
+
+        journalEntryService.deleteJournalEntry("e1");
+        JournalEntry again = entry("Again");
+        again.setId("e1");
+        journalEntryService.createJournalEntry(again);
+
+        SyncPage page = journalSyncService.sync("u1", token, null);
+        assertEquals(List.of("e1"), ids(page.getChanged()));
+        assertTrue(page.getDeleted().isEmpty());
+    }
+
+    @Test
+    void sync_WithExpiredToken_ShouldStartOver() {
+        JournalEntry kept = journalEntryService.createJournalEntry(entry("Kept"));
+        long expired = ChangeSequence.at(Instant.now().minus(Duration.ofDays(JournalTombstone.RETENTION_DAYS + 1)));
+
+        SyncPage page = journalSyncService.sync("u1", new SyncToken(expired, null).encode(), null);
+        assertTrue(page.isReset());
+        assertEquals(List.of(kept.getId()), ids(page.getChanged()));
+        assertThrows(IllegalArgumentException.class, () -> journalSyncService.sync("u1", "not a token", null));
+    }
+
+    private static List<String> ids(List<JournalEntry> entries) {
+        return entries.stream().map(JournalEntry::getId).toList();
+    }
+
+    private static JournalEntry entry(String title) {
+        JournalEntry entry = new JournalEntry();
+        entry.setTitle(title);
+        entry.setBody("Body");
+        entry.setDate(LocalDateTime.of(2024, 1, 1, 21, 0));
+        entry.setUserId("u1");
+        return entry;
+    }
+}
@@ -0,0 +1,187 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inecho.model.JournalEntry;
+import com.inecho.model.JournalStats;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalEntryRepository;
+import com.inecho.repository.memory.InMemoryJournalStatsRepository;
+import com.inecho.service.CapacityExceededException;
+import com.inecho.service.JournalStatsService;
+import com.inecho.service.JournalWriteBatcher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class JournalWriteBatcherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InMemoryJournalStatsRepository statsRepository = new InMemoryJournalStatsRepository();
+    private JournalWriteBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(batcher, "stop");
+    }
+
+    @Test
+    void insert_ShouldCoalesceQueuedEntriesIntoBatches() {
+        InMemoryJournalEntryRepository repository = new InMemoryJournalEntryRepository();
+        statsRepository.save(new JournalStats("u1"));
+        batcher = batcher(repository, 10, Duration.ofMillis(50));
+
+        List<CompletableFuture<JournalEntry>> writes = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            writes.add(batcher.insert(entry()));
+        }
+
+        for (CompletableFuture<JournalEntry> write : writes) {
+            JournalEntry written = write.join();
+            assertNotNull(written.getId());
+            assertEquals(0L, written.getVersion());
+            assertTrue(repository.existsById(written.getId()));
+        }
+        assertEquals(25, registry.get(JournalWriteBatcher.BATCH_SIZE).summary().totalAmount());
+        assertTrue(registry.get(JournalWriteBatcher.BATCH_SIZE).summary().count() < 25);
+        assertEquals(25, statsRepository.findById("u1").orElseThrow().getEntryCount());
+    }
+
+    @Test
+    void insert_ShouldFailOnlyTheEntriesThatWereNotWritten() {
+        JournalEntryRepository repository = mock(JournalEntryRepository.class);
+        when(repository.insertUnordered(anyList()))
+                .thenReturn(Map.of(1, new UncategorizedMongoDbException("Document failed validation", null)));
+        batcher = batcher(repository, 2, Duration.ofSeconds(1));
+
+        CompletableFuture<JournalEntry> first = batcher.insert(entry());
+        CompletableFuture<JournalEntry> second = batcher.insert(entry());
+
+        assertNotNull(first.join().getId());
+        CompletionException failure = assertThrows(CompletionException.class, second::join);
+        // Not a conflict, so it isn't reported as one
+        assertInstanceOf(UncategorizedMongoDbException.class, failure.getCause());
+    }
+
+    @Test
+    void insert_WithIdOfExistingEntry_ShouldKeepItAndFailAsDuplicate() {
+        InMemoryJournalEntryRepository repository = new InMemoryJournalEntryRepository();
+        batcher = batcher(repository, 10, Duration.ofMillis(1));
+        JournalEntry first = entry();
+        first.setId("taken");
+        assertEquals("taken", batcher.insert(first).join().getId());
+
+        JournalEntry second = entry();
+        second.setId("taken");
+        second.setTitle("Overwrite attempt");
+        CompletionException failure = assertThrows(CompletionException.class, batcher.insert(second)::join);
+        assertInstanceOf(DuplicateKeyException.class, failure.getCause());
+        assertEquals("Evening", repository.findById("taken").orElseThrow().getTitle());
+    }
+
+    @Test
+    void insert_WhenTheBatchWriteIsSlowerThanTheWriteTimeout_ShouldStillSucceed() {
+        JournalEntryRepository repository = mock(JournalEntryRepository.class);
+        when(repository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return Map.of();
+        });
+        batcher = batcher(repository, 1, Duration.ofMillis(1));
+        ReflectionTestUtils.setField(batcher, "writeTimeout", Duration.ofMillis(100));
+
+        // Taken into a batch right away, so the deadline no longer applies: the entry was written
+        assertNotNull(batcher.insert(entry()).join().getId());
+    }
+
+    @Test
+    void insert_AfterAFlushFailed_ShouldStillBeWritten() {
+        JournalEntryRepository repository = mock(JournalEntryRepository.class);
+        // A broken result makes the first flush throw past its own error handling
+        when(repository.insertUnordered(anyList())).thenReturn(null).thenReturn(Map.of());
+        batcher = batcher(repository, 1, Duration.ofMillis(1));
+
+        CompletionException failure = assertThrows(CompletionException.class, batcher.insert(entry())::join);
+        assertInstanceOf(NullPointerException.class, failure.getCause());
+        assertNotNull(batcher.insert(entry()).join().getId());
+    }
+
+    @Test
+    void insert_ShouldGiveUpOnEntriesWaitingLongerThanTheWriteTimeout() throws Exception {
+        JournalEntryRepository repository = mock(JournalEntryRepository.class);
+        when(repository.insertUnordered(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return Map.of();
+        });
+        batcher = batcher(repository, 1, Duration.ofMillis(1));
+        ReflectionTestUtils.setField(batcher, "writeTimeout", Duration.ofMillis(100));
+
+        batcher.insert(entry());
+        Thread.sleep(50);
+        CompletableFuture<JournalEntry> waiting = batcher.insert(entry());
+        CompletionException failure = assertThrows(CompletionException.class, waiting::join);
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+
+        // The entry that timed out in the queue is never written
+        Thread.sleep(500);
+        verify(repository, times(1)).insertUnordered(anyList());
+    }
+
+    @Test
+    void insert_AfterStop_ShouldBeTurnedAway() {
+        batcher = batcher(new InMemoryJournalEntryRepository(), 10, Duration.ofMillis(1));
+        ReflectionTestUtils.invokeMethod(batcher, "stop");
+
+        assertThrows(CapacityExceededException.class, () -> batcher.insert(entry()));
+    }
+
+    private JournalWriteBatcher batcher(JournalEntryRepository repository, int batchSize, Duration maxDelay) {
+        JournalStatsService stats = new JournalStatsService();
+        ReflectionTestUtils.setField(stats, "repository", statsRepository);
+        ReflectionTestUtils.setField(stats, "journalEntryRepository", repository);
+
+        JournalWriteBatcher batcher = new JournalWriteBatcher();
+        ReflectionTestUtils.setField(batcher, "repository", repository);
+        ReflectionTestUtils.setField(batcher, "journalStatsService", stats);
+        ReflectionTestUtils.setField(batcher, "journalSimilarity", JournalSimilarityTest.similarity());
+        ReflectionTestUtils.setField(batcher, "registry", registry);
+        ReflectionTestUtils.setField(batcher, "batchSize", batchSize);
+        ReflectionTestUtils.setField(batcher, "maxDelay", maxDelay);
+        ReflectionTestUtils.setField(batcher, "queueCapacity", 100);
+        ReflectionTestUtils.setField(batcher, "enqueueTimeout", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(batcher, "writeTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.invokeMethod(batcher, "start");
+        return batcher;
+    }
+
+    private static JournalEntry entry() {
+        JournalEntry entry = new JournalEntry();
+        entry.setTitle("Evening");
+        entry.setBody("Slept well");
+        entry.setDate(LocalDateTime.of(2024, 1, 1, 21, 0));
+        entry.setUserId("u1");
+        return entry;
+    }
+}
@@ -0,0 +1,169 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.inecho.controller.ReactiveJournalEntryController;
+import com.inecho.model.CursorPage;
+import com.inecho.model.JournalEntry;
+import com.inecho.service.AdmissionControl;
+import com.inecho.service.JournalChangeHub;
+import com.inecho.service.ReactiveJournalEntryService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@WebFluxTest(ReactiveJournalEntryController.class)
+@ActiveProfiles("reactive")
+public class ReactiveJournalEntryControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveJournalEntryService journalEntryService;
+
+    @MockBean
+    private JournalChangeHub journalChangeHub;
+
+    @MockBean
+    private AdmissionControl admissionControl;
+
+    private JournalEntry entry;
+
+    @BeforeEach
+    void setUp() {
+        entry = new JournalEntry();
+        entry.setId("1");
+        entry.setTitle("First");
+        entry.setDate(LocalDateTime.of(2024, 1, 2, 9, 30));
+        entry.setUserId("u1");
+    }
+
+    @Test
+    void getJournalEntryById_ShouldReturnEntry() {
+        when(journalEntryService.getJournalEntryById("1")).thenReturn(Mono.just(entry));
+
+        webTestClient.get().uri("/api/journal/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("1")
+                .jsonPath("$.date").isEqualTo("2024-01-02T09:30:00");
+    }
+
+    @Test
+    void getJournalEntryById_NotFound_ShouldReturn404() {
+        when(journalEntryService.getJournalEntryById("9")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/journal/9")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getAllJournalEntries_ShouldReturnJsonArray() {
+        when(journalEntryService.getJournalEntries("u1", null)).thenReturn(Flux.just(entry));
+
+        webTestClient.get().uri("/api/journal?userId=u1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1");
+    }
+
+    @Test
+    void exportJournal_ShouldStreamGzippedEntryLinesAcrossBatches() throws IOException {
+        when(journalEntryService.getJournalExport("u1", null)).thenReturn(Flux.range(0, 70).map(n -> entry));
+
+        byte[] body = webTestClient.get().uri("/api/journal/export?userId=u1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/gzip")
+                .expectBody(byte[].class)
+                .returnResult().getResponseBody();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            assertEquals(70, lines.length);
+            assertTrue(lines[69].startsWith("{\"id\":\"1\""));
+        }
+    }
+
+    @Test
+    void exportJournal_ResumedAfterUnknownEntry_ShouldReturnBadRequest() {
+        when(journalEntryService.exportPositionAfter("u1", "gone"))
+                .thenReturn(Mono.error(new IllegalArgumentException("No entry gone to resume the export after")));
+
+        webTestClient.get().uri("/api/journal/export?userId=u1&after=gone")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getAllJournalEntries_WithLimit_ShouldReturnPage() {
+        when(journalEntryService.getJournalEntriesPage(any(), any(), any(), any()))
+                .thenReturn(Mono.just(new CursorPage<>(List.of(entry), "next-token")));
+
+        webTestClient.get().uri("/api/journal?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo("1")
+                .jsonPath("$.next").isEqualTo("next-token");
+    }
+
+    @Test
+    void searchJournalEntries_ShouldReturnListUnlessPaged() {
+        when(journalEntryService.searchJournalEntries("first", "u1")).thenReturn(Mono.just(List.of(entry)));
+        when(journalEntryService.searchJournalEntries("first", "u1", null, 1))
+                .thenReturn(Mono.just(new CursorPage<>(List.of(entry), "next-token")));
+        when(journalEntryService.searchJournalEntries("first", "u1", "bad", null))
+                .thenReturn(Mono.error(new IllegalArgumentException("Invalid cursor")));
+
+        webTestClient.get().uri("/api/journal/search?query=first&userId=u1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1");
+        webTestClient.get().uri("/api/journal/search?query=first&userId=u1&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items[0].id").isEqualTo("1")
+                .jsonPath("$.next").isEqualTo("next-token");
+        webTestClient.get().uri("/api/journal/search?query=first&userId=u1&cursor=bad")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void streamJournalEntries_ShouldReturnNdjson() {
+        when(journalEntryService.getJournalEntries("u1", null)).thenReturn(Flux.just(entry));
+
+        webTestClient.get().uri("/api/journal?userId=u1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(JournalEntry.class).hasSize(1);
+    }
+}
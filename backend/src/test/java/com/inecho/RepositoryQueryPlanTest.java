@@ -0,0 +1,229 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.inecho.config.MongoConfig;
+import com.inecho.model.JournalEntry;
+import com.inecho.model.PageCursor;
+import com.inecho.model.SyncToken;
+import com.inecho.model.UserProfile;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.JournalEntryRepositoryCustom;
+import com.inecho.repository.JournalTombstoneRepository;
+import com.inecho.repository.JournalTombstoneRepositoryCustom;
+import com.inecho.repository.ReadRoute;
+import com.inecho.repository.ReadRouting;
+import com.inecho.repository.UserProfileRepository;
+import com.inecho.repository.UserProfileRepositoryCustom;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+
+/**
+ * Runs every query method declared on the repositories against a real MongoDB, captures the
+ * commands they issue and fails if the winning plan of any of them is a collection scan.
+ */
+@DataMongoTest
+@Import({ MongoConfig.class, ReadRouting.class, RepositoryQueryPlanTest.CommandCaptureConfig.class })
+@Testcontainers(disabledWithoutDocker = true)
+public class RepositoryQueryPlanTest {
+
+    // Methods that only write and have no query plan to check
+    private static final Set<String> WRITE_ONLY = Set.of("insertUnordered");
+
+    private static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "count", "distinct", "delete", "update", "findAndModify");
+
+    private static final List<BsonDocument> captured = new CopyOnWriteArrayList<>();
+
+    @Container
+    static MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("inechoPlanTest"));
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private UserProfileRepository userProfileRepository;
+
+    @Autowired
+    private JournalTombstoneRepository journalTombstoneRepository;
+
+    @BeforeEach
+    void clearCaptured() {
+        captured.clear();
+    }
+
+    @Test
+    void journalEntryQueriesUseIndexes() throws Exception {
+        assertIndexed(journalEntryRepository, JournalEntryRepository.class);
+        assertIndexed(journalEntryRepository, JournalEntryRepositoryCustom.class);
+
+        // Each optional filter combination of the keyset page query
+        PageCursor cursor = new PageCursor(LocalDateTime.now(), new ObjectId().toHexString());
+        assertIndexed("findPage(user)", () -> journalEntryRepository.findPage("u1", null, cursor, 10, ReadRoute.PRIMARY));
+        assertIndexed("findPage(tag)", () -> journalEntryRepository.findPage(null, "t1", cursor, 10, ReadRoute.PRIMARY));
+        assertIndexed("findPage()", () -> journalEntryRepository.findPage(null, null, null, 10, ReadRoute.PRIMARY));
+        assertIndexed("findEntries(user)", () -> journalEntryRepository.findEntries("u1", null, ReadRoute.PRIMARY));
+        assertIndexed("findEntries(tag)", () -> journalEntryRepository.findEntries(null, "t1", ReadRoute.PRIMARY));
+
+        // Sync positions among entries written before modSeq existed, and from scratch
+        SyncToken legacy = new SyncToken(0, new ObjectId().toHexString());
+        assertIndexed("findChangedSince(legacy)", () -> journalEntryRepository.findChangedSince("u1", legacy, 10));
+        assertIndexed("findChangedSince(start)", () -> journalEntryRepository.findChangedSince("u1", SyncToken.START, 10));
+    }
+
+    @Test
+    void journalTombstoneQueriesUseIndexes() throws Exception {
+        assertIndexed(journalTombstoneRepository, JournalTombstoneRepository.class);
+        assertIndexed(journalTombstoneRepository, JournalTombstoneRepositoryCustom.class);
+    }
+
+    @Test
+    void userProfileQueriesUseIndexes() throws Exception {
+        assertIndexed(userProfileRepository, UserProfileRepository.class);
+        assertIndexed(userProfileRepository, UserProfileRepositoryCustom.class);
+    }
+
+    private void assertIndexed(Object repository, Class<?> repositoryInterface) throws Exception {
+        for (Method method : repositoryInterface.getDeclaredMethods()) {
+            if (method.isDefault() || method.isSynthetic() || WRITE_ONLY.contains(method.getName())) {
+                continue;
+            }
+            Object[] args = new Object[method.getParameterCount()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = sampleArgument(method.getParameterTypes()[i]);
+            }
+            assertIndexed(method.getName(), () -> method.invoke(repository, args));
+        }
+    }
+
+    private void assertIndexed(String label, QueryCall call) throws Exception {
+        captured.clear();
+        Object result = call.run();
+        if (result instanceof Stream<?> stream) {
+            stream.close();
+        }
+
+        List<BsonDocument> commands = new ArrayList<>(captured);
+        assertFalse(commands.isEmpty(), label + " issued no query");
+        for (BsonDocument command : commands) {
+            Document explain = mongoTemplate.getDb().runCommand(
+                    new BsonDocument("explain", command).append("verbosity", new BsonString("queryPlanner")));
+            if (containsStage(explain.get("queryPlanner"), "COLLSCAN")) {
+                fail(label + " falls back to COLLSCAN: " + command.toJson());
+            }
+        }
+    }
+
+    private static boolean containsStage(Object node, String stage) {
+        if (node instanceof Document document) {
+            if (stage.equals(document.get("stage"))) {
+                return true;
+            }
+            return document.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (node instanceof Collection<?> values) {
+            return values.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+
+    private static Object sampleArgument(Class<?> type) {
+        if (type == String.class) {
+            return "sample";
+        } else if (type == boolean.class) {
+            return true;
+        } else if (type == int.class || type == Integer.class) {
+            return 10;
+        } else if (type == long.class || type == Long.class) {
+            return 10L;
+        } else if (type == ObjectId.class) {
+            return new ObjectId();
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        } else if (type == PageCursor.class) {
+            return new PageCursor(LocalDateTime.now(), new ObjectId().toHexString());
+        } else if (type == ReadRoute.class) {
+            return ReadRoute.PRIMARY;
+        } else if (type == SyncToken.class) {
+            return new SyncToken(10L, new ObjectId().toHexString());
+        } else if (type == JournalEntry.class) {
+            JournalEntry changes = new JournalEntry();
+            changes.setTitle("sample");
+            return changes;
+        } else if (type == UserProfile.class) {
+            return new UserProfile("sample", null);
+        } else if (Pageable.class.isAssignableFrom(type)) {
+            return PageRequest.of(0, 10);
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return List.of("sample");
+        }
+        throw new IllegalArgumentException("No sample value for parameter type " + type.getName()
+                + "; add one so the new query method is plan-checked");
+    }
+
+    @FunctionalInterface
+    private interface QueryCall {
+        Object run() throws Exception;
+    }
+
+    @TestConfiguration
+    static class CommandCaptureConfig {
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCapture() {
+            return builder -> builder.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (EXPLAINABLE.contains(event.getCommandName())) {
+                        captured.add(strip(event.getCommand()));
+                    }
+                }
+            });
+        }
+
+        // Copy the command while it is still valid, dropping session and driver fields explain doesn't accept
+        private static BsonDocument strip(BsonDocument command) {
+            BsonDocument copy = command.clone();
+            copy.keySet().removeIf(key -> key.startsWith("$") || key.equals("lsid") || key.equals("txnNumber"));
+            return copy;
+        }
+    }
+}
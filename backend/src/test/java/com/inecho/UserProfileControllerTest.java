@@ -1,9 +1,15 @@
 package com.inecho;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -15,12 +21,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.inecho.controller.UserProfileController;
+import com.inecho.model.CascadeDeletion;
+import com.inecho.model.CursorPage;
 import com.inecho.model.UserProfile;
+import com.inecho.service.AdmissionControl;
 import com.inecho.service.UserProfileService;
 
 @WebMvcTest(UserProfileController.class)
@@ -32,6 +43,9 @@ public class UserProfileControllerTest {
     @MockBean
     private UserProfileService userProfileService;
 
+    @MockBean
+    private AdmissionControl admissionControl;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -80,6 +94,54 @@ public class UserProfileControllerTest {
                 .andExpect(jsonPath("$.email").value("new@example.com"));
     }
 
+    @Test
+    void createUserProfile_WithIdOfExistingProfile_ShouldReturn409() throws Exception {
+        UserProfile inputProfile = new UserProfile("New User", "new@example.com");
+        inputProfile.setId("1");
+
+        when(userProfileService.saveUserProfile(any(UserProfile.class))).thenThrow(new DuplicateKeyException("Duplicate id 1"));
+
+        mockMvc.perform(post("/api/userProfiles")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(inputProfile)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateUserProfile_WithEmailOfAnotherProfile_ShouldReturn409() throws Exception {
+        UserProfile inputProfile = new UserProfile("User 1", "taken@example.com");
+
+        when(userProfileService.updateUserProfile(eq("1"), any(UserProfile.class)))
+                .thenThrow(new DuplicateKeyException("Duplicate email taken@example.com"));
+        when(userProfileService.patchUserProfile(eq("1"), any(UserProfile.class)))
+                .thenThrow(new DuplicateKeyException("Duplicate email taken@example.com"));
+
+        mockMvc.perform(put("/api/userProfiles/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(inputProfile)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/userProfiles/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(inputProfile)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void createUserProfile_WithCborBody_ShouldReturnCreatedUserProfile() throws Exception {
+        UserProfile savedProfile = new UserProfile("New User", "new@example.com");
+        savedProfile.setId("2");
+
+        when(userProfileService.saveUserProfile(any(UserProfile.class))).thenReturn(savedProfile);
+
+        // JSON is still the default response type
+        mockMvc.perform(post("/api/userProfiles")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .content(new CBORMapper().writeValueAsBytes(new UserProfile("New User", "new@example.com"))))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.id").value("2"));
+    }
+
     @Test
     void getAllUserProfiles_ShouldReturnAllProfiles() throws Exception {
         UserProfile profile1 = new UserProfile("User 1", "user1@example.com");
@@ -96,4 +158,44 @@ public class UserProfileControllerTest {
                 .andExpect(jsonPath("$[1].id").value("2"))
                 .andExpect(jsonPath("$[1].name").value("User 2"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllUserProfiles_WithLimit_ShouldReturnPage() throws Exception {
+        when(userProfileService.getUserProfilesPage(isNull(), any()))
+                .thenReturn(new CursorPage<>(Arrays.asList(testUserProfile), "next-token"));
+
+        mockMvc.perform(get("/api/userProfiles").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value("1"))
+                .andExpect(jsonPath("$.next").value("next-token"));
+    }
+
+    @Test
+    void getAllUserProfiles_WithBadCursor_ShouldReturn400() throws Exception {
+        when(userProfileService.getUserProfilesPage(any(), any()))
+                .thenThrow(new IllegalArgumentException("Malformed cursor: bad"));
+
+        mockMvc.perform(get("/api/userProfiles").param("cursor", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Malformed cursor: bad"));
+    }
+
+    @Test
+    void deleteUserProfile_WithCascade_ShouldAcceptAndPointToProgress() throws Exception {
+        when(userProfileService.deleteUserProfileCascade("1")).thenReturn(new CascadeDeletion("1"));
+
+        mockMvc.perform(delete("/api/userProfiles/1").param("cascade", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/userProfiles/1/deletion"))
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.deletedEntries").value(0));
+    }
+
+    @Test
+    void getCascadeDeletion_Unknown_ShouldReturn404() throws Exception {
+        when(userProfileService.getCascadeDeletion("1")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/userProfiles/1/deletion"))
+                .andExpect(status().isNotFound());
+    }
+}
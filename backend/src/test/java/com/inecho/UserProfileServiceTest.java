@@ -0,0 +1,148 @@
+package com.inecho;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.inecho.config.CacheConfig;
+import com.inecho.model.CascadeDeletion;
+import com.inecho.model.JournalEntry;
+import com.inecho.repository.JournalEntryRepository;
+import com.inecho.repository.UserProfileRepository;
+import com.inecho.service.CascadeDeletions;
+import com.inecho.service.JournalSimilarity;
+import com.inecho.service.JournalStatsService;
+import com.inecho.service.JournalSyncService;
+import com.inecho.service.UserProfileService;
+
+@ExtendWith(MockitoExtension.class)
+public class UserProfileServiceTest {
+
+    @Mock
+    private UserProfileRepository repository;
+
+    @Spy
+    private CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.JOURNAL_ENTRIES,
+            CacheConfig.USER_PROFILES);
+
+    @Mock
+    private JournalEntryRepository journalEntryRepository;
+
+    @Spy
+    private CascadeDeletions cascadeDeletions = new CascadeDeletions();
+
+    @Mock
+    private JournalStatsService journalStatsService;
+
+    @Mock
+    private JournalSimilarity journalSimilarity;
+
+    @Mock
+    private JournalSyncService journalSyncService;
+
+    @InjectMocks
+    private UserProfileService userProfileService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userProfileService, "cascadeBatchSize", 2);
+        ReflectionTestUtils.setField(userProfileService, "cascadePause", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(userProfileService, "cascadeThreads", 1);
+        ReflectionTestUtils.invokeMethod(userProfileService, "start");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(userProfileService, "stop");
+    }
+
+    @Test
+    void deleteUserProfileCascade_ShouldDeleteInPausedBatchesThenCleanUp() throws Exception {
+        Cache entries = cacheManager.getCache(CacheConfig.JOURNAL_ENTRIES);
+        entries.put("e1", new JournalEntry());
+        entries.put("e3", new JournalEntry());
+        when(journalEntryRepository.deleteBatchByUserId("u1", 2))
+                .thenReturn(List.of("e1", "e2"), List.of("e3"), List.of());
+
+        long started = System.nanoTime();
+        CascadeDeletion deletion = userProfileService.deleteUserProfileCascade("u1");
+        awaitFinished(deletion);
+
+        assertEquals(CascadeDeletion.State.COMPLETED, deletion.getState());
+        assertEquals(3, deletion.getDeletedEntries());
+        // A pause after each batch that deleted something
+        assertTrue(System.nanoTime() - started >= Duration.ofMillis(100).toNanos());
+        verify(repository).deleteById("u1");
+        verify(journalEntryRepository, times(3)).deleteBatchByUserId("u1", 2);
+        assertNull(entries.get("e1"));
+        assertNull(entries.get("e3"));
+        verify(journalStatsService).deleteJournalStats("u1");
+        verify(journalSimilarity).forget("u1");
+        verify(journalSyncService).deleteTombstones("u1");
+        assertSame(deletion, userProfileService.getCascadeDeletion("u1").orElseThrow());
+    }
+
+    @Test
+    void deleteUserProfileCascade_WhenABatchFails_ShouldStopAndKeepTheStats() throws Exception {
+        when(journalEntryRepository.deleteBatchByUserId("u1", 2))
+                .thenReturn(List.of("e1", "e2"))
+                .thenThrow(new IllegalStateException("Primary stepped down"));
+
+        CascadeDeletion deletion = userProfileService.deleteUserProfileCascade("u1");
+        awaitFinished(deletion);
+
+        assertEquals(CascadeDeletion.State.FAILED, deletion.getState());
+        assertEquals(2, deletion.getDeletedEntries());
+        assertEquals("Primary stepped down", deletion.getError());
+        verify(journalStatsService, never()).deleteJournalStats("u1");
+
+        // Deleting again starts over rather than reporting the failure
+        doReturn(List.of()).when(journalEntryRepository).deleteBatchByUserId("u1", 2);
+        CascadeDeletion retried = userProfileService.deleteUserProfileCascade("u1");
+        awaitFinished(retried);
+        assertEquals(CascadeDeletion.State.COMPLETED, retried.getState());
+    }
+
+    @Test
+    void deleteUserProfileCascade_WhileRunning_ShouldReportTheRunningDeletion() throws Exception {
+        when(journalEntryRepository.deleteBatchByUserId("u1", 2))
+                .thenReturn(List.of("e1", "e2"), List.of());
+
+        // The first batch is followed by a pause, so the deletion is still running when deleted again
+        CascadeDeletion deletion = userProfileService.deleteUserProfileCascade("u1");
+        assertSame(deletion, userProfileService.deleteUserProfileCascade("u1"));
+        awaitFinished(deletion);
+
+        assertEquals(CascadeDeletion.State.COMPLETED, deletion.getState());
+        verify(journalEntryRepository, times(2)).deleteBatchByUserId("u1", 2);
+    }
+
+    private static void awaitFinished(CascadeDeletion deletion) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (deletion.getState() == CascadeDeletion.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}